@@ -1,23 +1,65 @@
-package org.higena;
-
-import org.higena.graph.Graph;
-
-public class Main {
-
-  /**
-   * Setups the database passed as argument.
-   * @param args The arguments passed to the program.
-   */
-  public static void main(String[] args) {
-    if (args.length != 2) {
-      System.out.println("Usage: java -jar higena.jar <challenge> <predicate>");
-      System.exit(1);
-    }
-
-    String challenge = args[0];
-    String predicate = args[1];
-
-    Graph graph = new Graph(challenge, predicate);
-    graph.setup();
-  }
-}
+package org.higena;
+
+import org.higena.graph.Graph;
+import org.higena.graph.SubmissionOverlay;
+import org.higena.server.HintServer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class Main {
+
+  /**
+   * Setups the database passed as argument or starts the hint server.
+   * @param args The arguments passed to the program.
+   */
+  public static void main(String[] args) {
+    if (args.length >= 1 && args[0].equals("serve")) {
+      serve(args);
+      return;
+    }
+    if (args.length != 2) {
+      System.out.println("Usage: java -jar higena.jar <challenge> <predicate>");
+      System.out.println("       java -jar higena.jar serve [port] [threads] [challenge/predicate ...]");
+      System.exit(1);
+    }
+
+    String challenge = args[0];
+    String predicate = args[1];
+
+    Graph graph = new Graph(challenge, predicate);
+    graph.setup();
+  }
+
+  /**
+   * Starts the hint server on the given port with the given number of
+   * worker threads. The predicates given after the number of threads are
+   * warmed up before the server starts accepting requests. The
+   * higena.snapshot system property sets the copy of the graph loaded on
+   * warm-up (see Graph.SNAPSHOT) and higena.budget the default time budget
+   * in milliseconds of the solution search (see Graph.LATENCY_BUDGET).
+   * higena.overlay=true keeps new submissions in an overlay until they are
+   * seen higena.promotion times (see SubmissionOverlay).
+   * @param args The arguments passed to the program.
+   */
+  private static void serve(String[] args) {
+    Graph.SNAPSHOT = System.getProperty("higena.snapshot", Graph.SNAPSHOT);
+    Graph.LATENCY_BUDGET = Long.getLong("higena.budget", Graph.LATENCY_BUDGET);
+    SubmissionOverlay.ENABLED = Boolean.getBoolean("higena.overlay");
+    SubmissionOverlay.PROMOTION_THRESHOLD = Integer.getInteger("higena.promotion",
+            SubmissionOverlay.PROMOTION_THRESHOLD);
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : HintServer.DEFAULT_PORT;
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : HintServer.DEFAULT_THREADS;
+    try {
+      HintServer server = new HintServer(port, threads, HintServer.DEFAULT_QUEUE_SIZE);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(5)));
+      if (args.length > 3) {
+        server.warmUp(Arrays.asList(args).subList(3, args.length));
+      }
+      server.start();
+    } catch (IOException e) {
+      System.err.println("Failed to start server: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
@@ -1,286 +1,325 @@
-package org.higena.ast;
-
-import at.unisalzburg.dbresearch.apted.node.Node;
-import at.unisalzburg.dbresearch.apted.node.StringNodeData;
-import com.github.gumtreediff.tree.AbstractTree;
-import com.github.gumtreediff.tree.Tree;
-import com.github.gumtreediff.tree.Type;
-import org.higena.parser.Canonicalizer;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-
-/**
- * This class represents an AST of an Alloy expression.
- */
-public class AlloyAST extends AbstractTree {
-  private String label;
-
-  public AlloyAST(Node<StringNodeData> root) {
-    this.children = new ArrayList<>();
-    this.setLabel(root.getNodeData().getLabel());
-
-    for (Node<StringNodeData> child : root.getChildren()) {
-      this.addChild(new AlloyAST(child));
-    }
-  }
-
-  public AlloyAST(Tree other) {
-    this.children = new ArrayList<>();
-    this.label = other.getLabel();
-  }
-
-  public AlloyAST(Tree t, Tree parent) {
-    this.children = new ArrayList<>();
-    this.label = t.getLabel();
-    for (Tree child : t.getChildren()) {
-      this.addChild(child.deepCopy());
-    }
-    setParent(parent);
-  }
-
-  public AlloyAST(String label) {
-    this.children = new ArrayList<>();
-    this.label = label;
-  }
-
-  public AlloyAST(String label, List<Tree> children) {
-    this.label = label;
-    this.setChildren(children);
-  }
-
-  // Matching methods
-
-  /**
-   * If the two ASTs have the same commutative operation with one branch in
-   * common but in different positions, it swaps the children of the current
-   * AST.
-   *
-   * @param other The other AST.
-   */
-  public void prepareForMatching(AlloyAST other) {
-    List<AlloyAST> commutative1 = findCommutativeNodes();
-    List<AlloyAST> commutative2 = other.findCommutativeNodes();
-
-    for (AlloyAST current : commutative1) {
-      for (AlloyAST otherCurrent : commutative2) {
-        if (current.label.equals(otherCurrent.label) && current.hasCommonSwappedBranchWith(otherCurrent)) {
-          current.swapChildren();
-          break;
-        }
-      }
-    }
-  }
-
-  /**
-   * Returns a list of commutative nodes in the AST.
-   *
-   * @return List of commutative nodes
-   */
-  private List<AlloyAST> findCommutativeNodes() {
-    List<Tree> allChildren = new ArrayList<>();
-    List<AlloyAST> commutative = new ArrayList<>();
-
-    // Add itself if it is commutative
-    if (isCommutative()) {
-      commutative.add(this);
-    }
-    // Check children
-    for (Tree child : children) {
-      AlloyAST childAST = new AlloyAST(child, this);
-      commutative.addAll(childAST.findCommutativeNodes());
-      allChildren.add(childAST);
-    }
-
-    // Update children
-    this.children = allChildren;
-
-    return commutative;
-  }
-
-  /**
-   * Return true if both ASTs have two branches in common in swapped
-   * positions. Example: The left branch of this AST is equal to the right
-   * branch of the other AST or vice versa.
-   *
-   * @param other The other AST to compare to.
-   * @return True if the two ASTs have a common branch
-   */
-  private boolean hasCommonSwappedBranchWith(AlloyAST other) {
-    // Null check
-    if (other == null) {
-      return false;
-    }
-
-    // Equal number of children
-    if (other.children.size() != children.size()) {
-      return false;
-    }
-
-    if (children.size() != 2) {
-      return false;
-    }
-
-    // Check left equals other's right
-    Tree left = children.get(0), right = children.get(1),
-            otherLeft = other.children.get(0), otherRight = other.children.get(1);
-
-    if (areEqual(left, otherRight)) {
-      return true;
-    }
-
-    // Check right equals other's left
-    return areEqual(right, otherLeft);
-  }
-
-  /**
-   * Swaps the children of this AST if the AST has two children.
-   */
-  private void swapChildren() {
-    if (children.size() != 2) {
-      return;
-    }
-    Tree temp = children.get(0);
-    children.set(0, children.get(1));
-    children.set(1, temp);
-  }
-
-  // Static methods
-
-  /**
-   * Returns true if the two trees are equal. Two trees are equal if they have the same label and
-   * the same children.
-   *
-   * @param t1 The first tree
-   * @param t2 The second tree
-   * @return True if the two trees are equal
-   */
-  public static boolean areEqual(Tree t1, Tree t2) {
-    // Null check
-    if (t1 == null && t2 == null) {
-      return false;
-    }
-
-    // Label check
-    if (!t1.getLabel().equals(t2.getLabel())) {
-      return false;
-    }
-
-    // Number of children check
-    if (t1.getChildren().size() != t2.getChildren().size()) {
-      return false;
-    }
-
-    // Children check
-    List<Tree> children1 = t1.getChildren(),
-            children2 = t2.getChildren();
-    for (int i = 0; i < children1.size(); i++) {
-      Tree child1 = children1.get(i),
-              child2 = children2.get(i);
-      if (!areEqual(child1, child2)) {
-        return false;
-      }
-    }
-
-    return true;
-  }
-
-  // Getters
-
-  @Override
-  public String getLabel() {
-    return label;
-  }
-
-  @Override
-  public int getPos() {
-    return 0;
-  }
-
-  @Override
-  public int getLength() {
-    return 0;
-  }
-
-  @Override
-  public Type getType() {
-    return null;
-  }
-
-  @Override
-  public Object getMetadata(String s) {
-    return null;
-  }
-
-  @Override
-  public Iterator<Map.Entry<String, Object>> getMetadata() {
-    return null;
-  }
-
-  // Setters
-
-  @Override
-  public void setLabel(String s) {
-    this.label = s;
-  }
-
-  @Override
-  public void setPos(int i) {
-
-  }
-
-  @Override
-  public void setLength(int i) {
-
-  }
-
-  @Override
-  public void setType(Type type) {
-
-  }
-
-  @Override
-  public Object setMetadata(String s, Object o) {
-    return null;
-  }
-
-  // To String methods
-
-  @Override
-  public String toString() {
-    return label;
-  }
-
-  @Override
-  public String toTreeString() {
-    StringBuilder ret = new StringBuilder("{" + label);
-    for (Tree child : children) {
-      ret.append(child.toTreeString());
-    }
-    ret.append("}");
-    return ret.toString();
-  }
-
-  // Other methods
-
-  @Override
-  public Tree deepCopy() {
-    Tree copy = new AlloyAST(this);
-    for (Tree child : this.getChildren()) {
-      copy.addChild(child.deepCopy());
-    }
-    return copy;
-  }
-
-  /**
-   * Returns true if the label of the root represents a commutative operation
-   * in Alloy.
-   *
-   * @return True if the label is commutative
-   */
-  private boolean isCommutative() {
-    return Canonicalizer.isCommutative(label);
-  }
-}
+package org.higena.ast;
+
+import at.unisalzburg.dbresearch.apted.node.Node;
+import at.unisalzburg.dbresearch.apted.node.StringNodeData;
+import com.github.gumtreediff.tree.AbstractTree;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.Type;
+import org.higena.parser.Canonicalizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents an AST of an Alloy expression.
+ */
+public class AlloyAST extends AbstractTree {
+  private String label;
+  private long hash; // Subtree hash (set when preparing for matching)
+
+  public AlloyAST(Node<StringNodeData> root) {
+    this.children = new ArrayList<>();
+    this.setLabel(root.getNodeData().getLabel());
+
+    for (Node<StringNodeData> child : root.getChildren()) {
+      this.addChild(new AlloyAST(child));
+    }
+  }
+
+  public AlloyAST(Tree other) {
+    this.children = new ArrayList<>();
+    this.label = other.getLabel();
+  }
+
+  public AlloyAST(Tree t, Tree parent) {
+    this.children = new ArrayList<>();
+    this.label = t.getLabel();
+    for (Tree child : t.getChildren()) {
+      this.addChild(child.deepCopy());
+    }
+    setParent(parent);
+  }
+
+  public AlloyAST(String label) {
+    this.children = new ArrayList<>();
+    this.label = label;
+  }
+
+  public AlloyAST(String label, List<Tree> children) {
+    this.label = label;
+    this.setChildren(children);
+  }
+
+  // Matching methods
+
+  /**
+   * If the two ASTs have the same commutative operation with one branch in
+   * common but in different positions, it swaps the children of the current
+   * AST. The alignment is done in place: the branches of the commutative
+   * nodes of the other AST are indexed by their subtree hashes, and then
+   * each commutative node of this AST is checked against the index.
+   *
+   * @param other The other AST.
+   */
+  public void prepareForMatching(AlloyAST other) {
+    Map<Long, Tree> otherBranches = new HashMap<>();
+    indexCommutativeBranches(other, otherBranches);
+    updateHash(this);
+    alignCommutativeNodes(this, otherBranches);
+  }
+
+  /**
+   * Computes the subtree hashes of a tree and indexes the branches of its
+   * commutative nodes with two children. Each branch is indexed by the label
+   * of its parent, its position and its subtree hash.
+   *
+   * @param tree  Tree to index
+   * @param index Index of the commutative nodes by branch
+   * @return Subtree hash of the tree
+   */
+  private static long indexCommutativeBranches(Tree tree,
+                                               Map<Long, Tree> index) {
+    long hash = seed(tree);
+    for (Tree child : tree.getChildren()) {
+      hash = combine(hash, indexCommutativeBranches(child, index));
+    }
+    setHash(tree, hash);
+
+    List<Tree> children = tree.getChildren();
+    if (Canonicalizer.isCommutative(tree.getLabel()) && children.size() == 2) {
+      index.putIfAbsent(branchKey(tree.getLabel(), 0, getHash(children.get(0))), tree);
+      index.putIfAbsent(branchKey(tree.getLabel(), 1, getHash(children.get(1))), tree);
+    }
+    return hash;
+  }
+
+  /**
+   * Swaps the children of each commutative node of the tree that has a
+   * branch in common with a commutative node of the other AST but in the
+   * swapped position. Example: The left branch of the node is equal to the
+   * right branch of the other node or vice versa. Nodes are visited in
+   * pre-order.
+   *
+   * @param tree          Tree to align
+   * @param otherBranches Index of the commutative nodes of the other AST
+   */
+  private static void alignCommutativeNodes(Tree tree,
+                                            Map<Long, Tree> otherBranches) {
+    List<Tree> children = tree.getChildren();
+    if (Canonicalizer.isCommutative(tree.getLabel()) && children.size() == 2) {
+      Tree left = children.get(0), right = children.get(1);
+      // Check left equals other's right or right equals other's left
+      if (hasBranch(otherBranches, tree.getLabel(), 1, left)
+              || hasBranch(otherBranches, tree.getLabel(), 0, right)) {
+        children.set(0, right);
+        children.set(1, left);
+      }
+    }
+    for (Tree child : children) {
+      alignCommutativeNodes(child, otherBranches);
+    }
+  }
+
+  /**
+   * Returns true if the index has a commutative node with the given label
+   * and a branch equal to the given one in the given position.
+   *
+   * @param index    Index of the commutative nodes by branch
+   * @param label    Label of the commutative node
+   * @param position Position of the branch (0 for left, 1 for right)
+   * @param branch   Branch to look for
+   * @return True if the branch is found
+   */
+  private static boolean hasBranch(Map<Long, Tree> index, String label,
+                                   int position, Tree branch) {
+    Tree node = index.get(branchKey(label, position, getHash(branch)));
+    // Confirm the match in case of hash collisions
+    return node != null && node.getLabel().equals(label)
+            && areEqual(node.getChildren().get(position), branch);
+  }
+
+  // Hash methods
+
+  /**
+   * Computes and stores the subtree hashes of all nodes of a tree.
+   *
+   * @param tree Tree to hash
+   * @return Subtree hash of the tree
+   */
+  private static long updateHash(Tree tree) {
+    long hash = seed(tree);
+    for (Tree child : tree.getChildren()) {
+      hash = combine(hash, updateHash(child));
+    }
+    setHash(tree, hash);
+    return hash;
+  }
+
+  /**
+   * Returns the subtree hash of a tree. Equal trees have the same hash. The
+   * hash is order sensitive: swapping two different children changes it.
+   *
+   * @param tree Tree to hash
+   * @return Stored hash for AlloyAST nodes; computed hash otherwise
+   */
+  private static long getHash(Tree tree) {
+    if (tree instanceof AlloyAST) {
+      return ((AlloyAST) tree).hash;
+    }
+    long hash = seed(tree);
+    for (Tree child : tree.getChildren()) {
+      hash = combine(hash, getHash(child));
+    }
+    return hash;
+  }
+
+  private static void setHash(Tree tree, long hash) {
+    if (tree instanceof AlloyAST) {
+      ((AlloyAST) tree).hash = hash;
+    }
+  }
+
+  private static long seed(Tree tree) {
+    return combine(0xcbf29ce484222325L, tree.getLabel().hashCode())
+            ^ tree.getChildren().size();
+  }
+
+  private static long combine(long hash, long value) {
+    hash = (hash ^ value) * 0x100000001b3L;
+    return hash ^ (hash >>> 32);
+  }
+
+  private static long branchKey(String label, int position, long branchHash) {
+    return combine(combine(label.hashCode(), position), branchHash);
+  }
+
+  // Static methods
+
+  /**
+   * Returns true if the two trees are equal. Two trees are equal if they have the same label and
+   * the same children.
+   *
+   * @param t1 The first tree
+   * @param t2 The second tree
+   * @return True if the two trees are equal
+   */
+  public static boolean areEqual(Tree t1, Tree t2) {
+    // Null check
+    if (t1 == null && t2 == null) {
+      return false;
+    }
+
+    // Label check
+    if (!t1.getLabel().equals(t2.getLabel())) {
+      return false;
+    }
+
+    // Number of children check
+    if (t1.getChildren().size() != t2.getChildren().size()) {
+      return false;
+    }
+
+    // Children check
+    List<Tree> children1 = t1.getChildren(),
+            children2 = t2.getChildren();
+    for (int i = 0; i < children1.size(); i++) {
+      Tree child1 = children1.get(i),
+              child2 = children2.get(i);
+      if (!areEqual(child1, child2)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  // Getters
+
+  @Override
+  public String getLabel() {
+    return label;
+  }
+
+  @Override
+  public int getPos() {
+    return 0;
+  }
+
+  @Override
+  public int getLength() {
+    return 0;
+  }
+
+  @Override
+  public Type getType() {
+    return null;
+  }
+
+  @Override
+  public Object getMetadata(String s) {
+    return null;
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, Object>> getMetadata() {
+    return null;
+  }
+
+  // Setters
+
+  @Override
+  public void setLabel(String s) {
+    this.label = s;
+  }
+
+  @Override
+  public void setPos(int i) {
+
+  }
+
+  @Override
+  public void setLength(int i) {
+
+  }
+
+  @Override
+  public void setType(Type type) {
+
+  }
+
+  @Override
+  public Object setMetadata(String s, Object o) {
+    return null;
+  }
+
+  // To String methods
+
+  @Override
+  public String toString() {
+    return label;
+  }
+
+  @Override
+  public String toTreeString() {
+    StringBuilder ret = new StringBuilder("{" + label);
+    for (Tree child : children) {
+      ret.append(child.toTreeString());
+    }
+    ret.append("}");
+    return ret.toString();
+  }
+
+  // Other methods
+
+  @Override
+  public Tree deepCopy() {
+    Tree copy = new AlloyAST(this);
+    for (Tree child : this.getChildren()) {
+      copy.addChild(child.deepCopy());
+    }
+    return copy;
+  }
+}
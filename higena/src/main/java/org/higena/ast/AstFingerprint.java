@@ -0,0 +1,43 @@
+package org.higena.ast;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes fingerprints of ASTs. A fingerprint is a fixed size identifier of
+ * an AST string, so two ASTs have the same fingerprint if and only if they
+ * are equal (up to hash collisions).
+ */
+public class AstFingerprint {
+
+  private AstFingerprint() {
+  }
+
+  /**
+   * Returns the fingerprint of an AST: the hexadecimal SHA-256 digest of the
+   * AST string. Quotes are ignored, so the AST as stored in the graph and
+   * its quoted representation have the same fingerprint.
+   *
+   * @param ast AST string (e.g. {AND{no{Protected}}})
+   * @return Fingerprint of the AST
+   */
+  public static String of(String ast) {
+    byte[] digest = getDigest().digest(ast.replace("\"", "")
+            .getBytes(StandardCharsets.UTF_8));
+    StringBuilder hex = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+              .append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static MessageDigest getDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.higena.ast;
+
+/**
+ * Strategies to compute the mapping between two ASTs before generating the
+ * edit actions.
+ * APTED: Always uses the mapping of the APTED algorithm. It is optimal but
+ * cubic in the size of the trees in the worst case.
+ * GUMTREE: Always uses the GumTree matcher, which is near-linear but may
+ * produce longer edit scripts.
+ * ADAPTIVE: Uses APTED while the product of the sizes of the trees is
+ * within the budget and GumTree otherwise.
+ * The strategy only decides the edit actions: the TED of a TreeDiff is always
+ * the exact distance computed by APTED.
+ */
+public enum MatcherStrategy {
+  APTED("APTED"), GUMTREE("GumTree"), ADAPTIVE("Adaptive");
+
+  public static final long DEFAULT_BUDGET = 250000; // e.g. two 500 node trees
+  private static long budget = DEFAULT_BUDGET; // Max. size product for APTED
+
+  private final String name;
+
+  MatcherStrategy(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns true if the APTED mapping should be used for trees with the
+   * given sizes.
+   *
+   * @param size1 Number of nodes of the first tree
+   * @param size2 Number of nodes of the second tree
+   * @return True to use APTED, false to use GumTree
+   */
+  public boolean useApted(int size1, int size2) {
+    switch (this) {
+      case APTED:
+        return true;
+      case GUMTREE:
+        return false;
+      default:
+        return isWithinBudget(size1, size2);
+    }
+  }
+
+  /**
+   * Returns true if running APTED on trees with the given sizes is within
+   * the budget.
+   *
+   * @param size1 Number of nodes of the first tree
+   * @param size2 Number of nodes of the second tree
+   * @return True if the product of the sizes does not exceed the budget
+   */
+  public static boolean isWithinBudget(int size1, int size2) {
+    return (long) size1 * size2 <= budget;
+  }
+
+  public static long getBudget() {
+    return budget;
+  }
+
+  public static void setBudget(long budget) {
+    MatcherStrategy.budget = budget;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
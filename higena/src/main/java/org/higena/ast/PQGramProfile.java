@@ -0,0 +1,134 @@
+package org.higena.ast;
+
+import at.unisalzburg.dbresearch.apted.node.Node;
+import at.unisalzburg.dbresearch.apted.node.StringNodeData;
+
+import java.util.Arrays;
+
+/**
+ * pq-gram profile of a tree (Augsten et al.). A pq-gram is a small subtree
+ * made of a node with its p-1 ancestors and q consecutive children. The
+ * profile is the bag of all pq-grams of the tree and the distance between
+ * two profiles approximates the TED between the trees in linear time.
+ * <p>
+ * The pq-grams are stored as sorted 64 bit hashes of their labels.
+ */
+public class PQGramProfile {
+  public static final int P = 2; // Number of ancestors (including the node)
+  public static final int Q = 3; // Number of consecutive children
+  private static final int NULL_LABEL = 0; // Hash of the dummy "*" node
+  private final long[] grams; // Sorted hashes of the pq-grams
+
+  public PQGramProfile(Node<StringNodeData> tree) {
+    LongBag bag = new LongBag();
+    addGrams(tree, new int[P], bag);
+    this.grams = bag.toSortedArray();
+  }
+
+  /**
+   * Adds the pq-grams of the subtree rooted at the given node to the bag.
+   *
+   * @param node      Root of the subtree
+   * @param ancestors Labels of the p-1 ancestors of the node
+   * @param bag       Bag of pq-grams
+   */
+  private static void addGrams(Node<StringNodeData> node, int[] ancestors,
+                               LongBag bag) {
+    int[] stem = shift(ancestors, label(node));
+    int[] siblings = new int[Q];
+
+    if (node.getChildren().isEmpty()) {
+      bag.add(hash(stem, siblings));
+      return;
+    }
+    for (Node<StringNodeData> child : node.getChildren()) {
+      siblings = shift(siblings, label(child));
+      bag.add(hash(stem, siblings));
+      addGrams(child, stem, bag);
+    }
+    for (int i = 1; i < Q; i++) {
+      siblings = shift(siblings, NULL_LABEL);
+      bag.add(hash(stem, siblings));
+    }
+  }
+
+  /**
+   * Returns the pq-gram distance between this profile and another one. The
+   * distance is 0 for equal profiles and 1 for profiles with no pq-gram in
+   * common.
+   *
+   * @param other The other profile
+   * @return Distance between 0 and 1
+   */
+  public double distance(PQGramProfile other) {
+    int i = 0, j = 0, common = 0;
+    long[] a = grams, b = other.grams;
+    while (i < a.length && j < b.length) {
+      if (a[i] == b[j]) {
+        common++;
+        i++;
+        j++;
+      } else if (a[i] < b[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    int union = a.length + b.length;
+    return union == 0 ? 0 : 1 - 2.0 * common / union;
+  }
+
+  public int size() {
+    return grams.length;
+  }
+
+  // Auxiliary methods
+
+  private static int label(Node<StringNodeData> node) {
+    int hash = node.getNodeData().getLabel().hashCode();
+    return hash == NULL_LABEL ? 1 : hash;
+  }
+
+  /**
+   * Returns a copy of the register shifted one position to the left with
+   * the given label in the last position.
+   */
+  private static int[] shift(int[] register, int label) {
+    int[] shifted = new int[register.length];
+    System.arraycopy(register, 1, shifted, 0, register.length - 1);
+    shifted[register.length - 1] = label;
+    return shifted;
+  }
+
+  private static long hash(int[] stem, int[] base) {
+    long hash = 0xcbf29ce484222325L;
+    for (int label : stem) {
+      hash = (hash ^ label) * 0x100000001b3L;
+    }
+    for (int label : base) {
+      hash = (hash ^ label) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Growable bag of longs.
+   */
+  private static class LongBag {
+    private long[] values = new long[16];
+    private int size = 0;
+
+    void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    long[] toSortedArray() {
+      long[] sorted = Arrays.copyOf(values, size);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+  }
+}
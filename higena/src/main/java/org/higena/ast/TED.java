@@ -1,160 +1,286 @@
-package org.higena.ast;
-
-import at.unisalzburg.dbresearch.apted.costmodel.StringUnitCostModel;
-import at.unisalzburg.dbresearch.apted.distance.APTED;
-import at.unisalzburg.dbresearch.apted.node.Node;
-import at.unisalzburg.dbresearch.apted.node.StringNodeData;
-import at.unisalzburg.dbresearch.apted.parser.BracketStringInputParser;
-import com.github.gumtreediff.actions.EditScript;
-import com.github.gumtreediff.actions.EditScriptGenerator;
-import com.github.gumtreediff.actions.SimplifiedChawatheScriptGenerator;
-import com.github.gumtreediff.actions.model.Action;
-import com.github.gumtreediff.matchers.MappingStore;
-import com.github.gumtreediff.matchers.Matcher;
-import com.github.gumtreediff.matchers.Matchers;
-import com.github.gumtreediff.tree.Tree;
-import com.github.gumtreediff.tree.TreeUtils;
-import org.higena.ast.actions.EditAction;
-import org.higena.ast.actions.TreeDiff;
-
-import java.util.List;
-
-/**
- * This class contains methods for computing the differences between two
- * ASTs. This includes computing the Tree Edit Distance (TED) between two
- * trees and computing the edit actions that transform one tree into another.
- * <p>
- * The TED is computed using the APTED library.
- */
-public class TED {
-  private static final BracketStringInputParser parser =
-          new BracketStringInputParser(); // Parser
-  private static final APTED<StringUnitCostModel, StringNodeData> apted =
-          new APTED<>(new StringUnitCostModel()); // APTED instance
-
-  private static final EditScriptGenerator generator =
-          new SimplifiedChawatheScriptGenerator(); // Edit script generator
-  public static boolean USE_APTED = true; // True to use APTED; else use GumTree
-
-  public TED() {
-  }
-
-  /**
-   * Computes the TED between two trees and the edit actions that transform
-   * one tree into another.
-   *
-   * @param tree1 First tree
-   * @param tree2 Second tree
-   * @return TreeDiff object containing the TED and edit actions
-   */
-  public TreeDiff computeTreeDiff(String tree1, String tree2) {
-    Node<StringNodeData> t1 = parse("{root" + tree1 + "}"), t2 = parse("{root" + tree2 + "}");
-    AlloyAST ast1 = new AlloyAST(t1), ast2 = new AlloyAST(t2);
-
-    // Order children of commutative operations to optimize matching
-    ast1.prepareForMatching(ast2);
-
-    // Compute TED (must run before computing mappings)
-    TreeDiff td = new TreeDiff(computeEditDistance(t1, t2));
-
-    // Get mapping between the two trees
-    MappingStore ms;
-    if (USE_APTED) { // Use APTED
-      ms = aptedMatch(ast1, ast2);
-    } else { // Use GumTree
-      ms = gumTreeMatch(ast1, ast2);
-    }
-
-    // Calculate edit actions using Chawathe's algorithm
-    EditScript editScript = generator.computeActions(ms);
-
-    // Convert edit script actions to EditAction objects
-    for (Action action : editScript) {
-      td.addAction(new EditAction(action));
-    }
-    return td;
-  }
-
-  /**
-   * Computes the mapping between two trees using GumTree.
-   * @param t1 The first tree
-   * @param t2 The second tree
-   * @return The mapping between the two trees.
-   */
-  private MappingStore gumTreeMatch(AlloyAST t1, AlloyAST t2) {
-    Matcher defaultMatcher = Matchers.getInstance().getMatcher();
-    return defaultMatcher.match(t1, t2);
-  }
-
-  /**
-   * Computes the mapping between two trees using APTED.
-   * @param t1 The first tree
-   * @param t2 The second tree
-   * @return The mapping between the two trees.
-   */
-  private MappingStore aptedMatch(AlloyAST t1, AlloyAST t2) {
-    MappingStore ms = new MappingStore(t1, t2);
-
-    List<int[]> arrayMappings = this.computeEdits();
-    List<Tree> srcs = TreeUtils.postOrder(t1);
-    List<Tree> dsts = TreeUtils.postOrder(t2);
-
-    for (int[] m : arrayMappings) {
-      if (m[0] != 0 && m[1] != 0) {
-        Tree srcg = srcs.get(m[0] - 1);
-        Tree dstg = dsts.get(m[1] - 1);
-
-        if (ms.isMappingAllowed(srcg, dstg))
-          ms.addMapping(srcg, dstg);
-      }
-    }
-
-    return ms;
-  }
-
-  /**
-   * Computes the edit TED between two trees.
-   * @param t1 First tree
-   * @param t2 Second tree
-   * @return TED between the two trees
-   */
-  public static int computeEditDistance(String t1, String t2) {
-    // TODO: Change. This is a workaround for a bug where one string comes with quotes and the other doesn't
-    t1 = t1.replace("\"", "");
-    t2 = t2.replace("\"", "");
-
-    t1 = "{root" + t1 + "}";
-    t2 = "{root" + t2 + "}";
-    return computeEditDistance(parse(t1), parse(t2));
-  }
-
-  /**
-   * Computes the tree edit distance between two trees.
-   *
-   * @param t1 The first tree
-   * @param t2 The second tree
-   * @return The tree edit distance between the two trees.
-   */
-  public static int computeEditDistance(Node<StringNodeData> t1,
-                                        Node<StringNodeData> t2) {
-    return (int) apted.computeEditDistance(t1, t2);
-  }
-
-  /**
-   * Computes the edit mapping between two trees. Must be called after computeEditDistance.
-   * @return A list of pairs of node ids. Each pair represents a node in the first tree and a node in the second tree.
-   */
-  public List<int[]> computeEdits() {
-    return apted.computeEditMapping();
-  }
-
-  /**
-   * Parses a tree from a string.
-   * @param tree The string representation of the tree. The format must be
-   *             {root{child1}{child2}}
-   * @return The parsed tree instance.
-   */
-  private static Node<StringNodeData> parse(String tree) {
-    return parser.fromString(tree);
-  }
-}
+package org.higena.ast;
+
+import at.unisalzburg.dbresearch.apted.costmodel.StringUnitCostModel;
+import at.unisalzburg.dbresearch.apted.distance.APTED;
+import at.unisalzburg.dbresearch.apted.node.Node;
+import at.unisalzburg.dbresearch.apted.node.StringNodeData;
+import at.unisalzburg.dbresearch.apted.parser.BracketStringInputParser;
+import com.github.gumtreediff.actions.EditScript;
+import com.github.gumtreediff.actions.EditScriptGenerator;
+import com.github.gumtreediff.actions.SimplifiedChawatheScriptGenerator;
+import com.github.gumtreediff.actions.model.Action;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.matchers.Matcher;
+import com.github.gumtreediff.matchers.Matchers;
+import com.github.gumtreediff.tree.Tree;
+import com.github.gumtreediff.tree.TreeUtils;
+import org.higena.ast.actions.EditAction;
+import org.higena.ast.actions.TreeDiff;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class contains methods for computing the differences between two
+ * ASTs. This includes computing the Tree Edit Distance (TED) between two
+ * trees and computing the edit actions that transform one tree into another.
+ * <p>
+ * The TED is computed using the APTED library. The mapping used to compute
+ * the edit actions depends on the MatcherStrategy.
+ * <p>
+ * APTED, GumTree and the edit script generator keep state between calls, so
+ * each thread uses its own instances.
+ */
+public class TED {
+  private static final BracketStringInputParser parser =
+          new BracketStringInputParser(); // Parser
+  private static final ThreadLocal<APTED<StringUnitCostModel, StringNodeData>> apted =
+          ThreadLocal.withInitial(() -> new APTED<>(new StringUnitCostModel())); // APTED instance
+  private static final ThreadLocal<EditScriptGenerator> generator =
+          ThreadLocal.withInitial(SimplifiedChawatheScriptGenerator::new); // Edit script generator
+  private static final TreeDiffCache cache = TreeDiffCache.getInstance();
+  private static final ThreadLocal<Matcher> gumTree = ThreadLocal.withInitial(
+          () -> Matchers.getInstance().getMatcher()); // GumTree matcher
+  public static MatcherStrategy MATCHER = MatcherStrategy.ADAPTIVE; // Mapping strategy
+
+  public TED() {
+  }
+
+  /**
+   * Computes the TED between two trees and the edit actions that transform
+   * one tree into another. Results are stored in the shared TreeDiffCache.
+   *
+   * @param tree1 First tree
+   * @param tree2 Second tree
+   * @return TreeDiff object containing the TED and edit actions
+   */
+  public TreeDiff computeTreeDiff(String tree1, String tree2) {
+    MatcherStrategy matcher = MATCHER;
+    TreeDiff cached = cache.getTreeDiff(tree1, tree2, matcher);
+    if (cached != null) {
+      return cached;
+    }
+    Node<StringNodeData> t1 = parse("{root" + tree1 + "}"), t2 = parse("{root" + tree2 + "}");
+    AlloyAST ast1 = new AlloyAST(t1), ast2 = new AlloyAST(t2);
+
+    // Order children of commutative operations to optimize matching
+    ast1.prepareForMatching(ast2);
+
+    // Compute TED (must run before computing mappings). It is always exact,
+    // since it is stored as the weight of edges: the length of an edit script
+    // is not a distance, as its actions may move, insert or delete subtrees.
+    int distance = computeEditDistance(t1, t2);
+    // Get mapping between the two trees
+    MappingStore ms;
+    if (matcher.useApted(t1.getNodeCount(), t2.getNodeCount())) { // Use APTED
+      ms = aptedMatch(ast1, ast2);
+    } else { // Use GumTree
+      ms = gumTreeMatch(ast1, ast2);
+    }
+
+    // Calculate edit actions using Chawathe's algorithm
+    EditScript editScript = generator.get().computeActions(ms);
+
+    TreeDiff td = new TreeDiff(distance);
+
+    // Convert edit script actions to EditAction objects
+    for (Action action : editScript) {
+      td.addAction(new EditAction(action));
+    }
+    cache.putTreeDiff(tree1, tree2, matcher, td);
+    return td;
+  }
+
+  /**
+   * Computes the mapping between two trees using GumTree. The matcher is
+   * created once per thread and reused.
+   * @param t1 The first tree
+   * @param t2 The second tree
+   * @return The mapping between the two trees.
+   */
+  private MappingStore gumTreeMatch(AlloyAST t1, AlloyAST t2) {
+    return gumTree.get().match(t1, t2);
+  }
+
+  /**
+   * Computes the mapping between two trees using APTED.
+   * @param t1 The first tree
+   * @param t2 The second tree
+   * @return The mapping between the two trees.
+   */
+  private MappingStore aptedMatch(AlloyAST t1, AlloyAST t2) {
+    MappingStore ms = new MappingStore(t1, t2);
+
+    List<int[]> arrayMappings = this.computeEdits();
+    List<Tree> srcs = TreeUtils.postOrder(t1);
+    List<Tree> dsts = TreeUtils.postOrder(t2);
+
+    for (int[] m : arrayMappings) {
+      if (m[0] != 0 && m[1] != 0) {
+        Tree srcg = srcs.get(m[0] - 1);
+        Tree dstg = dsts.get(m[1] - 1);
+
+        if (ms.isMappingAllowed(srcg, dstg))
+          ms.addMapping(srcg, dstg);
+      }
+    }
+
+    return ms;
+  }
+
+  /**
+   * Computes the edit TED between two trees. Results are stored in the
+   * shared TreeDiffCache.
+   * @param t1 First tree
+   * @param t2 Second tree
+   * @return TED between the two trees
+   */
+  public static int computeEditDistance(String t1, String t2) {
+    Integer cached = cache.getDistance(t1, t2);
+    if (cached != null) {
+      return cached;
+    }
+    int ted = computeEditDistance(parseTree(t1), parseTree(t2));
+    cache.putDistance(t1, t2, ted);
+    return ted;
+  }
+
+  /**
+   * Computes the tree edit distance between two trees.
+   *
+   * @param t1 The first tree
+   * @param t2 The second tree
+   * @return The tree edit distance between the two trees.
+   */
+  public static int computeEditDistance(Node<StringNodeData> t1,
+                                        Node<StringNodeData> t2) {
+    return (int) apted.get().computeEditDistance(t1, t2);
+  }
+
+  /**
+   * Computes the TED between two trees as long as it does not exceed the
+   * given bound. See computeEditDistance(Node, Node, int).
+   *
+   * @param t1 First tree
+   * @param t2 Second tree
+   * @param k  Maximum distance of interest
+   * @return TED between the two trees if it is at most k. Otherwise, a value
+   * greater than k.
+   */
+  public static int computeEditDistance(String t1, String t2, int k) {
+    Integer cached = cache.getDistance(t1, t2);
+    if (cached != null) {
+      return cached;
+    }
+    int ted = computeEditDistance(parseTree(t1), parseTree(t2), k);
+    if (ted <= k) { // Only exact distances are cached
+      cache.putDistance(t1, t2, ted);
+    }
+    return ted;
+  }
+
+  /**
+   * Computes the TED between two trees as long as it does not exceed the
+   * given bound. Before running APTED, a lower bound of the distance is
+   * computed in linear time from the sizes and labels of the trees. If the
+   * lower bound is already greater than k, the computation stops early and
+   * the lower bound is returned.
+   *
+   * @param t1 First tree
+   * @param t2 Second tree
+   * @param k  Maximum distance of interest
+   * @return TED between the two trees if it is at most k. Otherwise, a value
+   * greater than k.
+   */
+  public static int computeEditDistance(Node<StringNodeData> t1,
+                                        Node<StringNodeData> t2, int k) {
+    int lowerBound = lowerBound(t1, t2);
+    if (lowerBound > k) {
+      return lowerBound;
+    }
+    return computeEditDistance(t1, t2);
+  }
+
+  /**
+   * Computes a lower bound of the TED between two trees using unit costs.
+   * Each node of the smaller tree can at most be mapped to one node of the
+   * other tree, and only mappings between equal labels are free. So, the
+   * distance is at least the size of the larger tree minus the number of
+   * labels both trees have in common.
+   *
+   * @param t1 First tree
+   * @param t2 Second tree
+   * @return Lower bound of the TED between the two trees
+   */
+  public static int lowerBound(Node<StringNodeData> t1,
+                               Node<StringNodeData> t2) {
+    Map<String, Integer> labels = new HashMap<>();
+    int size1 = countLabels(t1, labels);
+    int size2 = 0, common = 0;
+
+    Deque<Node<StringNodeData>> stack = new ArrayDeque<>();
+    stack.push(t2);
+    while (!stack.isEmpty()) {
+      Node<StringNodeData> node = stack.pop();
+      size2++;
+      Integer count = labels.get(node.getNodeData().getLabel());
+      if (count != null && count > 0) {
+        labels.put(node.getNodeData().getLabel(), count - 1);
+        common++;
+      }
+      for (Node<StringNodeData> child : node.getChildren()) {
+        stack.push(child);
+      }
+    }
+    return Math.max(size1, size2) - common;
+  }
+
+  /**
+   * Counts the occurrences of each label in a tree.
+   *
+   * @param tree   Tree to count labels from
+   * @param labels Map to store the number of occurrences of each label
+   * @return Number of nodes of the tree
+   */
+  private static int countLabels(Node<StringNodeData> tree,
+                                 Map<String, Integer> labels) {
+    int size = 1;
+    labels.merge(tree.getNodeData().getLabel(), 1, Integer::sum);
+    for (Node<StringNodeData> child : tree.getChildren()) {
+      size += countLabels(child, labels);
+    }
+    return size;
+  }
+
+  /**
+   * Computes the edit mapping between two trees. Must be called after computeEditDistance.
+   * @return A list of pairs of node ids. Each pair represents a node in the first tree and a node in the second tree.
+   */
+  public List<int[]> computeEdits() {
+    return apted.get().computeEditMapping();
+  }
+
+  /**
+   * Parses an AST as stored in the graph into a tree rooted at a "root"
+   * node, ready to be used by computeEditDistance.
+   * @param ast The AST string (e.g. {AND{no{Protected}}})
+   * @return The parsed tree instance.
+   */
+  public static Node<StringNodeData> parseTree(String ast) {
+    // TODO: Change. This is a workaround for a bug where one string comes with quotes and the other doesn't
+    return parse("{root" + ast.replace("\"", "") + "}");
+  }
+
+  /**
+   * Parses a tree from a string.
+   * @param tree The string representation of the tree. The format must be
+   *             {root{child1}{child2}}
+   * @return The parsed tree instance.
+   */
+  private static Node<StringNodeData> parse(String tree) {
+    return parser.fromString(tree);
+  }
+}
@@ -0,0 +1,173 @@
+package org.higena.ast;
+
+import org.higena.ast.actions.TreeDiff;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of tree differences between pairs of ASTs. Entries are keyed
+ * by the ordered pair of AST fingerprints, so TED(a, b) and TED(b, a) are
+ * different entries. Distances (TED.computeEditDistance) and TreeDiffs
+ * (TED.computeTreeDiff) are kept in separate entries, since the TED of a
+ * TreeDiff is computed on the trees prepared for matching (children of
+ * commutative operations reordered). TreeDiffs are also keyed by the matcher
+ * strategy that computed them, since it decides their edit actions.
+ * Cached TreeDiffs are never handed out: callers get a copy. When the cache
+ * is full, the least recently used entry is evicted.
+ * <p>
+ * A single instance is shared by TED, Hint and Db. All methods are
+ * thread-safe.
+ *
+ * @see TreeDiff
+ */
+public class TreeDiffCache {
+  public static final int DEFAULT_CAPACITY = 10000; // Default number of entries
+  private static final TreeDiffCache instance =
+          new TreeDiffCache(DEFAULT_CAPACITY); // Shared cache
+
+  private final Map<String, Entry> entries; // Cached entries in LRU order
+  private long hits = 0, misses = 0; // Number of cache hits and misses
+
+  public TreeDiffCache(int capacity) {
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  public static TreeDiffCache getInstance() {
+    return instance;
+  }
+
+  // Lookup methods
+
+  /**
+   * Returns the cached TED between two ASTs.
+   *
+   * @param src Source AST
+   * @param dst Destination AST
+   * @return TED between the ASTs or null if it is not cached.
+   */
+  public synchronized Integer getDistance(String src, String dst) {
+    Entry entry = entries.get(key(src, dst));
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.ted;
+  }
+
+  /**
+   * Returns the cached TreeDiff (TED and edit actions) between two ASTs.
+   *
+   * @param src     Source AST
+   * @param dst     Destination AST
+   * @param matcher Matcher strategy used to compute the TreeDiff
+   * @return Copy of the TreeDiff between the ASTs or null if it is not
+   * cached.
+   */
+  public synchronized TreeDiff getTreeDiff(String src, String dst,
+                                           MatcherStrategy matcher) {
+    Entry entry = entries.get(diffKey(src, dst, matcher));
+    if (entry == null || entry.diff == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.diff.copy();
+  }
+
+  // Store methods
+
+  /**
+   * Stores the TED between two ASTs.
+   *
+   * @param src Source AST
+   * @param dst Destination AST
+   * @param ted TED between the ASTs
+   */
+  public synchronized void putDistance(String src, String dst, int ted) {
+    entries.put(key(src, dst), new Entry(ted, null));
+  }
+
+  /**
+   * Stores the TreeDiff between two ASTs. Its TED is not returned by
+   * getDistance, since it is computed on the trees prepared for matching.
+   *
+   * @param src     Source AST
+   * @param dst     Destination AST
+   * @param matcher Matcher strategy used to compute the TreeDiff
+   * @param diff    TreeDiff between the ASTs
+   */
+  public synchronized void putTreeDiff(String src, String dst,
+                                       MatcherStrategy matcher, TreeDiff diff) {
+    entries.put(diffKey(src, dst, matcher), new Entry(diff.getTed(), diff.copy()));
+  }
+
+  /**
+   * Removes all entries and resets the statistics.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  // Getters
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Returns the fraction of lookups that found an entry.
+   *
+   * @return Hit rate between 0 and 1 (0 if there were no lookups)
+   */
+  public synchronized double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  // Auxiliary methods
+
+  private static String key(String src, String dst) {
+    return AstFingerprint.of(src) + ">" + AstFingerprint.of(dst);
+  }
+
+  /**
+   * Key of a TreeDiff. The budget is part of the key of ADAPTIVE, since it
+   * decides which matcher is used.
+   */
+  private static String diffKey(String src, String dst,
+                                MatcherStrategy matcher) {
+    String key = key(src, dst) + "|" + matcher.name();
+    return matcher == MatcherStrategy.ADAPTIVE ?
+            key + ":" + MatcherStrategy.getBudget() : key;
+  }
+
+  /**
+   * Cached difference between two ASTs.
+   */
+  private static class Entry {
+    private final int ted; // TED between the ASTs
+    private final TreeDiff diff; // TED and edit actions (null for distances)
+
+    private Entry(int ted, TreeDiff diff) {
+      this.ted = ted;
+      this.diff = diff;
+    }
+  }
+}
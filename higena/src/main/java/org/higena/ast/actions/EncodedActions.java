@@ -0,0 +1,168 @@
+package org.higena.ast.actions;
+
+import at.unisalzburg.dbresearch.apted.parser.BracketStringInputParser;
+import com.github.gumtreediff.tree.Tree;
+import org.higena.ast.AlloyAST;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact structured encoding of a list of edit actions, stored on the
+ * Derives edges instead of parsing the string representation of each
+ * action. The encoding has two parts:
+ * <ul>
+ *   <li>labels: table of the distinct strings used by the actions (types,
+ *   node labels, values and subtrees in bracket notation)</li>
+ *   <li>codes: five numbers per action: type id, node label id, parent
+ *   label id, position and value/subtree id. Ids are indexes in the labels
+ *   table and -1 means that the field is not used by the action.</li>
+ * </ul>
+ * Actions are decoded lazily: only the ones that are requested are turned
+ * into EditAction objects.
+ *
+ * @see EditAction
+ */
+public class EncodedActions {
+  private static final int STRIDE = 5; // Codes per action
+  private static final int TYPE = 0, NODE = 1, PARENT = 2, POSITION = 3,
+          EXTRA = 4; // Offsets of the fields of an action
+  private static final BracketStringInputParser parser =
+          new BracketStringInputParser(); // Parser for subtrees
+  private final List<Long> codes; // Codes of the actions
+  private final List<String> labels; // Strings used by the actions
+
+  public EncodedActions(List<Long> codes, List<String> labels) {
+    this.codes = codes;
+    this.labels = labels;
+  }
+
+  /**
+   * Encodes a list of edit actions.
+   *
+   * @param actions Actions to encode
+   * @return Encoded actions
+   */
+  public static EncodedActions encode(List<EditAction> actions) {
+    List<Long> codes = new ArrayList<>(actions.size() * STRIDE);
+    List<String> labels = new ArrayList<>();
+    Map<String, Integer> ids = new HashMap<>();
+
+    for (EditAction action : actions) {
+      Tree parent = action.getParent();
+      String extra = null;
+      if (isTreeAction(action.getType())) {
+        extra = action.getNode().toTreeString();
+      } else if (action.getType().equals("Update")) {
+        extra = action.getValue();
+      }
+      codes.add(labelId(action.getType(), ids, labels));
+      codes.add(labelId(action.getNode().getLabel(), ids, labels));
+      codes.add(parent != null ? labelId(parent.getLabel(), ids, labels) : -1L);
+      codes.add(parent != null ? (long) action.getPosition() : -1L);
+      codes.add(extra != null ? labelId(extra, ids, labels) : -1L);
+    }
+    return new EncodedActions(codes, labels);
+  }
+
+  /**
+   * Decodes the action at the given index.
+   *
+   * @param index Index of the action
+   * @return Decoded edit action
+   */
+  public EditAction decode(int index) {
+    String type = getType(index), extra = getLabel(index, EXTRA);
+    Tree node;
+    if (isTreeAction(type) && extra != null) {
+      node = new AlloyAST(parser.fromString(extra));
+    } else {
+      node = new AlloyAST(getNodeLabel(index));
+    }
+    String parent = getLabel(index, PARENT);
+    if (parent != null) {
+      int position = (int) (long) codes.get(index * STRIDE + POSITION);
+      return new EditAction(type, node, new AlloyAST(parent), position);
+    }
+    if (type.equals("Update")) {
+      return new EditAction(type, node, extra);
+    }
+    return new EditAction(type, node);
+  }
+
+  /**
+   * Decodes all actions.
+   *
+   * @return List of edit actions
+   */
+  public List<EditAction> decodeAll() {
+    List<EditAction> actions = new ArrayList<>(size());
+    for (int i = 0; i < size(); i++) {
+      actions.add(decode(i));
+    }
+    return actions;
+  }
+
+  /**
+   * Returns whether the action at the given index is a bad action for hint
+   * generation without decoding it.
+   *
+   * @param index Index of the action
+   * @return True if the action is a bad action, false otherwise.
+   * @see EditAction#isBadAction()
+   */
+  public boolean isBadAction(int index) {
+    return EditAction.isBadAction(getType(index), getNodeLabel(index));
+  }
+
+  // Getters
+
+  public int size() {
+    return codes.size() / STRIDE;
+  }
+
+  public String getType(int index) {
+    return getLabel(index, TYPE);
+  }
+
+  public String getNodeLabel(int index) {
+    return getLabel(index, NODE);
+  }
+
+  public List<Long> getCodes() {
+    return codes;
+  }
+
+  public List<String> getLabels() {
+    return labels;
+  }
+
+  // Auxiliary methods
+
+  private String getLabel(int index, int field) {
+    long id = codes.get(index * STRIDE + field);
+    return id < 0 ? null : labels.get((int) id);
+  }
+
+  private static long labelId(String label, Map<String, Integer> ids,
+                              List<String> labels) {
+    return ids.computeIfAbsent(label, l -> {
+      labels.add(l);
+      return labels.size() - 1;
+    });
+  }
+
+  private static boolean isTreeAction(String type) {
+    switch (type) {
+      case "TreeAddition":
+      case "Move":
+      case "TreeInsert":
+      case "TreeDelete":
+        return true;
+      default:
+        return false;
+    }
+  }
+}
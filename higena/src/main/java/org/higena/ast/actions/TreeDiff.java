@@ -1,43 +1,128 @@
-package org.higena.ast.actions;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * This class contains the differences between two trees,
- * namely the TED (tree edit distance) and the edit actions that
- * transform one tree into the other.
- *
- * @see EditAction
- */
-public class TreeDiff {
-  private final int ted; // tree edit distance (TED)
-  private final List<EditAction> actions; // edit actions that transform one tree into the other
-
-  public TreeDiff(int ted) {
-    this.ted = ted;
-    this.actions = new ArrayList<>();
-  }
-
-  // Add actions methods
-
-  public void addAction(EditAction action) {
-    this.actions.add(action);
-  }
-
-  public void addAllActions(List<String> actions) {
-    for (String action : actions) {
-      this.actions.add(EditAction.fromString(action));
-    }
-  }
-
-  // Getters
-
-  public int getTed() {
-    return ted;
-  }
-
-  public List<EditAction> getActions() {
-    return actions;
-  }
-}
+package org.higena.ast.actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class contains the differences between two trees,
+ * namely the TED (tree edit distance) and the edit actions that
+ * transform one tree into the other. The actions may be kept encoded and
+ * decoded only when they are needed.
+ *
+ * @see EditAction
+ * @see EncodedActions
+ */
+public class TreeDiff {
+  private final int ted; // tree edit distance (TED)
+  private List<EditAction> actions; // edit actions that transform one tree into the other
+  private EncodedActions encoded; // encoded actions (null if not encoded yet)
+
+  public TreeDiff(int ted) {
+    this.ted = ted;
+    this.actions = new ArrayList<>();
+  }
+
+  public TreeDiff(int ted, EncodedActions encoded) {
+    this.ted = ted;
+    this.encoded = encoded;
+  }
+
+  // Add actions methods
+
+  public void addAction(EditAction action) {
+    getActions().add(action);
+    encoded = null;
+  }
+
+  public void addAllActions(List<String> actions) {
+    for (String action : actions) {
+      addAction(EditAction.fromString(action));
+    }
+  }
+
+  // Getters
+
+  public int getTed() {
+    return ted;
+  }
+
+  public List<EditAction> getActions() {
+    if (actions == null) {
+      actions = encoded.decodeAll();
+    }
+    return actions;
+  }
+
+  /**
+   * Returns the edit actions as stored in the operations property of the
+   * Derives edges.
+   *
+   * @return String representation of each action without quotes
+   */
+  public List<String> getOperations() {
+    List<String> operations = new ArrayList<>();
+    for (EditAction action : getActions()) {
+      String str = action.toString();
+      operations.add(str.substring(1, str.length() - 1));
+    }
+    return operations;
+  }
+
+  /**
+   * Returns the action used to generate a hint: the first action that is
+   * not a bad action or the first action if all of them are bad. If the
+   * actions are encoded, only the returned action is decoded.
+   *
+   * @return Action used to generate a hint or null if there are no actions
+   * @see EditAction#isBadAction()
+   */
+  public EditAction getHintAction() {
+    if (actions == null) {
+      if (encoded.size() == 0) {
+        return null;
+      }
+      for (int i = 0; i < encoded.size(); i++) {
+        if (!encoded.isBadAction(i)) {
+          return encoded.decode(i);
+        }
+      }
+      return encoded.decode(0);
+    }
+    if (actions.isEmpty()) {
+      return null;
+    }
+    for (EditAction action : actions) {
+      if (!action.isBadAction()) {
+        return action;
+      }
+    }
+    return actions.get(0);
+  }
+
+  /**
+   * Returns a copy of this difference with its own list of actions, so that
+   * adding actions to the copy does not change this difference. The actions
+   * themselves are shared.
+   *
+   * @return Copy of this difference
+   */
+  public TreeDiff copy() {
+    TreeDiff copy = new TreeDiff(ted, encoded);
+    if (actions != null) {
+      copy.actions = new ArrayList<>(actions);
+    }
+    return copy;
+  }
+
+  /**
+   * Returns the encoded representation of the actions.
+   *
+   * @return Encoded actions
+   */
+  public EncodedActions getEncodedActions() {
+    if (encoded == null) {
+      encoded = EncodedActions.encode(actions);
+    }
+    return encoded;
+  }
+}
@@ -0,0 +1,406 @@
+package org.higena.graph;
+
+import at.unisalzburg.dbresearch.apted.node.Node;
+import at.unisalzburg.dbresearch.apted.node.StringNodeData;
+import at.unisalzburg.dbresearch.apted.parser.BracketStringInputParser;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory A* search over the Derives edges of a predicate graph weighted
+ * by TED. It finds the same paths as the Dijkstra search on the "ted"
+ * projection (see Db#runDijkstra) but expands fewer nodes.
+ * <p>
+ * The heuristic of a node is a lower bound of the TED to its nearest Correct
+ * node: the bag distance between the labels of the two ASTs, i.e. the size
+ * of the larger AST minus the number of labels they have in common. Each
+ * edit operation changes the bag distance by at most 1, so the bag distance
+ * is a lower bound of the TED. The bag distance obeys the triangle
+ * inequality, so the heuristic is consistent as long as the weight of every
+ * edge is at least the bag distance between its nodes: nodes are expanded
+ * at most once and Correct nodes are reached in order of path cost. This
+ * holds for weights that are exact TEDs (see TED#computeTreeDiff), but not
+ * for graphs written with other weights (e.g. lengths of edit scripts). The
+ * weight of each edge is checked when it is added and, once an edge breaks
+ * the condition, the search falls back to the Dijkstra's algorithm (no
+ * heuristic) until it is loaded again.
+ * <p>
+ * Searches are shared by all Db instances connected to the same database.
+ * They are loaded on first use and kept up to date with the edges added by
+ * Db#addEdge and Db#writeBatch. At most MAX_SEARCHES are kept; the least
+ * recently used one is discarded when another database is loaded.
+ */
+public class AStarSearch {
+  public static boolean ENABLED = true; // False to use Dijkstra for TED hints
+  public static int MAX_SEARCHES = 16; // Max. databases with a loaded search
+  private static final Map<String, AStarSearch> searches =
+          new ConcurrentHashMap<>(); // Searches by database name
+  private static final BracketStringInputParser parser =
+          new BracketStringInputParser(); // Parser for ASTs
+  private final Map<Long, List<Edge>> edges = new HashMap<>(); // Outgoing edges by node id
+  private final Map<Long, String> asts = new HashMap<>(); // ASTs by node id
+  private final Map<String, Long> ids = new HashMap<>(); // Node ids by AST
+  private final Set<Long> correct = new HashSet<>(); // IDs of the Correct nodes
+  private final List<LabelBag> solutions = new ArrayList<>(); // Labels of the Correct nodes
+  private final Map<Long, Double> heuristics = new HashMap<>(); // Cached heuristics
+  private boolean consistent = true; // False if an edge is lighter than the heuristic allows
+  private volatile long lastUsed = System.nanoTime(); // Time of the last lookup
+
+  /**
+   * Returns the search of the database the given Db is connected to. If the
+   * search does not exist yet, the graph is loaded from the database.
+   *
+   * @param db Database connection
+   * @return Search over the graph of the database
+   */
+  public static AStarSearch of(Db db) {
+    AStarSearch search = searches.computeIfAbsent(db.getName(), name -> load(db));
+    search.lastUsed = System.nanoTime();
+    if (searches.size() > MAX_SEARCHES) {
+      evictLeastRecentlyUsed();
+    }
+    return search;
+  }
+
+  /**
+   * Discards the search of the database the given Db is connected to. It is
+   * loaded again on next use.
+   *
+   * @param db Database connection
+   */
+  public static void invalidate(Db db) {
+    searches.remove(db.getName());
+  }
+
+  /**
+   * Discards the searches of all databases.
+   */
+  public static void clear() {
+    searches.clear();
+  }
+
+  /**
+   * Adds an edge to the search of the database if it is loaded.
+   *
+   * @param db  Database connection
+   * @param src Source node of the edge
+   * @param dst Target node of the edge
+   * @param ted Weight of the edge
+   */
+  public static void addEdge(Db db, SubmissionNode src, SubmissionNode dst,
+                             double ted) {
+    AStarSearch search = searches.get(db.getName());
+    if (search != null) {
+      search.addNode(src.getId(), src.getAst(), src.hasLabel("Correct"));
+      search.addNode(dst.getId(), dst.getAst(), dst.hasLabel("Correct"));
+      search.addEdge(src.getId(), dst.getId(), ted);
+    }
+  }
+
+  /**
+   * Adds the Derives edges between the given AST fingerprints to the search
+   * of the database if it is loaded. Used after a batch of edges is written,
+   * since the ids of their nodes are only known to the database.
+   *
+   * @param db    Database connection
+   * @param edges Edges with src and dst (AST fingerprints)
+   */
+  public static void addEdges(Db db, List<Map<String, Object>> edges) {
+    AStarSearch search = searches.get(db.getName());
+    if (search == null || edges.isEmpty()) {
+      return;
+    }
+    Result rels = db.runQuery(
+            "UNWIND $rows AS row\n" +
+                    "MATCH (n1:Submission {astHash: row.src})-[r:Derives]->" +
+                    "(n2:Submission {astHash: row.dst})\n" +
+                    "RETURN n1.id AS src, n1.ast AS srcAst, n1:Correct AS srcCorrect,\n" +
+                    "    n2.id AS dst, n2.ast AS dstAst, n2:Correct AS dstCorrect,\n" +
+                    "    r.ted AS ted", Map.of("rows", edges));
+    while (rels.hasNext()) {
+      Record rec = rels.next();
+      long src = rec.get("src").asLong(), dst = rec.get("dst").asLong();
+      search.addNode(src, rec.get("srcAst").asString(""),
+              rec.get("srcCorrect").asBoolean());
+      search.addNode(dst, rec.get("dstAst").asString(""),
+              rec.get("dstCorrect").asBoolean());
+      search.addEdge(src, dst, rec.get("ted").asDouble(0));
+    }
+  }
+
+  /**
+   * Loads all Submission nodes and Derives edges of the database.
+   *
+   * @param db Database connection
+   * @return Search over the graph of the database
+   */
+  private static AStarSearch load(Db db) {
+    AStarSearch search = new AStarSearch();
+    Result nodes = db.runQuery(
+            "MATCH (n:Submission)\n" +
+                    "RETURN n.id AS id, n.ast AS ast, n:Correct AS correct");
+    while (nodes.hasNext()) {
+      Record rec = nodes.next();
+      search.addNode(rec.get("id").asLong(), rec.get("ast").asString(""),
+              rec.get("correct").asBoolean());
+    }
+    Result rels = db.runQuery(
+            "MATCH (n1:Submission)-[r:Derives]->(n2:Submission)\n" +
+                    "RETURN n1.id AS src, n2.id AS dst, r.ted AS ted");
+    while (rels.hasNext()) {
+      Record rec = rels.next();
+      search.addEdge(rec.get("src").asLong(), rec.get("dst").asLong(),
+              rec.get("ted").asDouble(0));
+    }
+    return search;
+  }
+
+  /**
+   * Adds a node to the graph if it does not exist.
+   *
+   * @param id      ID of the node
+   * @param ast     AST of the node
+   * @param correct True if the node is a Correct node
+   */
+  public synchronized void addNode(long id, String ast, boolean correct) {
+    if (asts.putIfAbsent(id, ast) != null) {
+      return;
+    }
+    ids.putIfAbsent(ast, id);
+    if (correct) {
+      this.correct.add(id);
+      solutions.add(new LabelBag(ast));
+      heuristics.clear(); // Nearest solution may have changed
+    }
+  }
+
+  /**
+   * Adds an edge to the graph. Both nodes must have been added. If the
+   * weight is lower than the heuristic allows, the search stops using it.
+   *
+   * @param src ID of the source node
+   * @param dst ID of the target node
+   * @param ted Weight of the edge
+   */
+  public synchronized void addEdge(long src, long dst, double ted) {
+    List<Edge> out = edges.computeIfAbsent(src, id -> new ArrayList<>());
+    for (Edge edge : out) {
+      if (edge.target == dst) { // Edges are created with MERGE
+        return;
+      }
+    }
+    out.add(new Edge(dst, ted));
+    if (consistent && ted < getMinWeight(src, dst)) {
+      consistent = false;
+    }
+  }
+
+  /**
+   * Finds the shortest paths from the source node to the k nearest Correct
+   * nodes other than the source node.
+   *
+   * @param sourceId ID of the source node
+   * @param k        Maximum number of paths
+   * @return Up to k paths ordered by cost
+   */
+  public synchronized List<Path> search(long sourceId, int k) {
+    List<Path> paths = new ArrayList<>();
+    if (!asts.containsKey(sourceId)) {
+      return paths;
+    }
+    PathSearch<Long, Edge> search = new PathSearch<>() {
+      @Override
+      protected Iterable<Edge> getEdges(Long node) {
+        return edges.getOrDefault(node, Collections.emptyList());
+      }
+
+      @Override
+      protected Long getTarget(Edge edge) {
+        return edge.target;
+      }
+
+      @Override
+      protected double getWeight(Edge edge) {
+        return edge.ted;
+      }
+
+      @Override
+      protected boolean isGoal(Long node) {
+        return correct.contains(node);
+      }
+
+      @Override
+      protected double estimate(Long node) {
+        return consistent ? heuristic(node) : 0;
+      }
+    };
+    for (PathSearch.Path<Long, Edge> path : search.search(sourceId, k)) {
+      paths.add(new Path(path));
+    }
+    return paths;
+  }
+
+  /**
+   * Returns the id of the node with the given AST.
+   *
+   * @param ast AST of the node
+   * @return ID of the node or null if there is no node with the AST
+   */
+  public synchronized Long getNodeId(String ast) {
+    return ids.get(ast);
+  }
+
+  public synchronized int size() {
+    return asts.size();
+  }
+
+  /**
+   * Returns true if the heuristic is consistent with the weights of all
+   * edges, i.e. the search runs as A* and not as the Dijkstra's algorithm.
+   */
+  public synchronized boolean isConsistent() {
+    return consistent;
+  }
+
+  // Auxiliary methods
+
+  /**
+   * Discards the search that was used least recently.
+   */
+  private static void evictLeastRecentlyUsed() {
+    Map.Entry<String, AStarSearch> oldest = null;
+    for (Map.Entry<String, AStarSearch> entry : searches.entrySet()) {
+      if (oldest == null || entry.getValue().lastUsed - oldest.getValue().lastUsed < 0) {
+        oldest = entry;
+      }
+    }
+    if (oldest != null) {
+      searches.remove(oldest.getKey(), oldest.getValue());
+    }
+  }
+
+  /**
+   * Returns a lower bound of the TED between the AST of the node and its
+   * nearest Correct node. Nodes that were not added (only reached through
+   * an edge) get 0, which is always a lower bound, and are not cached.
+   */
+  private double heuristic(long id) {
+    if (correct.contains(id)) {
+      return 0;
+    }
+    if (!asts.containsKey(id)) {
+      return 0;
+    }
+    return heuristics.computeIfAbsent(id, key -> {
+      LabelBag bag = new LabelBag(asts.get(key));
+      int best = Integer.MAX_VALUE;
+      for (LabelBag solution : solutions) {
+        if (Math.abs(bag.size - solution.size) < best) {
+          best = Math.min(best, bag.distance(solution));
+        }
+      }
+      return best == Integer.MAX_VALUE ? 0.0 : best;
+    });
+  }
+
+  /**
+   * Returns the lowest weight of an edge between the given nodes that keeps
+   * the heuristic consistent: the bag distance between their ASTs. If the
+   * target was not added, its heuristic is 0, so the weight must be at
+   * least the heuristic of the source. If the source was not added, its
+   * heuristic may grow once it is, so no weight is safe.
+   */
+  private double getMinWeight(long src, long dst) {
+    if (!asts.containsKey(src)) {
+      return Double.MAX_VALUE;
+    }
+    if (!asts.containsKey(dst)) {
+      return heuristic(src);
+    }
+    return new LabelBag(asts.get(src)).distance(new LabelBag(asts.get(dst)));
+  }
+
+  /**
+   * Outgoing edge of a node.
+   */
+  private static class Edge {
+    private final long target; // ID of the target node
+    private final double ted; // Weight of the edge
+
+    Edge(long target, double ted) {
+      this.target = target;
+      this.ted = ted;
+    }
+  }
+
+  /**
+   * Multiset of the labels of an AST.
+   */
+  private static class LabelBag {
+    private final Map<String, Integer> counts = new HashMap<>(); // Occurrences by label
+    private int size = 0; // Number of nodes of the AST
+
+    LabelBag(String ast) {
+      if (!ast.isEmpty()) {
+        addLabels(parser.fromString(ast));
+      }
+    }
+
+    private void addLabels(Node<StringNodeData> node) {
+      counts.merge(node.getNodeData().getLabel(), 1, Integer::sum);
+      size++;
+      for (Node<StringNodeData> child : node.getChildren()) {
+        addLabels(child);
+      }
+    }
+
+    /**
+     * Returns the size of the larger AST minus the number of labels the
+     * ASTs have in common.
+     */
+    int distance(LabelBag other) {
+      int common = 0;
+      for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+        common += Math.min(entry.getValue(),
+                other.counts.getOrDefault(entry.getKey(), 0));
+      }
+      return Math.max(size, other.size) - common;
+    }
+  }
+
+  /**
+   * Shortest path from the source node to a Correct node.
+   */
+  public static class Path {
+    private final List<Long> nodes; // IDs of the nodes
+    private final double cost; // Sum of the weights of the edges
+    private final int expanded; // Nodes expanded until the path was found
+
+    Path(PathSearch.Path<Long, Edge> path) {
+      this.nodes = path.getNodes();
+      this.cost = path.getCost();
+      this.expanded = path.getExpanded();
+    }
+
+    public List<Long> getNodes() {
+      return nodes;
+    }
+
+    public double getCost() {
+      return cost;
+    }
+
+    public int getExpanded() {
+      return expanded;
+    }
+  }
+}
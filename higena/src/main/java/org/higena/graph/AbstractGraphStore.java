@@ -0,0 +1,156 @@
+package org.higena.graph;
+
+import org.higena.ast.TED;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Base of the stores that keep a copy of the graph in the process
+ * (MemoryGraphStore and OffHeapGraphStore). It implements what does not
+ * depend on how the graph is kept: loading it from a database, adding
+ * Incorrect nodes with the next free id, adding edges with the tree
+ * difference computed outside the lock and comparing the candidates of
+ * getMostSimilarNode.
+ */
+public abstract class AbstractGraphStore implements HintGraphStore {
+  private final String challenge; // Challenge of the graph
+  private final String predicate; // Predicate of the graph
+  private long nextId = 0; // ID of the next node added by addIncorrectNode
+
+  protected AbstractGraphStore(String challenge, String predicate) {
+    this.challenge = challenge;
+    this.predicate = predicate;
+  }
+
+  /**
+   * Loads all Submission nodes and Derives edges of the database into the
+   * given empty store.
+   *
+   * @param db    Database connection
+   * @param store Store to fill
+   * @return The given store
+   */
+  protected static <S extends AbstractGraphStore> S load(Db db, S store) {
+    Result nodes = db.runQuery(
+            "MATCH (n:Submission)\n" +
+                    "RETURN " + SubmissionNode.projection("n") + " AS node");
+    while (nodes.hasNext()) {
+      store.addNode(SubmissionNode.fromValue(nodes.next().get("node")));
+    }
+    Result rels = db.runQuery(
+            "MATCH (n1:Submission)-[r:Derives]->(n2:Submission)\n" +
+                    "RETURN n1.id AS srcId, n1.ast AS src,\n" +
+                    "    n2.id AS dstId, n2.ast AS dst, r AS edge");
+    while (rels.hasNext()) {
+      Record rec = rels.next();
+      store.putEdge(rec.get("srcId").asLong(), rec.get("src").asString(""),
+              rec.get("dstId").asLong(), rec.get("dst").asString(""),
+              SubmissionEdge.fromRelationship(rec.get("edge").asRelationship()));
+    }
+    return store;
+  }
+
+  /**
+   * Adds a node to the graph if there is no node with the same AST.
+   *
+   * @param node Node to add
+   * @return The added node or the existing node with the same AST
+   */
+  public abstract SubmissionNode addNode(SubmissionNode node);
+
+  /**
+   * Adds an edge to the graph if there is no edge between the nodes. Both
+   * nodes must have been added. Stores find the nodes by id or by AST.
+   *
+   * @return The added edge or the existing edge
+   */
+  protected abstract SubmissionEdge putEdge(long srcId, String srcAST,
+                                            long dstId, String dstAST,
+                                            SubmissionEdge edge);
+
+  /**
+   * Returns the edge between the given nodes. Called with the lock held.
+   *
+   * @return Existing edge or null
+   */
+  protected abstract SubmissionEdge findEdge(SubmissionNode src,
+                                             SubmissionNode dst);
+
+  @Override
+  public synchronized SubmissionNode addIncorrectNode(String expr, String ast,
+                                                     String code,
+                                                     double popularity) {
+    return addNode(new SubmissionNode(nextId, ast, expr, popularity,
+            List.of("Submission", "Incorrect")));
+  }
+
+  @Override
+  public SubmissionEdge addEdge(SubmissionNode src, SubmissionNode dst) {
+    synchronized (this) {
+      SubmissionEdge existing = findEdge(src, dst);
+      if (existing != null) {
+        return existing;
+      }
+    }
+    // Compute the difference outside the lock
+    SubmissionEdge edge = SubmissionEdge.create(
+            new TED().computeTreeDiff(src.getAst(), dst.getAst()), dst);
+    return putEdge(src.getId(), src.getAst(), dst.getId(), dst.getAst(), edge);
+  }
+
+  @Override
+  public String getChallenge() {
+    return challenge;
+  }
+
+  @Override
+  public String getPredicate() {
+    return predicate;
+  }
+
+  // Auxiliary methods
+
+  /**
+   * Records the id of an added node so addIncorrectNode does not reuse it.
+   * Called with the lock held.
+   */
+  protected void reserveId(long id) {
+    nextId = Math.max(nextId, id + 1);
+  }
+
+  /**
+   * Compares the candidates of getMostSimilarNode in the given order (most
+   * popular first) like Db.getMostSimilarNode: nodes with the same AST are
+   * skipped and the search stops upon finding a TED of 1 or when the
+   * deadline has passed. Only the ASTs of the compared candidates are read.
+   *
+   * @param ast        AST to compare with
+   * @param candidates Number of candidates
+   * @param getAst     AST of the candidate at the given position
+   * @param deadline   Time limit of the search
+   * @return Position of the most similar candidate or -1 if there is none
+   */
+  protected static int findMostSimilar(String ast, int candidates,
+                                       IntFunction<String> getAst,
+                                       Deadline deadline) {
+    int minDist = Integer.MAX_VALUE; // Minimum TED found
+    int similar = -1; // Position of the most similar candidate found
+    for (int i = 0; i < candidates; i++) {
+      if (similar != -1 && deadline.check()) {
+        break;
+      }
+      int dist = TED.computeEditDistance(ast, getAst.apply(i), minDist - 1);
+      if (dist != 0 && dist < minDist) {
+        minDist = dist;
+        similar = i;
+        if (minDist == 1) {
+          break;
+        }
+      }
+    }
+    return similar;
+  }
+}
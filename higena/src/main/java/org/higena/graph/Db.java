@@ -1,688 +1,1388 @@
-package org.higena.graph;
-
-import org.higena.ast.TED;
-import org.higena.ast.actions.TreeDiff;
-import org.neo4j.driver.Record;
-import org.neo4j.driver.*;
-import org.neo4j.driver.exceptions.ClientException;
-import org.neo4j.driver.exceptions.NoSuchRecordException;
-import org.neo4j.driver.summary.SummaryCounters;
-import org.neo4j.driver.types.Node;
-import org.neo4j.driver.types.Relationship;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * Class that handles the database connection and operations.
- */
-public class Db implements AutoCloseable {
-  private final Driver driver; // Neo4j driver
-  public final String challenge; // Challenge name
-  public final String predicate; // Predicate name
-  private Session session; // Neo4j session
-  private String name; // Database name
-
-  public Db(String uri, String user, String password, String challenge, String predicate) {
-    this(uri, user, password, "neo4j", challenge, predicate);
-  }
-
-  public Db(String uri, String user, String password, String databaseName, String challenge, String predicate) {
-    this.name = databaseName;
-    this.challenge = challenge;
-    this.predicate = predicate;
-    driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password)); // Create driver
-    session = driver.session(SessionConfig.forDatabase(name)); // Connect to the database
-  }
-
-  /**
-   * Performs a sequence of actions to prepare the database.
-   * 1. Cleans the database by deleting all nodes and edges and projections.
-   * 2. Adds unique constraints to avoid duplicate IDs.
-   * 3. Adds nodes to the database.
-   * 4. Add edges to the database.
-   * 5. Adds the correct and incorrect labels to the nodes.
-   * 6. Deletes the derivationOf and sat properties from the nodes.
-   * 7. Adds popularity to the edges.
-   * 8. Adds nodes popularity by aggregating equivalent nodes.
-   * 8. Adds the TED and edit operations to the edges.
-   * 9. Adds the Poisson distribution to the edges.
-   */
-  public void setup() throws ClientException {
-    deleteAllNodes();
-    deleteAllProjections();
-    addUniqueConstraints();
-    addSubmissionNodes();
-    addDerivationEdges();
-    addSubmissionLabels();
-    deleteProperty("derivationOf");
-    deleteProperty("sat");
-    addEdgesPopularity();
-    aggregateEquivNodes();
-    addTreeDiffToEdges();
-    addNodePoissonToEdges();
-  }
-
-  // Algorithms
-
-  /**
-   * Runs the Dijkstra's algorithm using the given weight property to find the
-   * shortest path between the source node and a Correct node.
-   *
-   * @param sourceId       ID of the source node.
-   * @param weightProperty Property to use as weight.
-   * @return Result of the dijkstra algorithm. Contains the index, source
-   * node ID, target node ID, total cost, node IDs in the path, costs and
-   * sequence of nodes in the path.
-   */
-  public Result runDijkstra(String sourceId, String weightProperty) {
-    String projectionName = "dijkstra|" + weightProperty;
-    // Update projection if it exists
-    if (hasProjection(projectionName)) deleteProjection(projectionName);
-    addProjection(projectionName, "Submission", "Derives", weightProperty);
-    // Run Dijkstra's algorithm
-    return runQuery(String.format(
-            "MATCH (source:Submission {id: \"%s\"}), (target:Correct)\n" +
-                    "WHERE source.id <> target.id\n" +
-                    "CALL gds.shortestPath.dijkstra.stream('%s', {\n" +
-                    "    sourceNode: source,\n" +
-                    "    targetNode: target,\n" +
-                    "    relationshipWeightProperty: '%s'\n" +
-                    "})\n" +
-                    "YIELD totalCost, path\n" +
-                    "RETURN\n" +
-                    "    totalCost,\n" +
-                    "    nodes(path) AS path,\n" +
-                    "    relationships(path) AS rels\n" +
-                    "ORDER BY totalCost\n" +
-                    "LIMIT 1",
-            sourceId,
-            projectionName,
-            weightProperty));
-  }
-
-  /**
-   * Creates edges between nodes with the same property. Then, runs the
-   * Weakly Connected Components algorithm to find the connected components
-   * of the graph. Each node gets a componentId property with the id of the
-   * component it belongs to.
-   */
-  private void aggregateEquivNodes() {
-    String projectionName = "equalGraph", relName = "EQUAL", componentProperty = "componentId";
-    // Create edges between nodes with the same property
-    runQuery(String.format(
-            "MATCH (n:Submission), (s:Submission)\n" +
-                    "WHERE n.id <> s.id AND n.ast = s.ast\n" +
-                    "MERGE (n)-[:%s]-(s)", relName));
-    // Check if graph already exists and create it if it doesn't
-    if (!hasProjection(projectionName)) {
-      addProjection(projectionName, relName);
-    }
-    // Run Weakly Connected Components algorithm
-    try {
-      runConnectedComponents(projectionName, componentProperty);
-      deleteProjection(projectionName);
-      deleteEdges(relName);
-      // Get components
-      List<Record> components = getDistinctPropertyValues(componentProperty).list();
-      addNodesPopularity(components);
-      // Aggregate nodes: delete equivalent nodes except for one
-      deleteEquivNodes(components);
-    } catch (ClientException e) {
-      System.out.println("No equivalent nodes found so no aggregation was done.");
-    }
-  }
-
-  // ADD Methods
-
-  /**
-   * Creates a relationship Derives between the given nodes. Each edge has a
-   * TED property with the TED between the nodes and an operations property
-   * with the edit operations needed to transform the source node into the
-   * target node. Each edge has also a popularity property with the number of
-   * times the edge appears in the database, a poisson property with the
-   * Poisson distribution of the edge's popularity and a dstPoisson property
-   * with the Poisson distribution of the target node's popularity.
-   *
-   * @param n1 Node 1
-   * @param n2 Node 2
-   * @return Relationship created.
-   */
-  public Relationship addEdge(Node n1, Node n2) {
-    String ast1 = n1.get("ast").asString(), ast2 = n2.get("ast").asString();
-    TED ted = new TED();
-    TreeDiff diff = ted.computeTreeDiff(ast1, ast2);
-
-    String query = String.format(
-            "MATCH (n1:Submission {id: '%s'}), (n2:Submission {id: '%s'})\n" +
-                    "MERGE (n1)-[r:Derives {\n" +
-                    "    id: randomUUID(),\n" +
-                    "    ted: %d,\n" +
-                    "    operations: %s,\n" +
-                    "    popularity: 0,\n" +
-                    "    poisson: 1.5,\n" +
-                    "    dstPoisson:\n" +
-                    "    CASE\n" +
-                    "        WHEN n2.popularity = 0 THEN 1.5\n" +
-                    "        ELSE 1.0 / n2.popularity\n" +
-                    "    END\n" +
-                    "}]->(n2)\n" +
-                    "RETURN r AS edge", n1.get("id").asString(), n2.get("id").asString(), diff.getTed(), diff.getActions());
-
-    return runQuery(query).single().get(0).asRelationship();
-  }
-
-  /**
-   * Creates an incorrect node in the graph with the given properties.
-   * Popularity is set to 1.0.
-   *
-   * @param expr Expression of the node
-   * @param ast  AST of the node
-   * @return The created node.
-   */
-  public Node addIncorrectNode(String expr, String ast, String code) {
-    String query =
-            "CREATE (n:Submission:Incorrect {id: randomUUID(),\n" +
-                    "    code: \"" + code + "\",\n" +
-                    "    ast: \"" + ast + "\",\n" +
-                    "    expr: \"" + expr + "\",\n" +
-                    "    popularity: 1.0})\n" +
-                    "RETURN n AS node";
-
-    Result res = runQuery(query);
-
-    return res.single().get(0).asNode();
-  }
-
-  /**
-   * Adds a property to all Derives edges called dstPoisson with the value
-   * 1.0 / popularity of the destination node for calculating the poisson path.
-   */
-  private void addNodePoissonToEdges() {
-    runQuery(
-            "MATCH ()-[r:Derives]->(dst:Submission)\n" +
-                    "SET r.dstPoisson = \n" +
-                    "CASE\n" +
-                    "    WHEN dst.popularity = 0 THEN 1.5\n" +
-                    "    ELSE 1.0 / dst.popularity\n" +
-                    "END");
-    System.out.println("Added node popularity to edges");
-  }
-
-  /**
-   * Adds TED property and operations property to all Derives edges.
-   * TED is the edit distance between the source and destination nodes.
-   * Operations is the list of edit operations needed to transform the source
-   * node into the destination node.
-   */
-  private void addTreeDiffToEdges() {
-    // Get all edges and its nodes
-    Result res = runQuery(
-            "MATCH (src:Submission)-[e:Derives]->(dst:Submission)\n" +
-                    "RETURN src.ast AS src, dst.ast AS dst, e.id AS edgeID");
-    TED ted = new TED();
-
-    while (res.hasNext()) {
-      // Get source and destination nodes of the edge + edge itself
-      Record rec = res.next();
-      String srcAST = rec.get("src").asString(), dstAST = rec.get("dst").asString(), edge = rec.get("edgeID").asString();
-
-      // Compute tree differences (edit distance and edits)
-      TreeDiff diff = ted.computeTreeDiff(srcAST, dstAST);
-      // Update edge
-      runQuery(String.format(
-              "MATCH ()-[e:Derives]->()\n" +
-                      "WHERE e.id = '%s'\n" +
-                      "SET e.ted = %d\n" +
-                      "SET e.operations = %s", edge, diff.getTed(), diff.getActions()));
-    }
-  }
-
-  /**
-   * Creates a new database with the given name if it does not exist.
-   * Switches to the new database by closing the current session and opening
-   * a new one with the correct configuration.
-   *
-   * @param databaseName Name of the database to create.
-   */
-  public void addDb(String databaseName) {
-    // Create database
-    runQuery("CREATE DATABASE " + databaseName + " IF NOT EXISTS");
-
-    // Switch to new database
-    this.name = databaseName;
-    session.close();
-    session = driver.session(SessionConfig.forDatabase(name));
-  }
-
-  /**
-   * Adds constraint to ensure that each Submission node has a unique id
-   * property.
-   */
-  public void addUniqueConstraints() {
-    Result res = runQuery("CREATE CONSTRAINT UniqueSubmission IF NOT EXISTS FOR " +
-            "(s:Submission) REQUIRE s.id IS UNIQUE");
-    System.out.println("Added " + res.consume().counters().constraintsAdded() + " unique node.id constraint(s).");
-  }
-
-  /**
-   * Loads nodes from a csv file with Alloy4Fun submissions into the database.
-   * The csv file must have the following columns: _id, code,
-   * derivationOf, sat, expr, ast. The derivationOf, expr and ast columns
-   * can be empty. The id column must be unique. The sat column must be
-   * either 0 or 1.
-   */
-  private void addSubmissionNodes() throws ClientException {
-    Result res = runQuery(
-            "LOAD CSV WITH HEADERS FROM 'file:///prepared_data/" + this.challenge + "/" + this.predicate + ".csv' AS row\n" +
-                    "MERGE (s:Submission {\n" +
-                    "  id: row._id,\n" +
-                    "  code: row.code,\n" +
-                    "  derivationOf: CASE WHEN row.derivationOf IS NULL THEN '' ELSE row.derivationOf END,\n" +
-                    "  sat: toInteger(row.sat),\n" +
-                    "  expr: CASE WHEN row.expr IS NULL THEN '' ELSE row.expr END,\n" +
-                    "  ast: CASE WHEN row.ast IS NULL THEN '' ELSE row.ast END\n" +
-                    "})\n" +
-                    "RETURN count(s) AS count");
-
-    System.out.println("Created " + res.consume().counters().nodesCreated() + " nodes.");
-  }
-
-  /**
-   * Creates directed Derives edges between nodes where the derivationOf
-   * property of the source node matches the id property of the target node.
-   */
-  private void addDerivationEdges() {
-    Result res = runQuery(
-            "MATCH (s:Submission), (d:Submission)\n" +
-                    "WHERE s.id = d.derivationOf AND s.id <> d.id\n" +
-                    "MERGE (s)-[r:Derives {id: randomUUID()}]->(d)\n" +
-                    "RETURN count(r) AS count");
-
-    System.out.println("Created " + res.consume().counters().relationshipsCreated() + " Derives edges.");
-  }
-
-  /**
-   * Adds a popularity property to all Derives edges. Popularity is the number
-   * of other edges that have the same source and destination nodes. Also
-   * adds a poisson property to all edges. Poisson is 1.0 / popularity.
-   */
-  private void addEdgesPopularity() {
-    runQuery(
-            "MATCH (n:Submission)-[r:Derives]->(s:Submission)\n" +
-                    "CALL {\n" +
-                    "    WITH n, r, s\n" +
-                    "    MATCH (p:Submission)-[e:Derives]->(t:Submission)\n" +
-                    "    WHERE n.ast = p.ast AND s.ast = t.ast AND r.id <> e.id\n" +
-                    "    RETURN count(e) AS popularity\n" +
-                    "}\n" +
-                    "SET r.popularity = popularity + 1\n" +
-                    "SET r.poisson =\n" +
-                    "CASE\n" +
-                    "    WHEN r.popularity = 0 THEN 1.5\n" +
-                    "    ELSE 1.0 / r.popularity\n" +
-                    "END"
-    );
-
-    System.out.println("Added popularity property to edges.");
-  }
-
-
-  /**
-   * Adds Correct and Incorrect labels to nodes based on the sat property
-   * (0 = Correct, 1 = Incorrect).
-   */
-  private void addSubmissionLabels() {
-    String query =
-            "MATCH (s:Submission {sat: %d})\n" +
-                    "SET s:%s\n" +
-                    "RETURN count(s)";
-
-    Result res = runQuery(String.format(query, 0, "Correct"));
-    System.out.println("Set " + res.consume().counters().labelsAdded() + " " + "Correct labels.");
-
-    res = runQuery(String.format(query, 1, "Incorrect"));
-    System.out.println("Set " + res.consume().counters().labelsAdded() + " " + "Incorrect labels.");
-  }
-
-  /**
-   * Adds a popularity property for each node based on the number of nodes in the
-   * same component.
-   *
-   * @param components List of existing components
-   */
-  private void addNodesPopularity(List<Record> components) {
-    for (Record component : components) {
-      int componentId = component.get("componentId").asInt();
-      // Set popularity for each component
-      runQuery(String.format(
-              "MATCH (n:Submission {componentId: %d})\n" +
-                      "WITH count(n) AS popularity\n" +
-                      "CALL {\n" +
-                      "  WITH popularity\n" +
-                      "  MATCH (n:Submission {componentId: %d})\n" +
-                      "  SET n.popularity = popularity\n" +
-                      "}\n", componentId, componentId));
-    }
-  }
-
-  /**
-   * Creates a graph projection with the given name, label, and relationship.
-   * Graph projections are used to run neo4j graph data science algorithms.
-   *
-   * @param name         Name of the graph projection
-   * @param relationship Relationship type of the edges
-   */
-  private void addProjection(String name, String relationship) {
-    runQuery(String.format("CALL gds.graph.project('%s', '%s', '%s')", name, "Submission", relationship));
-  }
-
-  private void addProjection(String name, String label, String relationship, String relProperty) {
-    runQuery(String.format("CALL gds.graph.project('%s', '%s', '%s', {relationshipProperties: '%s'})", name, label, relationship, relProperty));
-  }
-
-  // DELETE methods
-
-  /**
-   * Delete all graph projections for the current database.
-   */
-  private void deleteAllProjections() {
-    Result res = runQuery("CALL gds.graph.list()");
-    while (res.hasNext()) {
-      Record record = res.next();
-      String name = record.get("graphName").asString();
-      if (record.get("database").asString().equals(this.name))
-        deleteProjection(name);
-    }
-    System.out.println("Deleted all graph projections.");
-  }
-
-  /**
-   * Deletes all nodes and edges from the database.
-   */
-  private void deleteAllNodes() {
-    Result res = runQuery("MATCH (n) DETACH DELETE n");
-    SummaryCounters counters = res.consume().counters();
-    System.out.println("Delete all nodes (" + counters.nodesDeleted() + " nodes and " + counters.relationshipsDeleted() + " edges).");
-  }
-
-  /**
-   * Deletes a property from all nodes.
-   *
-   * @param property Name of the property to delete
-   */
-  private void deleteProperty(String property) {
-    Result res = runQuery("MATCH (s:Submission)\n" + "REMOVE s." + property);
-    System.out.println("Removed " + res.consume().counters().propertiesSet() + " " + property + " properties.");
-  }
-
-  /**
-   * Deletes the graph projection with the given name.
-   *
-   * @param name Name of the graph projection
-   */
-  private void deleteProjection(String name) {
-    runQuery("CALL gds.graph.drop('" + name + "')");
-  }
-
-  /**
-   * Deletes all edges of the given relationship type.
-   *
-   * @param relationship Relationship type of the edges to delete
-   */
-  private void deleteEdges(String relationship) {
-    Result res = runQuery("MATCH ()-[r:" + relationship + "]-()\n" + "DELETE r\n" + "RETURN count(r)");
-    System.out.println("Deleted " + res.consume().counters().relationshipsDeleted() + " edges.");
-  }
-
-  /**
-   * Deletes all loops of the given relationship type. Loops are edges
-   * where the source and target node are the same.
-   */
-  private void deleteLoops() {
-    Result res = runQuery(
-            "MATCH (s:Submission)-[r:Derives]->(s:Submission)\n" +
-                    "DELETE r\n" +
-                    "RETURN count(r)");
-    System.out.println("Deleted " + res.consume().counters().relationshipsDeleted() + " loops.");
-  }
-
-  /**
-   * Deletes equivalent nodes. Equivalent nodes are nodes that belong to the
-   * same component after running the WCC algorithm.
-   * For each component the first node is kept and all other nodes are deleted.
-   * Derivations of deleted nodes are updated to point to the first node of the
-   * component.
-   *
-   * @param components List of existing components
-   */
-  private void deleteEquivNodes(List<Record> components) {
-    for (Record component : components) {
-      int componentId = component.get("componentId").asInt();
-      // Remove equivalent nodes from each component
-      List<String> queries = getDelEquivNodesQueries(componentId);
-      for (String query : queries) {
-        runQuery(query);
-      }
-    }
-    // Remove resulting loops
-    deleteLoops();
-    // Delete componentId property
-    deleteProperty("componentId");
-  }
-
-  // GET methods
-
-  /**
-   * Returns the statistics of the database.
-   *
-   * @return Number of nodes, edges, correct nodes, and incorrect nodes.
-   */
-  public Result getStatistics() {
-    return runQuery(
-            "MATCH (s:Submission)\n" +
-                    "WITH count(s) AS submissions\n" +
-                    "MATCH (c:Correct)\n" +
-                    "WITH submissions, count(c) AS corrects\n" +
-                    "MATCH (i:Incorrect)\n" +
-                    "WITH submissions, corrects, count(i) as incorrects\n" +
-                    "MATCH ()-[r:Derives]->()\n" +
-                    "WITH submissions, corrects, incorrects, count(r) AS derivations\n" +
-                    "RETURN submissions, corrects, incorrects, derivations");
-  }
-
-  /**
-   * Returns the node with the given ast.
-   *
-   * @param ast AST of the node.
-   * @return Node with the given ast. Null if no node exists.
-   */
-  public Node getNodeByAST(String ast) {
-    Result res = runQuery(
-            "MATCH (s:Submission {ast: \"" + ast + "\"})\n" +
-                    "RETURN s as node");
-    return res.hasNext() ? res.single().get("node").asNode() : null;
-  }
-
-  /**
-   * Returns the most similar node to the given AST.  The
-   * most similar node is different from the given AST and is
-   * the node with the smaller TED. The TED is computed using the APTED
-   * algorithm. The search starts with the most popular nodes. Upon finding a
-   * TED of 1, the search is stopped.
-   *
-   * @param ast      AST of the node to compare to the existing nodes
-   * @param category Category of the nodes to compare to
-   * @return Most similar node to the given AST
-   */
-  public Node getMostSimilarNode(String ast, String category) {
-    // Get all nodes ordered by popularity
-    Result res = runQuery(
-            "MATCH (s:" + category + ")\n" +
-                    "RETURN s AS node\n" +
-                    "ORDER BY s.popularity DESC");
-
-    TED ted = new TED();
-    int minDist = Integer.MAX_VALUE; // Minimum TED found
-    Node similarNode = null; // Most similar node found
-
-    while (res.hasNext()) {
-      Node curNode = res.next().get("node").asNode(); // Current node
-      // Compute TED between n and curNode
-      String curAst = curNode.get("ast").asString();
-      int curDist = ted.computeEditDistance(ast, curAst);
-
-      // Skip if TED is 0
-      if (curDist == 0) {
-        continue;
-      }
-
-      // Update minDist and similarNode if lower TED found
-      if (curDist < minDist) {
-        minDist = curDist;
-        similarNode = curNode;
-        // Stop earlier if TED is 1
-        if (minDist == 1) {
-          break;
-        }
-      }
-    }
-    return similarNode;
-  }
-
-  /**
-   * Returns the relationship between the given nodes.
-   *
-   * @param src Source node.
-   * @param dst Destination node.
-   * @return Relationship between the given nodes.
-   */
-  public Relationship getRelationship(Node src, Node dst) {
-    Result res = runQuery(String.format(
-            "MATCH (s:Submission {id: '%s'})-[edge]->(d:Submission {id: '%s'})\n" +
-                    "RETURN edge",
-            src.get("id").asString(), dst.get("id").asString()));
-    return res.single().get("edge").asRelationship();
-  }
-
-  /**
-   * Returns all distinct values of the given property.
-   *
-   * @param property Name of the property
-   * @return Result object containing all distinct values of the given property
-   */
-  private Result getDistinctPropertyValues(String property) {
-    return runQuery("MATCH (s:Submission)\n" + "RETURN DISTINCT s." + property + " AS " + property);
-  }
-
-
-  /**
-   * Auxiliary method to create queries for deleting equivalent nodes.
-   *
-   * @param componentId ID of the component
-   * @return List of queries to delete equivalent nodes where each derivation of
-   * a deleted node is updated to point to the first node of the component
-   */
-  private List<String> getDelEquivNodesQueries(int componentId) {
-    List<String> queries = new ArrayList<>();
-    // Get all nodes in component and the first node of the component
-    String mainQuery =
-            "MATCH (n:Submission {componentId: " + componentId + "})\n" +
-                    "WITH collect(DISTINCT n) AS compNodes\n" +
-                    "WITH compNodes, compNodes[0] AS firstN\n" +
-                    "UNWIND compNodes as cN\n";
-    String subquery =
-            "CALL {\n" +
-                    "WITH cN, firstN\n" +
-                    "MATCH (%s)-[r:Derives]->(%s)\n" +
-                    "WHERE cN <> firstN\n" +
-                    "MERGE (%s)-[p:Derives]->(%s)\n" +
-                    "SET p.id = randomUUID()\n" +
-                    "SET p.popularity = r.popularity\n" +
-                    "SET p.poisson = r.poisson\n" +
-                    "DELETE r\n" +
-                    "}\n";
-
-    // Swap derivations of component nodes to first node
-    // example: (s)-[:Derives]->(cN) -> (s)-[:Derives]->(firstN)
-    queries.add(mainQuery + String.format(subquery, "o:Submission", "cN", "o", "firstN"));
-    queries.add(mainQuery + String.format(subquery, "cN", "o:Submission", "firstN", "o"));
-
-    // Delete all component nodes except first node
-    queries.add(mainQuery +
-            "CALL {\n" +
-            "WITH cN, firstN\n" +
-            "MATCH (cN)\n" +
-            "WHERE cN <> firstN\n" +
-            "DETACH DELETE cN\n" +
-            "}\n");
-    return queries;
-  }
-
-  /**
-   * Returns the code of the original submission.
-   *
-   * @return Code of the original submission
-   */
-  public String getOriginalCode() throws NoSuchRecordException {
-    Result res = runQuery(
-            "MATCH (n:Submission {expr: \"\"})\n" +
-                    "RETURN n.code AS code");
-    return res.single().get("code").asString();
-  }
-
-  // RUN methods
-
-  /**
-   * Runs a query and returns the result.
-   *
-   * @param query Query to run
-   * @return Result of the query
-   */
-  public Result runQuery(String query) {
-    return session.run(new Query(query));
-  }
-
-  /**
-   * Runs the weakly connected components algorithm on the graph projection
-   * and writes the component id of each node to the indicated property.
-   *
-   * @param graphName     Name of the graph projection
-   * @param writeProperty Name of the property to write the component id to
-   * @throws ClientException If the query fails to run in the case where
-   *                         there is an invalid relationship projection. For example, when no EQUAL
-   *                         relationships exist.
-   */
-  private void runConnectedComponents(String graphName, String writeProperty) throws ClientException {
-    runQuery("CALL gds.wcc.write('" + graphName + "', {writeProperty: '" + writeProperty + "'}) " + "YIELD " + "nodePropertiesWritten, componentCount");
-  }
-
-  // CHECK methods
-
-  /**
-   * Verifies that the connection to the database is working.
-   */
-  public void verifyConnection() {
-    driver.verifyConnectivity();
-  }
-
-  /**
-   * Checks if projection exists.
-   *
-   * @param name Name of the projection
-   * @return True if projection exists, false otherwise
-   */
-  private boolean hasProjection(String name) {
-    Result res = runQuery("CALL gds.graph.exists('" + name + "') YIELD exists");
-    return res.single().get("exists").asBoolean();
-  }
-
-  // Other
-
-  /**
-   * Close the driver and session.
-   */
-  public void close() throws RuntimeException {
-    driver.close();
-  }
-}
+package org.higena.graph;
+
+import org.higena.ast.AstFingerprint;
+import org.higena.ast.TED;
+import org.higena.ast.actions.EncodedActions;
+import org.higena.ast.actions.TreeDiff;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.*;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.exceptions.ClientException;
+import org.neo4j.driver.exceptions.NoSuchRecordException;
+import org.neo4j.driver.summary.SummaryCounters;
+import org.neo4j.driver.types.Relationship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Class that handles the database connection and operations.
+ */
+public class Db implements HintGraphStore {
+  public static boolean PROCEDURE = false; // True to use the higena.hint procedure
+  private static final Map<String, CompletableFuture<?>> projectionUpdates =
+          new ConcurrentHashMap<>(); // Last projection update by database
+  private final Driver driver; // Neo4j driver
+  private final boolean ownsDriver; // Whether close() closes the driver
+  public final String challenge; // Challenge name
+  public final String predicate; // Predicate name
+  private Session session; // Neo4j session
+  private String name; // Database name
+
+  public Db(String uri, String user, String password, String challenge, String predicate) {
+    this(uri, user, password, "neo4j", challenge, predicate);
+  }
+
+  public Db(String uri, String user, String password, String databaseName, String challenge, String predicate) {
+    this.name = databaseName;
+    this.challenge = challenge;
+    this.predicate = predicate;
+    driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password)); // Create driver
+    ownsDriver = true;
+    session = driver.session(SessionConfig.forDatabase(name)); // Connect to the database
+  }
+
+  /**
+   * Creates a connection to the database using a driver shared with other
+   * connections. Closing this connection does not close the driver.
+   *
+   * @param driver       Shared Neo4j driver
+   * @param databaseName Name of the database
+   * @param challenge    Challenge name
+   * @param predicate    Predicate name
+   */
+  public Db(Driver driver, String databaseName, String challenge, String predicate) {
+    this.name = databaseName;
+    this.challenge = challenge;
+    this.predicate = predicate;
+    this.driver = driver;
+    ownsDriver = false;
+    session = driver.session(SessionConfig.forDatabase(name)); // Connect to the database
+  }
+
+  /**
+   * Performs a sequence of actions to prepare the database.
+   * 1. Cleans the database by deleting all nodes and edges and projections.
+   * 2. Adds unique constraints to avoid duplicate IDs.
+   * 3. Adds nodes to the database. The Alloy4Fun id is kept in alloyId.
+   * 4. Add edges to the database.
+   * 5. Adds the correct and incorrect labels to the nodes.
+   * 6. Deletes the derivationOf and sat properties from the nodes.
+   * 7. Adds popularity to the edges.
+   * 8. Adds nodes popularity by aggregating equivalent nodes.
+   * 9. Assigns dense integer ids to the nodes and edges.
+   * 10. Adds the AST fingerprints to the nodes and makes them unique.
+   * 11. Adds the TED and edit operations to the edges.
+   * 12. Adds the Poisson distribution to the edges.
+   * 13. Loads the catalog of Correct nodes used to find similar solutions.
+   */
+  public void setup() throws ClientException {
+    deleteAllNodes();
+    deleteAllProjections();
+    addUniqueConstraints();
+    addSubmissionNodes();
+    addDerivationEdges();
+    addSubmissionLabels();
+    deleteProperty("derivationOf");
+    deleteProperty("sat");
+    addEdgesPopularity();
+    aggregateEquivNodes();
+    addIds();
+    addAstFingerprints();
+    addFingerprintConstraint();
+    addTreeDiffToEdges();
+    addNodePoissonToEdges();
+    SolutionCatalog.refresh(this);
+    AStarSearch.invalidate(this);
+  }
+
+  // Algorithms
+
+  /**
+   * Runs the Dijkstra's algorithm using the given weight property to find the
+   * shortest path between the source node and a Correct node.
+   *
+   * @param sourceId       ID of the source node.
+   * @param weightProperty Property to use as weight.
+   * @return Result of the dijkstra algorithm (see
+   * {@link #runDijkstra(long, String, int)}).
+   */
+  public Result runDijkstra(long sourceId, String weightProperty) {
+    return runDijkstra(sourceId, weightProperty, 1);
+  }
+
+  /**
+   * Runs the Dijkstra's algorithm once from the source node using the given
+   * weight property and returns the k shortest paths that end in distinct
+   * Correct nodes. All paths come from the same single-source run, so
+   * alternatives cost the same as the shortest path alone. The Derives
+   * edges of each path and its total TED are also returned to avoid one
+   * query per edge.
+   *
+   * @param sourceId       ID of the source node.
+   * @param weightProperty Property to use as weight.
+   * @param k              Maximum number of paths to return.
+   * @return Result with up to k records ordered by cost. Each record
+   * contains the total cost, the nodes in the path (see SubmissionNode), the
+   * Derives edges in the path and the total TED of the path.
+   */
+  public Result runDijkstra(long sourceId, String weightProperty, int k) {
+    updateDijkstraProjection(weightProperty);
+    // Run Dijkstra's algorithm
+    return runQuery(getDijkstraQuery(sourceId, weightProperty, k));
+  }
+
+  /**
+   * Finds the node with the given AST and its k shortest paths to distinct
+   * Correct nodes in a single query. If PROCEDURE is set, the search runs
+   * inside the database (see HintProcedure). Otherwise, paths use the A*
+   * search (see runAStar) for the "ted" weight if it is enabled and the
+   * Dijkstra's algorithm otherwise. The Dijkstra projection is only rebuilt
+   * if it is missing or the graph changed since it was created.
+   *
+   * @param ast            AST of the source node.
+   * @param weightProperty Property to use as weight.
+   * @param k              Maximum number of paths to return.
+   * @return Source node and paths ordered by cost or null if there is no
+   * node with the AST.
+   */
+  @Override
+  public Paths getHintPaths(String ast, String weightProperty, int k) {
+    if (usesDijkstra(weightProperty)) {
+      updateDijkstraProjection(weightProperty);
+    }
+    return toPaths(session.run(getHintPathsQuery(ast, weightProperty, k)).list());
+  }
+
+  /**
+   * Returns true if the hint paths of the given weight property are found
+   * with the Dijkstra's algorithm of GDS, which needs a projection.
+   *
+   * @param weightProperty Property to use as weight.
+   * @return False if the paths are found by the procedure or the A* search
+   */
+  private boolean usesDijkstra(String weightProperty) {
+    return !PROCEDURE && !(weightProperty.equals("ted") && AStarSearch.ENABLED);
+  }
+
+  /**
+   * Returns the query of getHintPaths. The A* search, if used, runs before
+   * the query is returned. The Dijkstra projection must be up-to-date.
+   *
+   * @param ast            AST of the source node.
+   * @param weightProperty Property to use as weight.
+   * @param k              Maximum number of paths to return.
+   * @return Query with the source and paths columns
+   */
+  private Query getHintPathsQuery(String ast, String weightProperty, int k) {
+    if (PROCEDURE) {
+      return new Query(
+              "CALL higena.hint($ast, $weightProperty, $k)\n" +
+                      "YIELD source, path, rels, totalCost, totalTED, directTED\n" +
+                      "WITH source, collect({totalCost: totalCost, path: path, " +
+                      "rels: rels, totalTED: totalTED, directTED: directTED}) AS paths\n" +
+                      "RETURN source, [p IN paths WHERE p.path IS NOT NULL] AS paths",
+              Map.of("ast", ast, "weightProperty", weightProperty, "k", k));
+    }
+    String astHash = AstFingerprint.of(ast), paths;
+    Map<String, Object> params;
+    if (usesDijkstra(weightProperty)) {
+      params = Map.of("astHash", astHash);
+      paths = getDijkstraPaths(weightProperty, k);
+    } else {
+      AStarSearch search = AStarSearch.of(this);
+      Long sourceId = search.getNodeId(ast);
+      params = Map.of("astHash", astHash, "paths", sourceId == null ?
+              List.of() : getPathsParameter(search.search(sourceId, k)));
+      paths = getAStarPaths();
+    }
+    return new Query(
+            "MATCH (source:Submission {astHash: $astHash})\n" +
+                    "CALL {\n" +
+                    "    WITH source\n" +
+                    paths +
+                    "    RETURN collect({totalCost: totalCost, path: path, " +
+                    "rels: rels, totalTED: totalTED}) AS paths\n" +
+                    "}\n" +
+                    "RETURN " + SubmissionNode.projection("source") + " AS source, paths",
+            params);
+  }
+
+  /**
+   * Returns the source node and paths of the result of a hint paths query
+   * with the source and paths columns.
+   *
+   * @param res Records of the query
+   * @return Source node and paths or null if there are no records
+   */
+  private static Paths toPaths(List<Record> res) {
+    if (res.isEmpty()) {
+      return null;
+    }
+    Record rec = res.get(0);
+    return new Paths(SubmissionNode.fromValue(rec.get("source")),
+            rec.get("paths").asList(SolutionPath::fromValue));
+  }
+
+  /**
+   * Returns the shortest paths from the source node to the k nearest
+   * distinct Correct nodes. Uses the A* search for the "ted" weight if it
+   * is enabled and the Dijkstra's algorithm otherwise.
+   *
+   * @param source         Source node.
+   * @param weightProperty Property to use as weight.
+   * @param k              Maximum number of paths to return.
+   * @return Up to k paths ordered by cost
+   */
+  @Override
+  public List<SolutionPath> getShortestPaths(SubmissionNode source,
+                                             String weightProperty, int k) {
+    Result res = weightProperty.equals("ted") && AStarSearch.ENABLED ?
+            runAStar(source.getId(), k) :
+            runDijkstra(source.getId(), weightProperty, k);
+    List<SolutionPath> paths = new ArrayList<>();
+    while (res.hasNext()) {
+      paths.add(SolutionPath.fromValue(res.next()));
+    }
+    return paths;
+  }
+
+  /**
+   * Returns the query that runs the Dijkstra's algorithm on the projection
+   * of the given weight property.
+   *
+   * @param sourceId       ID of the source node.
+   * @param weightProperty Property to use as weight.
+   * @param k              Maximum number of paths to return.
+   * @return Query string
+   * @see #runDijkstra(long, String, int)
+   */
+  private String getDijkstraQuery(long sourceId, String weightProperty, int k) {
+    return String.format("MATCH (source:Submission {id: %d})\n", sourceId) +
+            getDijkstraPaths(weightProperty, k) +
+            "RETURN totalCost, path, rels, totalTED";
+  }
+
+  /**
+   * Returns the part of a query that finds the k shortest paths from the
+   * node "source" to distinct Correct nodes with the Dijkstra's algorithm.
+   *
+   * @param weightProperty Property to use as weight.
+   * @param k              Maximum number of paths to return.
+   * @return Query part that yields totalCost, path, rels and totalTED
+   */
+  private String getDijkstraPaths(String weightProperty, int k) {
+    return String.format(
+            "CALL gds.allShortestPaths.dijkstra.stream('%s', {\n" +
+                    "    sourceNode: source,\n" +
+                    "    relationshipWeightProperty: '%s'\n" +
+                    "})\n" +
+                    "YIELD targetNode, totalCost, path\n" +
+                    "WITH source, gds.util.asNode(targetNode) AS target, totalCost, path\n" +
+                    "WHERE target:Correct AND source.id <> target.id\n" +
+                    "WITH totalCost, nodes(path) AS path\n" +
+                    "ORDER BY totalCost\n" +
+                    "LIMIT %d\n",
+            getDijkstraProjection(weightProperty),
+            weightProperty,
+            k) + getPathColumns();
+  }
+
+  /**
+   * Runs the A* search from the source node on the edges weighted by TED
+   * and returns the k shortest paths that end in distinct Correct nodes.
+   * The paths are searched in memory (see AStarSearch) and the result has
+   * the same columns as the result of the Dijkstra's algorithm.
+   *
+   * @param sourceId ID of the source node.
+   * @param k        Maximum number of paths to return.
+   * @return Result with up to k records ordered by cost (see
+   * {@link #runDijkstra(long, String, int)}).
+   */
+  public Result runAStar(long sourceId, int k) {
+    List<Map<String, Object>> paths =
+            getPathsParameter(AStarSearch.of(this).search(sourceId, k));
+    return runQuery(getAStarPaths() + "RETURN totalCost, path, rels, totalTED",
+            Map.of("paths", paths));
+  }
+
+  /**
+   * Returns the part of a query that fetches the paths found by the A*
+   * search, given in the $paths parameter (see getPathsParameter).
+   *
+   * @return Query part that yields totalCost, path, rels and totalTED
+   */
+  private String getAStarPaths() {
+    return "UNWIND range(0, size($paths) - 1) AS j\n" +
+            "UNWIND range(0, size($paths[j].ids) - 1) AS i\n" +
+            "MATCH (n:Submission {id: $paths[j].ids[i]})\n" +
+            "WITH j, i, n\n" +
+            "ORDER BY j, i\n" +
+            "WITH j, $paths[j].cost AS totalCost, collect(n) AS path\n" +
+            "ORDER BY j\n" + getPathColumns();
+  }
+
+  /**
+   * Returns the part of a query that turns the nodes of each path into the
+   * columns returned for a path: the nodes (see SubmissionNode), the
+   * Derives edges between them and their total TED.
+   *
+   * @return Query part that yields totalCost, path, rels and totalTED
+   */
+  private String getPathColumns() {
+    return "WITH totalCost, path,\n" +
+            "    [i IN range(0, size(path) - 2) |\n" +
+            "        head([(path[i])-[e:Derives]->(path[i + 1]) | e])] AS rels\n" +
+            "WITH\n" +
+            "    totalCost,\n" +
+            "    [n IN path | " + SubmissionNode.projection("n") + "] AS path,\n" +
+            "    rels,\n" +
+            "    reduce(ted = 0.0, e IN rels | ted + e.ted) AS totalTED\n";
+  }
+
+  private static List<Map<String, Object>> getPathsParameter(
+          List<AStarSearch.Path> paths) {
+    List<Map<String, Object>> param = new ArrayList<>();
+    for (AStarSearch.Path path : paths) {
+      param.add(Map.of("cost", path.getCost(), "ids", path.getNodes()));
+    }
+    return param;
+  }
+
+  private String getDijkstraProjection(String weightProperty) {
+    return "dijkstra|" + weightProperty;
+  }
+
+  /**
+   * Creates the Dijkstra projection of the given weight property if it does
+   * not exist or the graph changed since it was created. Updates of the
+   * projections of a database run one at a time (see projectionTurn), so a
+   * projection is never dropped while another connection recreates it.
+   *
+   * @param weightProperty Property to use as weight.
+   * @see #getProjectionStateQuery(String)
+   */
+  private void updateDijkstraProjection(String weightProperty) {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    projectionTurn(done).join(); // Wait for the updates started before
+    try {
+      String projectionName = getDijkstraProjection(weightProperty);
+      Record state = session.run(getProjectionStateQuery(projectionName)).single();
+      if (state.get("current").asBoolean()) {
+        return;
+      }
+      // Update projection if it exists
+      if (state.get("exists").asBoolean()) deleteProjection(projectionName);
+      addProjection(projectionName, "Submission", "Derives", weightProperty);
+      session.run(getProjectionVersionQuery(projectionName, state.get("version").asLong())).consume();
+    } finally {
+      done.complete(null);
+    }
+  }
+
+  /**
+   * Registers an update of the projections of this database as the last one
+   * and returns when it may start. Only projection updates are serialized:
+   * path searches and writes of other requests run concurrently.
+   *
+   * @param update Future completed when the update finishes
+   * @return Future completed when the updates registered before have
+   * finished, whether they succeeded or not
+   */
+  private CompletableFuture<?> projectionTurn(CompletableFuture<?> update) {
+    CompletableFuture<?> previous = projectionUpdates.put(name, update);
+    return previous == null ? CompletableFuture.completedFuture(null) :
+            previous.handle((res, e) -> null);
+  }
+
+  /**
+   * Returns the query that checks if a projection is up to date. The version
+   * of the graph is the sum of the next ids of the Submission and Derives
+   * sequences, which grows with every node and edge created. The version a
+   * projection was created from is kept in a Projection node, so all
+   * processes connected to the database share it. Projections and
+   * Projection nodes are deleted by setup.
+   *
+   * @param projectionName Name of the projection
+   * @return Query returning exists (the projection exists), version
+   * (current version of the graph) and current (the projection exists and
+   * was created from the current version)
+   */
+  private static Query getProjectionStateQuery(String projectionName) {
+    return new Query(
+            "CALL gds.graph.exists($name) YIELD exists\n" +
+                    "OPTIONAL MATCH (sub:Sequence {name: 'Submission'})\n" +
+                    "OPTIONAL MATCH (der:Sequence {name: 'Derives'})\n" +
+                    "OPTIONAL MATCH (p:Projection {name: $name})\n" +
+                    "WITH exists, p, coalesce(sub.next, 0) + coalesce(der.next, 0) AS version\n" +
+                    "RETURN exists, version,\n" +
+                    "    exists AND coalesce(p.version = version, false) AS current",
+            Map.of("name", projectionName));
+  }
+
+  /**
+   * Returns the query that records the version of the graph a projection
+   * was created from.
+   *
+   * @see #getProjectionStateQuery(String)
+   */
+  private static Query getProjectionVersionQuery(String projectionName,
+                                                 long version) {
+    return new Query("MERGE (p:Projection {name: $name})\n" +
+            "SET p.version = $version",
+            Map.of("name", projectionName, "version", version));
+  }
+
+  /**
+   * Creates edges between nodes with the same property. Then, runs the
+   * Weakly Connected Components algorithm to find the connected components
+   * of the graph. Each node gets a componentId property with the id of the
+   * component it belongs to.
+   */
+  private void aggregateEquivNodes() {
+    String projectionName = "equalGraph", relName = "EQUAL", componentProperty = "componentId";
+    // Create edges between nodes with the same property
+    runQuery(String.format(
+            "MATCH (n:Submission), (s:Submission)\n" +
+                    "WHERE n <> s AND n.ast = s.ast\n" +
+                    "MERGE (n)-[:%s]-(s)", relName));
+    // Check if graph already exists and create it if it doesn't
+    if (!hasProjection(projectionName)) {
+      addProjection(projectionName, relName);
+    }
+    // Run Weakly Connected Components algorithm
+    try {
+      runConnectedComponents(projectionName, componentProperty);
+      deleteProjection(projectionName);
+      deleteEdges(relName);
+      // Get components
+      List<Record> components = getDistinctPropertyValues(componentProperty).list();
+      addNodesPopularity(components);
+      // Aggregate nodes: delete equivalent nodes except for one
+      deleteEquivNodes(components);
+    } catch (ClientException e) {
+      System.out.println("No equivalent nodes found so no aggregation was done.");
+    }
+  }
+
+  // ADD Methods
+
+  /**
+   * Creates a relationship Derives between the given nodes if it does not
+   * exist yet. The write locks of the Derives sequence and of both nodes are
+   * taken before checking for the edge, so concurrent requests for the same
+   * pair of nodes create a single edge and all of them return it. Like
+   * writeBatch, the sequence is locked before the nodes, so writers of edges
+   * never wait for each other in opposite orders. Each edge has a
+   * TED property with the TED between the nodes and an operations property
+   * with the edit operations needed to transform the source node into the
+   * target node, also stored in encoded form in the opCodes and opLabels
+   * properties (see EncodedActions). Each edge has also a popularity
+   * property with the number of times the edge appears in the database, a
+   * poisson property with the Poisson distribution of the edge's popularity
+   * and a dstPoisson property with the Poisson distribution of the target
+   * node's popularity.
+   *
+   * @param n1 Node 1
+   * @param n2 Node 2
+   * @return Relationship created.
+   */
+  @Override
+  public SubmissionEdge addEdge(SubmissionNode n1, SubmissionNode n2) {
+    String ast1 = n1.getAst(), ast2 = n2.getAst();
+    TED ted = new TED();
+    TreeDiff diff = ted.computeTreeDiff(ast1, ast2);
+    EncodedActions encoded = diff.getEncodedActions();
+
+    String query = String.format(
+            "MATCH (n1:Submission {id: %d}), (n2:Submission {id: %d}),\n" +
+                    "    (seq:Sequence {name: 'Derives'})\n" +
+                    // Lock the sequence, then both nodes, until the end of
+                    // the transaction
+                    "SET seq.lock = true\n" +
+                    "SET n1.lock = true, n2.lock = true\n" +
+                    "MERGE (n1)-[r:Derives]->(n2)\n" +
+                    "ON CREATE SET\n" +
+                    "    r.id = seq.next,\n" +
+                    "    seq.next = seq.next + 1,\n" +
+                    "    r.ted = %d,\n" +
+                    "    r.operations = %s,\n" +
+                    "    r.opCodes = $opCodes,\n" +
+                    "    r.opLabels = $opLabels,\n" +
+                    "    r.popularity = 0,\n" +
+                    "    r.poisson = 1.5,\n" +
+                    "    r.dstPoisson =\n" +
+                    "    CASE\n" +
+                    "        WHEN n2.popularity = 0 THEN 1.5\n" +
+                    "        ELSE 1.0 / n2.popularity\n" +
+                    "    END\n" +
+                    "REMOVE n1.lock, n2.lock, seq.lock\n" +
+                    "RETURN r AS edge", n1.getId(), n2.getId(), diff.getTed(), diff.getActions());
+
+    Relationship edge = runQuery(query, Map.of("opCodes", encoded.getCodes(),
+            "opLabels", encoded.getLabels())).single().get(0).asRelationship();
+    AStarSearch.addEdge(this, n1, n2, edge.get("ted").asDouble());
+    return SubmissionEdge.fromRelationship(edge);
+  }
+
+  /**
+   * Creates an incorrect node in the graph with the given properties if
+   * there is no node with the same AST fingerprint. The id is the next
+   * value of the Submission sequence. The unique constraint on the
+   * fingerprint makes concurrent requests with the same AST return the same
+   * node.
+   *
+   * @param expr       Expression of the node
+   * @param ast        AST of the node
+   * @param code       Alloy code of the submission
+   * @param popularity Popularity of the node
+   * @return The created node or the existing node with the same AST.
+   */
+  @Override
+  public SubmissionNode addIncorrectNode(String expr, String ast, String code,
+                                         double popularity) {
+    String query =
+            "MATCH (seq:Sequence {name: 'Submission'})\n" +
+                    "SET seq.lock = true\n" +
+                    "MERGE (n:Submission {astHash: $astHash})\n" +
+                    "ON CREATE SET\n" +
+                    "    n:Incorrect,\n" +
+                    "    n.id = seq.next,\n" +
+                    "    seq.next = seq.next + 1,\n" +
+                    "    n.code = $code,\n" +
+                    "    n.ast = $ast,\n" +
+                    "    n.expr = $expr,\n" +
+                    "    n.popularity = $popularity\n" +
+                    "REMOVE seq.lock\n" +
+                    "RETURN " + SubmissionNode.projection("n") + " AS node";
+
+    Result res = runQuery(query, Map.of("astHash", AstFingerprint.of(ast),
+            "code", code, "ast", ast, "expr", expr, "popularity", popularity));
+    return SubmissionNode.fromValue(res.single().get(0));
+  }
+
+  /**
+   * Writes a batch of new Incorrect nodes and Derives edges in a single
+   * transaction. Nodes and edges are merged on the AST fingerprints like
+   * addIncorrectNode and addEdge, so writing a batch twice has no effect.
+   * Edges whose nodes do not exist are skipped. Each statement locks its
+   * sequence before the nodes, in the same order as addIncorrectNode and
+   * addEdge, and writes its rows in a subquery, so the lock is removed even
+   * if no row is written. Empty lists are not sent.
+   *
+   * @param nodes Nodes with astHash, ast, expr, code and popularity
+   * @param edges Edges with src and dst (AST fingerprints), ted,
+   *              operations, opCodes and opLabels
+   * @see GraphWriter
+   */
+  public void writeBatch(List<Map<String, Object>> nodes,
+                         List<Map<String, Object>> edges) {
+    if (nodes.isEmpty() && edges.isEmpty()) {
+      return;
+    }
+    session.writeTransaction(tx -> {
+      if (!nodes.isEmpty()) {
+        tx.run("MATCH (seq:Sequence {name: 'Submission'})\n" +
+                "SET seq.lock = true\n" +
+                "WITH seq\n" +
+                "CALL {\n" +
+                "    WITH seq\n" +
+                "    UNWIND $rows AS row\n" +
+                "    MERGE (n:Submission {astHash: row.astHash})\n" +
+                "    ON CREATE SET\n" +
+                "        n:Incorrect,\n" +
+                "        n.id = seq.next,\n" +
+                "        seq.next = seq.next + 1,\n" +
+                "        n.code = row.code,\n" +
+                "        n.ast = row.ast,\n" +
+                "        n.expr = row.expr,\n" +
+                "        n.popularity = row.popularity\n" +
+                "    RETURN count(*) AS written\n" +
+                "}\n" +
+                "REMOVE seq.lock", Map.of("rows", nodes));
+      }
+      if (!edges.isEmpty()) {
+        tx.run("MATCH (seq:Sequence {name: 'Derives'})\n" +
+                "SET seq.lock = true\n" +
+                "WITH seq\n" +
+                "CALL {\n" +
+                "    WITH seq\n" +
+                "    UNWIND $rows AS row\n" +
+                "    MATCH (n1:Submission {astHash: row.src}), (n2:Submission {astHash: row.dst})\n" +
+                "    SET n1.lock = true, n2.lock = true\n" +
+                "    MERGE (n1)-[r:Derives]->(n2)\n" +
+                "    ON CREATE SET\n" +
+                "        r.id = seq.next,\n" +
+                "        seq.next = seq.next + 1,\n" +
+                "        r.ted = row.ted,\n" +
+                "        r.operations = row.operations,\n" +
+                "        r.opCodes = row.opCodes,\n" +
+                "        r.opLabels = row.opLabels,\n" +
+                "        r.popularity = 0,\n" +
+                "        r.poisson = 1.5,\n" +
+                "        r.dstPoisson =\n" +
+                "        CASE\n" +
+                "            WHEN n2.popularity = 0 THEN 1.5\n" +
+                "            ELSE 1.0 / n2.popularity\n" +
+                "        END\n" +
+                "    REMOVE n1.lock, n2.lock\n" +
+                "    RETURN count(*) AS written\n" +
+                "}\n" +
+                "REMOVE seq.lock", Map.of("rows", edges));
+      }
+      return null;
+    });
+    AStarSearch.addEdges(this, edges);
+  }
+
+  /**
+   * Adds an astHash property to all Submission nodes with the fingerprint
+   * of their AST. Must run after equivalent nodes are aggregated, since
+   * fingerprints are unique.
+   */
+  private void addAstFingerprints() {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    Result res = runQuery("MATCH (s:Submission)\n" +
+            "RETURN s.id AS id, s.ast AS ast");
+    while (res.hasNext()) {
+      Record rec = res.next();
+      rows.add(Map.of("id", rec.get("id").asLong(),
+              "astHash", AstFingerprint.of(rec.get("ast").asString(""))));
+    }
+    runQuery("UNWIND $rows AS row\n" +
+            "MATCH (s:Submission {id: row.id})\n" +
+            "SET s.astHash = row.astHash", Map.of("rows", rows));
+    System.out.println("Added AST fingerprints to " + rows.size() + " nodes.");
+  }
+
+  /**
+   * Adds constraint to ensure that each Submission node has a unique AST
+   * fingerprint. Used to create nodes of new submissions without
+   * duplicates.
+   */
+  public void addFingerprintConstraint() {
+    Result res = runQuery("CREATE CONSTRAINT UniqueSubmissionAST IF NOT EXISTS FOR " +
+            "(s:Submission) REQUIRE s.astHash IS UNIQUE");
+    System.out.println("Added " + res.consume().counters().constraintsAdded() + " unique node.astHash constraint(s).");
+  }
+
+  /**
+   * Adds a property to all Derives edges called dstPoisson with the value
+   * 1.0 / popularity of the destination node for calculating the poisson path.
+   */
+  private void addNodePoissonToEdges() {
+    runQuery(
+            "MATCH ()-[r:Derives]->(dst:Submission)\n" +
+                    "SET r.dstPoisson = \n" +
+                    "CASE\n" +
+                    "    WHEN dst.popularity = 0 THEN 1.5\n" +
+                    "    ELSE 1.0 / dst.popularity\n" +
+                    "END");
+    System.out.println("Added node popularity to edges");
+  }
+
+  /**
+   * Adds TED property and operations property to all Derives edges.
+   * TED is the edit distance between the source and destination nodes.
+   * Operations is the list of edit operations needed to transform the source
+   * node into the destination node. The operations are also stored encoded
+   * in the opCodes and opLabels properties.
+   */
+  private void addTreeDiffToEdges() {
+    // Get all edges and its nodes
+    Result res = runQuery(
+            "MATCH (src:Submission)-[e:Derives]->(dst:Submission)\n" +
+                    "RETURN src.ast AS src, dst.ast AS dst, e.id AS edgeID");
+    TED ted = new TED();
+
+    while (res.hasNext()) {
+      // Get source and destination nodes of the edge + edge itself
+      Record rec = res.next();
+      String srcAST = rec.get("src").asString(), dstAST = rec.get("dst").asString();
+      long edge = rec.get("edgeID").asLong();
+
+      // Compute tree differences (edit distance and edits)
+      TreeDiff diff = ted.computeTreeDiff(srcAST, dstAST);
+      EncodedActions encoded = diff.getEncodedActions();
+      // Update edge
+      runQuery(String.format(
+              "MATCH ()-[e:Derives]->()\n" +
+                      "WHERE e.id = %d\n" +
+                      "SET e.ted = %d\n" +
+                      "SET e.operations = %s\n" +
+                      "SET e.opCodes = $opCodes\n" +
+                      "SET e.opLabels = $opLabels", edge, diff.getTed(), diff.getActions()),
+              Map.of("opCodes", encoded.getCodes(),
+                      "opLabels", encoded.getLabels()));
+    }
+  }
+
+  /**
+   * Creates a new database with the given name if it does not exist.
+   * Switches to the new database by closing the current session and opening
+   * a new one with the correct configuration.
+   *
+   * @param databaseName Name of the database to create.
+   */
+  public void addDb(String databaseName) {
+    // Create database
+    runQuery("CREATE DATABASE " + databaseName + " IF NOT EXISTS");
+
+    // Switch to new database
+    this.name = databaseName;
+    session.close();
+    session = driver.session(SessionConfig.forDatabase(name));
+  }
+
+  /**
+   * Adds constraint to ensure that each Submission node has a unique id
+   * property and an index on the id property of the Derives edges.
+   */
+  public void addUniqueConstraints() {
+    Result res = runQuery("CREATE CONSTRAINT UniqueSubmission IF NOT EXISTS FOR " +
+            "(s:Submission) REQUIRE s.id IS UNIQUE");
+    System.out.println("Added " + res.consume().counters().constraintsAdded() + " unique node.id constraint(s).");
+    res = runQuery("CREATE INDEX DerivesId IF NOT EXISTS FOR " +
+            "()-[r:Derives]-() ON (r.id)");
+    System.out.println("Added " + res.consume().counters().indexesAdded() + " edge.id index(es).");
+  }
+
+  /**
+   * Assigns dense integer ids to the Submission nodes (ordered by their
+   * Alloy4Fun id) and to the Derives edges (ordered by their nodes), and
+   * creates the Submission and Derives sequences with the next free id of
+   * each. Nodes and edges added later take their id from the sequences.
+   */
+  private void addIds() {
+    runQuery("MATCH (s:Submission)\n" +
+            "WITH s ORDER BY s.alloyId\n" +
+            "WITH collect(s) AS nodes\n" +
+            "UNWIND range(0, size(nodes) - 1) AS i\n" +
+            "WITH nodes[i] AS s, i\n" +
+            "SET s.id = i");
+    runQuery("MATCH (s:Submission)-[r:Derives]->(d:Submission)\n" +
+            "WITH r ORDER BY s.id, d.id\n" +
+            "WITH collect(r) AS rels\n" +
+            "UNWIND range(0, size(rels) - 1) AS i\n" +
+            "WITH rels[i] AS r, i\n" +
+            "SET r.id = i");
+    Record res = runQuery("MATCH (s:Submission)\n" +
+            "WITH count(s) AS nodes\n" +
+            "OPTIONAL MATCH ()-[r:Derives]->()\n" +
+            "WITH nodes, count(r) AS rels\n" +
+            "MERGE (n:Sequence {name: 'Submission'})\n" +
+            "SET n.next = nodes\n" +
+            "MERGE (e:Sequence {name: 'Derives'})\n" +
+            "SET e.next = rels\n" +
+            "RETURN nodes, rels").single();
+    System.out.println("Assigned ids to " + res.get("nodes").asLong() +
+            " nodes and " + res.get("rels").asLong() + " edges.");
+  }
+
+  /**
+   * Loads nodes from a csv file with Alloy4Fun submissions into the database.
+   * The csv file must have the following columns: _id, code,
+   * derivationOf, sat, expr, ast. The derivationOf, expr and ast columns
+   * can be empty. The _id column must be unique and is stored in the
+   * alloyId property. The sat column must be either 0 or 1.
+   */
+  private void addSubmissionNodes() throws ClientException {
+    Result res = runQuery(
+            "LOAD CSV WITH HEADERS FROM 'file:///prepared_data/" + this.challenge + "/" + this.predicate + ".csv' AS row\n" +
+                    "MERGE (s:Submission {\n" +
+                    "  alloyId: row._id,\n" +
+                    "  code: row.code,\n" +
+                    "  derivationOf: CASE WHEN row.derivationOf IS NULL THEN '' ELSE row.derivationOf END,\n" +
+                    "  sat: toInteger(row.sat),\n" +
+                    "  expr: CASE WHEN row.expr IS NULL THEN '' ELSE row.expr END,\n" +
+                    "  ast: CASE WHEN row.ast IS NULL THEN '' ELSE row.ast END\n" +
+                    "})\n" +
+                    "RETURN count(s) AS count");
+
+    System.out.println("Created " + res.consume().counters().nodesCreated() + " nodes.");
+  }
+
+  /**
+   * Creates directed Derives edges between nodes where the derivationOf
+   * property of the source node matches the alloyId property of the target
+   * node. Ids are assigned after equivalent nodes are aggregated (see
+   * addIds).
+   */
+  private void addDerivationEdges() {
+    Result res = runQuery(
+            "MATCH (s:Submission), (d:Submission)\n" +
+                    "WHERE s.alloyId = d.derivationOf AND s <> d\n" +
+                    "MERGE (s)-[r:Derives]->(d)\n" +
+                    "RETURN count(r) AS count");
+
+    System.out.println("Created " + res.consume().counters().relationshipsCreated() + " Derives edges.");
+  }
+
+  /**
+   * Adds a popularity property to all Derives edges. Popularity is the number
+   * of other edges that have the same source and destination nodes. Also
+   * adds a poisson property to all edges. Poisson is 1.0 / popularity.
+   */
+  private void addEdgesPopularity() {
+    runQuery(
+            "MATCH (n:Submission)-[r:Derives]->(s:Submission)\n" +
+                    "CALL {\n" +
+                    "    WITH n, r, s\n" +
+                    "    MATCH (p:Submission)-[e:Derives]->(t:Submission)\n" +
+                    "    WHERE n.ast = p.ast AND s.ast = t.ast AND r <> e\n" +
+                    "    RETURN count(e) AS popularity\n" +
+                    "}\n" +
+                    "SET r.popularity = popularity + 1\n" +
+                    "SET r.poisson =\n" +
+                    "CASE\n" +
+                    "    WHEN r.popularity = 0 THEN 1.5\n" +
+                    "    ELSE 1.0 / r.popularity\n" +
+                    "END"
+    );
+
+    System.out.println("Added popularity property to edges.");
+  }
+
+
+  /**
+   * Adds Correct and Incorrect labels to nodes based on the sat property
+   * (0 = Correct, 1 = Incorrect).
+   */
+  private void addSubmissionLabels() {
+    String query =
+            "MATCH (s:Submission {sat: %d})\n" +
+                    "SET s:%s\n" +
+                    "RETURN count(s)";
+
+    Result res = runQuery(String.format(query, 0, "Correct"));
+    System.out.println("Set " + res.consume().counters().labelsAdded() + " " + "Correct labels.");
+
+    res = runQuery(String.format(query, 1, "Incorrect"));
+    System.out.println("Set " + res.consume().counters().labelsAdded() + " " + "Incorrect labels.");
+  }
+
+  /**
+   * Adds a popularity property for each node based on the number of nodes in the
+   * same component.
+   *
+   * @param components List of existing components
+   */
+  private void addNodesPopularity(List<Record> components) {
+    for (Record component : components) {
+      int componentId = component.get("componentId").asInt();
+      // Set popularity for each component
+      runQuery(String.format(
+              "MATCH (n:Submission {componentId: %d})\n" +
+                      "WITH count(n) AS popularity\n" +
+                      "CALL {\n" +
+                      "  WITH popularity\n" +
+                      "  MATCH (n:Submission {componentId: %d})\n" +
+                      "  SET n.popularity = popularity\n" +
+                      "}\n", componentId, componentId));
+    }
+  }
+
+  /**
+   * Creates a graph projection with the given name, label, and relationship.
+   * Graph projections are used to run neo4j graph data science algorithms.
+   *
+   * @param name         Name of the graph projection
+   * @param relationship Relationship type of the edges
+   */
+  private void addProjection(String name, String relationship) {
+    runQuery(String.format("CALL gds.graph.project('%s', '%s', '%s')", name, "Submission", relationship));
+  }
+
+  private void addProjection(String name, String label, String relationship, String relProperty) {
+    runQuery(String.format("CALL gds.graph.project('%s', '%s', '%s', {relationshipProperties: '%s'})", name, label, relationship, relProperty));
+  }
+
+  // DELETE methods
+
+  /**
+   * Delete all graph projections for the current database.
+   */
+  private void deleteAllProjections() {
+    Result res = runQuery("CALL gds.graph.list()");
+    while (res.hasNext()) {
+      Record record = res.next();
+      String name = record.get("graphName").asString();
+      if (record.get("database").asString().equals(this.name))
+        deleteProjection(name);
+    }
+    System.out.println("Deleted all graph projections.");
+  }
+
+  /**
+   * Deletes all nodes and edges from the database.
+   */
+  private void deleteAllNodes() {
+    Result res = runQuery("MATCH (n) DETACH DELETE n");
+    SummaryCounters counters = res.consume().counters();
+    System.out.println("Delete all nodes (" + counters.nodesDeleted() + " nodes and " + counters.relationshipsDeleted() + " edges).");
+  }
+
+  /**
+   * Deletes a property from all nodes.
+   *
+   * @param property Name of the property to delete
+   */
+  private void deleteProperty(String property) {
+    Result res = runQuery("MATCH (s:Submission)\n" + "REMOVE s." + property);
+    System.out.println("Removed " + res.consume().counters().propertiesSet() + " " + property + " properties.");
+  }
+
+  /**
+   * Deletes the graph projection with the given name.
+   *
+   * @param name Name of the graph projection
+   */
+  private void deleteProjection(String name) {
+    runQuery("CALL gds.graph.drop('" + name + "')");
+  }
+
+  /**
+   * Deletes all edges of the given relationship type.
+   *
+   * @param relationship Relationship type of the edges to delete
+   */
+  private void deleteEdges(String relationship) {
+    Result res = runQuery("MATCH ()-[r:" + relationship + "]-()\n" + "DELETE r\n" + "RETURN count(r)");
+    System.out.println("Deleted " + res.consume().counters().relationshipsDeleted() + " edges.");
+  }
+
+  /**
+   * Deletes all loops of the given relationship type. Loops are edges
+   * where the source and target node are the same.
+   */
+  private void deleteLoops() {
+    Result res = runQuery(
+            "MATCH (s:Submission)-[r:Derives]->(s:Submission)\n" +
+                    "DELETE r\n" +
+                    "RETURN count(r)");
+    System.out.println("Deleted " + res.consume().counters().relationshipsDeleted() + " loops.");
+  }
+
+  /**
+   * Deletes equivalent nodes. Equivalent nodes are nodes that belong to the
+   * same component after running the WCC algorithm.
+   * For each component the first node is kept and all other nodes are deleted.
+   * Derivations of deleted nodes are updated to point to the first node of the
+   * component.
+   *
+   * @param components List of existing components
+   */
+  private void deleteEquivNodes(List<Record> components) {
+    for (Record component : components) {
+      int componentId = component.get("componentId").asInt();
+      // Remove equivalent nodes from each component
+      List<String> queries = getDelEquivNodesQueries(componentId);
+      for (String query : queries) {
+        runQuery(query);
+      }
+    }
+    // Remove resulting loops
+    deleteLoops();
+    // Delete componentId property
+    deleteProperty("componentId");
+  }
+
+  // GET methods
+
+  /**
+   * Returns the statistics of the database.
+   *
+   * @return Number of nodes, edges, correct nodes, and incorrect nodes.
+   */
+  public Result getStatistics() {
+    return runQuery(
+            "MATCH (s:Submission)\n" +
+                    "WITH count(s) AS submissions\n" +
+                    "MATCH (c:Correct)\n" +
+                    "WITH submissions, count(c) AS corrects\n" +
+                    "MATCH (i:Incorrect)\n" +
+                    "WITH submissions, corrects, count(i) as incorrects\n" +
+                    "MATCH ()-[r:Derives]->()\n" +
+                    "WITH submissions, corrects, incorrects, count(r) AS derivations\n" +
+                    "RETURN submissions, corrects, incorrects, derivations");
+  }
+
+  /**
+   * Returns the node with the given ast.
+   *
+   * @param ast AST of the node.
+   * @return Node with the given ast. Null if no node exists.
+   */
+  @Override
+  public SubmissionNode getNodeByAST(String ast) {
+    Result res = runQuery(
+            "MATCH (s:Submission {ast: \"" + ast + "\"})\n" +
+                    "RETURN " + SubmissionNode.projection("s") + " AS node");
+    return res.hasNext() ? SubmissionNode.fromValue(res.single().get("node")) : null;
+  }
+
+  /**
+   * Returns the most similar node to the given AST.  The
+   * most similar node is different from the given AST and is
+   * the node with the smaller TED. The TED is computed using the APTED
+   * algorithm. The search starts with the most popular nodes. Upon finding a
+   * TED of 1, the search is stopped. Candidates that cannot beat the best
+   * TED found so far are discarded without computing their exact TED. Once
+   * the deadline has passed, the most similar node found so far is returned.
+   *
+   * @param ast      AST of the node to compare to the existing nodes
+   * @param category Category of the nodes to compare to
+   * @param deadline Time limit of the search
+   * @return Most similar node to the given AST
+   */
+  @Override
+  public SubmissionNode getMostSimilarNode(String ast, String category,
+                                          Deadline deadline) {
+    if (category.equals("Correct")) {
+      return getMostSimilarSolution(ast, deadline);
+    }
+    // Get all nodes ordered by popularity
+    Result res = runQuery(
+            "MATCH (s:" + category + ")\n" +
+                    "RETURN " + SubmissionNode.projection("s") + " AS node\n" +
+                    "ORDER BY s.popularity DESC");
+
+    int minDist = Integer.MAX_VALUE; // Minimum TED found
+    SubmissionNode similarNode = null; // Most similar node found
+
+    while (res.hasNext()) {
+      // Keep the most similar node found so far once the deadline has passed
+      if (similarNode != null && deadline.check()) {
+        break;
+      }
+      SubmissionNode curNode = SubmissionNode.fromValue(res.next().get("node")); // Current node
+      // Compute TED between n and curNode
+      String curAst = curNode.getAst();
+      int curDist = TED.computeEditDistance(ast, curAst, minDist - 1);
+
+      // Skip if TED is 0
+      if (curDist == 0) {
+        continue;
+      }
+
+      // Update minDist and similarNode if lower TED found
+      if (curDist < minDist) {
+        minDist = curDist;
+        similarNode = curNode;
+        // Stop earlier if TED is 1
+        if (minDist == 1) {
+          break;
+        }
+      }
+    }
+    return similarNode;
+  }
+
+  /**
+   * Returns the most similar Correct node to the given AST. Works like
+   * getMostSimilarNode but compares the AST against the pre-parsed
+   * solutions of the catalog instead of fetching and parsing every Correct
+   * node.
+   *
+   * @param ast      AST of the node to compare to the existing solutions
+   * @param deadline Time limit of the search
+   * @return Most similar Correct node to the given AST
+   * @see SolutionCatalog#findMostSimilar(String, Deadline)
+   */
+  private SubmissionNode getMostSimilarSolution(String ast, Deadline deadline) {
+    SolutionCatalog.Entry similar = SolutionCatalog.of(this)
+            .findMostSimilar(ast, deadline);
+    return similar == null ? null : getNodeById(similar.getId());
+  }
+
+  /**
+   * Returns the node with the given id.
+   *
+   * @param id ID of the node.
+   * @return Node with the given id. Null if no node exists.
+   */
+  public SubmissionNode getNodeById(long id) {
+    Result res = runQuery(
+            "MATCH (s:Submission {id: " + id + "})\n" +
+                    "RETURN " + SubmissionNode.projection("s") + " AS node");
+    return res.hasNext() ? SubmissionNode.fromValue(res.single().get("node")) : null;
+  }
+
+  /**
+   * Returns the relationship between the given nodes.
+   *
+   * @param src Source node.
+   * @param dst Destination node.
+   * @return Relationship between the given nodes.
+   */
+  public Relationship getRelationship(SubmissionNode src, SubmissionNode dst) {
+    Result res = runQuery(String.format(
+            "MATCH (s:Submission {id: %d})-[edge]->(d:Submission {id: %d})\n" +
+                    "RETURN edge",
+            src.getId(), dst.getId()));
+    return res.single().get("edge").asRelationship();
+  }
+
+  /**
+   * Returns all distinct values of the given property.
+   *
+   * @param property Name of the property
+   * @return Result object containing all distinct values of the given property
+   */
+  private Result getDistinctPropertyValues(String property) {
+    return runQuery("MATCH (s:Submission)\n" + "RETURN DISTINCT s." + property + " AS " + property);
+  }
+
+
+  /**
+   * Auxiliary method to create queries for deleting equivalent nodes.
+   *
+   * @param componentId ID of the component
+   * @return List of queries to delete equivalent nodes where each derivation of
+   * a deleted node is updated to point to the first node of the component
+   */
+  private List<String> getDelEquivNodesQueries(int componentId) {
+    List<String> queries = new ArrayList<>();
+    // Get all nodes in component and the first node of the component
+    String mainQuery =
+            "MATCH (n:Submission {componentId: " + componentId + "})\n" +
+                    "WITH collect(DISTINCT n) AS compNodes\n" +
+                    "WITH compNodes, compNodes[0] AS firstN\n" +
+                    "UNWIND compNodes as cN\n";
+    String subquery =
+            "CALL {\n" +
+                    "WITH cN, firstN\n" +
+                    "MATCH (%s)-[r:Derives]->(%s)\n" +
+                    "WHERE cN <> firstN\n" +
+                    "MERGE (%s)-[p:Derives]->(%s)\n" +
+                    "SET p.popularity = r.popularity\n" +
+                    "SET p.poisson = r.poisson\n" +
+                    "DELETE r\n" +
+                    "}\n";
+
+    // Swap derivations of component nodes to first node
+    // example: (s)-[:Derives]->(cN) -> (s)-[:Derives]->(firstN)
+    queries.add(mainQuery + String.format(subquery, "o:Submission", "cN", "o", "firstN"));
+    queries.add(mainQuery + String.format(subquery, "cN", "o:Submission", "firstN", "o"));
+
+    // Delete all component nodes except first node
+    queries.add(mainQuery +
+            "CALL {\n" +
+            "WITH cN, firstN\n" +
+            "MATCH (cN)\n" +
+            "WHERE cN <> firstN\n" +
+            "DETACH DELETE cN\n" +
+            "}\n");
+    return queries;
+  }
+
+  /**
+   * Returns the code of the original submission.
+   *
+   * @return Code of the original submission
+   */
+  public String getOriginalCode() throws NoSuchRecordException {
+    Result res = runQuery(
+            "MATCH (n:Submission {expr: \"\"})\n" +
+                    "RETURN n.code AS code");
+    return res.single().get("code").asString();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String getChallenge() {
+    return challenge;
+  }
+
+  @Override
+  public String getPredicate() {
+    return predicate;
+  }
+
+  // RUN methods
+
+  /**
+   * Runs a query and returns the result.
+   *
+   * @param query Query to run
+   * @return Result of the query
+   */
+  public Result runQuery(String query) {
+    return session.run(new Query(query));
+  }
+
+  /**
+   * Runs a query with parameters and returns the result.
+   *
+   * @param query      Query to run
+   * @param parameters Parameters of the query (e.g. $name)
+   * @return Result of the query
+   */
+  public Result runQuery(String query, Map<String, Object> parameters) {
+    return session.run(new Query(query, parameters));
+  }
+
+  /**
+   * Runs the weakly connected components algorithm on the graph projection
+   * and writes the component id of each node to the indicated property.
+   *
+   * @param graphName     Name of the graph projection
+   * @param writeProperty Name of the property to write the component id to
+   * @throws ClientException If the query fails to run in the case where
+   *                         there is an invalid relationship projection. For example, when no EQUAL
+   *                         relationships exist.
+   */
+  private void runConnectedComponents(String graphName, String writeProperty) throws ClientException {
+    runQuery("CALL gds.wcc.write('" + graphName + "', {writeProperty: '" + writeProperty + "'}) " + "YIELD " + "nodePropertiesWritten, componentCount");
+  }
+
+  // CHECK methods
+
+  /**
+   * Verifies that the connection to the database is working.
+   */
+  public void verifyConnection() {
+    driver.verifyConnectivity();
+  }
+
+  /**
+   * Checks if projection exists.
+   *
+   * @param name Name of the projection
+   * @return True if projection exists, false otherwise
+   */
+  private boolean hasProjection(String name) {
+    Result res = runQuery("CALL gds.graph.exists('" + name + "') YIELD exists");
+    return res.single().get("exists").asBoolean();
+  }
+
+  // ASYNC methods
+
+  /**
+   * Runs a query without blocking the calling thread. Each query runs on its
+   * own asynchronous session, so independent queries can run at the same
+   * time.
+   *
+   * @param query Query to run
+   * @return Stage completed with the records returned by the query
+   */
+  public CompletionStage<List<Record>> runQueryAsync(String query) {
+    return runQueryAsync(query, Map.of());
+  }
+
+  /**
+   * Runs a query with parameters without blocking the calling thread.
+   *
+   * @param query      Query to run
+   * @param parameters Parameters of the query (e.g. $name)
+   * @return Stage completed with the records returned by the query
+   * @see #runQueryAsync(String)
+   */
+  public CompletionStage<List<Record>> runQueryAsync(String query,
+                                                     Map<String, Object> parameters) {
+    return runQueryAsync(new Query(query, parameters));
+  }
+
+  private CompletionStage<List<Record>> runQueryAsync(Query query) {
+    AsyncSession asyncSession = driver.asyncSession(SessionConfig.forDatabase(name));
+    CompletableFuture<List<Record>> records = asyncSession
+            .runAsync(query)
+            .thenCompose(ResultCursor::listAsync)
+            .toCompletableFuture();
+    // Close the session whether the query succeeds or not
+    return records.handle((res, e) -> null)
+            .thenCompose(ignored -> asyncSession.closeAsync())
+            .thenCompose(ignored -> records);
+  }
+
+  /**
+   * Recreates the projection used by the Dijkstra's algorithm with the given
+   * weight property without blocking the calling thread, if it does not
+   * exist or the graph changed since it was created. Like the synchronous
+   * version, it waits for the projection updates started before it without
+   * holding a thread.
+   *
+   * @param weightProperty Property to use as weight.
+   * @return Stage completed when the projection is ready
+   * @see #updateDijkstraProjection(String)
+   */
+  public CompletionStage<Void> updateDijkstraProjectionAsync(String weightProperty) {
+    String projectionName = getDijkstraProjection(weightProperty);
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    projectionTurn(done)
+            .thenCompose(ignored -> runQueryAsync(getProjectionStateQuery(projectionName)))
+            .thenCompose(records -> {
+              Record state = records.get(0);
+              if (state.get("current").asBoolean()) {
+                return CompletableFuture.completedFuture(null);
+              }
+              CompletionStage<List<Record>> dropped = state.get("exists").asBoolean() ?
+                      runQueryAsync("CALL gds.graph.drop('" + projectionName + "')") :
+                      CompletableFuture.completedFuture(List.of());
+              return dropped
+                      .thenCompose(ignored -> runQueryAsync(String.format(
+                              "CALL gds.graph.project('%s', '%s', '%s', {relationshipProperties: '%s'})",
+                              projectionName, "Submission", "Derives", weightProperty)))
+                      .thenCompose(ignored -> runQueryAsync(getProjectionVersionQuery(
+                              projectionName, state.get("version").asLong())))
+                      .thenApply(ignored -> null);
+            })
+            .whenComplete((res, e) -> {
+              if (e != null) {
+                done.completeExceptionally(e);
+              } else {
+                done.complete(null);
+              }
+            });
+    return done;
+  }
+
+  /**
+   * Asynchronous version of getHintPaths. It runs the same query, so the
+   * paths are found the same way (procedure, A* search or Dijkstra's
+   * algorithm). The Dijkstra projection is updated on the asynchronous
+   * driver and the A* search runs on the given executor. No thread is
+   * blocked while waiting for the database.
+   *
+   * @param ast            AST of the source node.
+   * @param weightProperty Property to use as weight.
+   * @param k              Maximum number of paths to return.
+   * @param executor       Executor for the A* search.
+   * @return Stage completed with the source node and paths or null if there
+   * is no node with the AST
+   */
+  @Override
+  public CompletionStage<Paths> getHintPathsAsync(String ast,
+                                                  String weightProperty,
+                                                  int k, Executor executor) {
+    CompletionStage<Void> ready = usesDijkstra(weightProperty) ?
+            updateDijkstraProjectionAsync(weightProperty) :
+            CompletableFuture.completedFuture(null);
+    return ready
+            .thenApplyAsync(ignored -> getHintPathsQuery(ast, weightProperty, k), executor)
+            .thenCompose(this::runQueryAsync)
+            .thenApply(Db::toPaths);
+  }
+
+  // Other
+
+  /**
+   * Close the session and, if it is not shared, the driver.
+   */
+  @Override
+  public void close() throws RuntimeException {
+    session.close();
+    if (ownsDriver) {
+      driver.close();
+    }
+  }
+}
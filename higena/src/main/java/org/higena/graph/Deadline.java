@@ -0,0 +1,57 @@
+package org.higena.graph;
+
+/**
+ * Time limit of a search. Anytime searches (e.g. getMostSimilarNode) check
+ * the deadline before each candidate and, once it has passed, return the
+ * best result found so far instead of the exact one. The deadline records
+ * whether it cut a search so the caller can report the result as
+ * approximate.
+ *
+ * @see HintGraphStore#getMostSimilarNode(String, String, Deadline)
+ */
+public class Deadline {
+  public static final Deadline NONE = new Deadline(Long.MAX_VALUE); // No limit
+  private final long end; // System.nanoTime() at which the deadline passes
+  private volatile boolean reached = false; // True if a search was cut
+
+  private Deadline(long end) {
+    this.end = end;
+  }
+
+  /**
+   * Creates a deadline that passes after the given time.
+   *
+   * @param millis Time budget in milliseconds (0 or less for no limit)
+   * @return New deadline or NONE
+   */
+  public static Deadline after(long millis) {
+    if (millis <= 0) {
+      return NONE;
+    }
+    return new Deadline(System.nanoTime() + millis * 1_000_000);
+  }
+
+  /**
+   * Checks if the deadline has passed. Searches call it before each
+   * candidate and stop when it returns true.
+   *
+   * @return True if the deadline has passed
+   */
+  public boolean check() {
+    if (this == NONE || System.nanoTime() - end < 0) {
+      return false;
+    }
+    reached = true;
+    return true;
+  }
+
+  /**
+   * Returns true if a search stopped early because of this deadline, i.e.
+   * its result may not be the exact one.
+   *
+   * @return True if the deadline cut a search
+   */
+  public boolean wasReached() {
+    return reached;
+  }
+}
@@ -1,283 +1,724 @@
-package org.higena.graph;
-
-import edu.mit.csail.sdg.alloy4.A4Reporter;
-import edu.mit.csail.sdg.parser.CompModule;
-import edu.mit.csail.sdg.parser.CompUtil;
-import io.github.cdimascio.dotenv.Dotenv;
-import io.github.cdimascio.dotenv.DotenvException;
-import org.higena.hint.Hint;
-import org.higena.hint.HintGenType;
-import org.higena.hint.HintGenerator;
-import org.higena.parser.A4FParser;
-import org.neo4j.driver.Record;
-
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
-
-/**
- * Wrapper class for the database (Db class). It provides methods to set up the
- * database and to generate hints.
- */
-public class Graph {
-  private final String uri, user, password, databaseName, challenge, predicate;
-  private CompModule challengeModule;
-
-  public Graph(String challenge, String predicate, String filename) {
-    this(challenge, predicate);
-    this.challengeModule = CompUtil.parseEverything_fromFile(new A4Reporter(), null,
-            filename);
-  }
-
-  public Graph(String challenge, String predicate) {
-    String uri, user, password;
-    try {
-      // Use .env
-      Dotenv dotenv = Dotenv.load();
-
-      uri = dotenv.get("URI_NEO4J");
-      user = dotenv.get("USERNAME_NEO4J");
-      password = dotenv.get("PASSWORD_NEO4J");
-    } catch (DotenvException e) {
-      // no .env file found
-      uri = System.getenv("URI_NEO4J");
-      user = System.getenv("USERNAME_NEO4J");
-      password = System.getenv("PASSWORD_NEO4J");
-    }
-
-    if (uri == null || user == null || password == null) {
-      System.out.println("Please set the environment variables URI_NEO4J, " +
-              "USERNAME_NEO4J and PASSWORD_NEO4J");
-      System.exit(1);
-    }
-
-    this.uri = uri;
-    this.user = user;
-    this.password = password;
-
-    this.challenge = challenge;
-    this.predicate = predicate;
-    this.databaseName = genDatabaseName(challenge, predicate);
-
-    // Connect to the default database
-    try (Db db = new Db(uri, user, password, challenge, predicate)) {
-      db.verifyConnection();
-      // Create database for this challenge and predicate if it does not exist
-      db.addDb(this.databaseName);
-    }
-  }
-
-  /**
-   * Generates a databaseName accepted by neo4j. It removes all digits from the
-   * challenge name, converts it to lowercase and takes the first 4 characters.
-   * Then, if the predicate contains digits, it transforms them into letters using
-   * the remainder of the division by 26 of the number (e.g 0 -> a, 1 -> b, etc.)
-   * Otherwise, it just appends the predicate.
-   *
-   * @param challenge Challenge name
-   * @param predicate Predicate name
-   * @return Database name
-   */
-  private String genDatabaseName(String challenge, String predicate) {
-    // remove all digits, convert to lowercase and take the first 4 characters
-    StringBuilder ret = new StringBuilder(challenge.replaceAll("\\d", "").toLowerCase().substring(0, 4));
-
-    // If predicate contains digits, transform them into letters
-    if (predicate.matches(".*\\d.*")) {
-      String[] numbers = predicate.replaceAll("[^0-9]", "").split("");
-      for (Iterator<String> it = Arrays.stream(numbers).iterator(); it.hasNext(); ) {
-        String number = it.next();
-        ret.append((char) (Integer.parseInt(number) + 97));
-      }
-    } else {
-      // If predicate does not contain digits, just append it
-      ret.append(predicate);
-    }
-    return ret.toString();
-  }
-
-  // Hint methods
-
-  /**
-   * Sets up the graph database.
-   */
-  public void setup() {
-    try (Db db = new Db(uri, user, password, databaseName, challenge, predicate)) {
-      System.out.println("[SETUP] Database: " + databaseName);
-      long startTime = System.currentTimeMillis();
-      try {
-        db.setup();
-      } catch (Exception e) {
-        System.err.println("FAILED SETUP: " + e.getMessage());
-        return;
-      }
-      long endTime = System.currentTimeMillis() - startTime;
-      System.out.println("Finished setup in " + endTime + " ms.");
-    }
-  }
-
-  /**
-   * Returns a hint for the given expression. The hint is generated using the
-   * given type of generation.
-   *
-   * @param expr Expression to generate the hint for.
-   * @param type Type of hint generation.
-   * @return Hint for the given expression.
-   */
-  public Hint getHint(String expr, HintGenType type) {
-    return getHint(expr, "", type);
-  }
-
-  /**
-   * Returns a hint for the given expression and code. The hint is generated
-   * using the given type of generation.
-   *
-   * @param expr Expression to generate the hint for.
-   * @param code Alloy code used by the expression.
-   * @param type Type of hint generation.
-   * @return Hint for the given expression.
-   */
-  public Hint getHint(String expr, String code, HintGenType type) {
-    HintGenerator generator = generateHint(expr, code, type);
-    if (generator == null) {
-      return null;
-    }
-    return generator.getHint();
-  }
-
-  /**
-   * Generates a hint for the given expression. The hint is generated using the
-   * given type of generation.
-   *
-   * @param expr Expression to generate the hint for.
-   * @param type Type of hint generation.
-   * @return Hint Generator object that generated the hint.
-   */
-  public HintGenerator generateHint(String expr, String code,
-                                    HintGenType type) {
-    try (Db db = new Db(uri, user, password, databaseName, challenge, predicate)) {
-      if (challengeModule == null) { // if no challengeModule is set, use the
-        // original code
-        try {
-          setChallengeModule();
-        } catch (Exception e) {
-          System.err.println("ERROR: Missing empty submission on the graph.");
-          return null;
-        }
-      }
-      String ast = parse(expr, code);
-      if (ast == null) {
-        return null;
-      }
-      HintGenerator generator = new HintGenerator(expr, code, type, db);
-      generator.generateHint(ast);
-      System.out.println(generator);
-      return generator;
-    }
-  }
-
-  /**
-   * Calculates path used for hint generator.
-   * Used for evaluation purposes.
-   *
-   * @param expr Expression to generate the hint for.
-   * @param code Alloy code used by the expression.
-   * @param type Type of hint generation.
-   * @return Hint Generator object that generated the hint.
-   */
-  public HintGenerator getHintPath(String expr, String code,
-                                    HintGenType type) {
-    try (Db db = new Db(uri, user, password, databaseName, challenge, predicate)) {
-      if (challengeModule == null) { // if no challengeModule is set, use the
-        // original code
-        try {
-          setChallengeModule();
-        } catch (Exception e) {
-          System.err.println("ERROR: Missing empty submission on the graph.");
-          return null;
-        }
-      }
-      String ast = parse(expr, code);
-      if (ast == null) {
-        return null;
-      }
-      HintGenerator generator = new HintGenerator(expr, code, type, db);
-      generator.calculateHintPath(ast);
-      return generator;
-    }
-  }
-
-  /**
-   * Runs a query on the graph database.
-   * @param query Query to run.
-   * @return List of records returned by the query.
-   */
-  public List<Record> runQuery(String query) {
-    try (Db db = new Db(uri, user, password, databaseName, challenge, predicate)) {
-      return db.runQuery(query).list();
-    }
-  }
-
-  /**
-   * Returns statistics for the current database (number of nodes, edges,
-   * correct nodes, incorrect nodes).
-   *
-   * @return Record with the statistics.
-   */
-  public Record getStatistics() {
-    try (Db db = new Db(uri, user, password, databaseName, challenge, predicate)) {
-      return db.getStatistics().single();
-    }
-  }
-
-  /**
-   * Sets the challenge module to the original code of the challenge. Fetches
-   * the original code from the empty submission on the graph.
-   */
-  private void setChallengeModule() {
-    try (Db db = new Db(uri, user, password, databaseName, challenge, predicate)) {
-      String model = db.getOriginalCode();
-      challengeModule = CompUtil.parseEverything_fromString(new A4Reporter(),
-              model);
-    }
-  }
-
-  // Parse functions
-
-  /**
-   * Parses an Alloy expression using the challenge module and returns the AST
-   * of the parsed expression.
-   *
-   * @param expression The expression to parse.
-   * @return The AST of the parsed expression.
-   */
-  private String parse(String expression) {
-    if (expression.equals("")) {
-      return "";
-    }
-    return A4FParser.parse(expression, this.challengeModule).toTreeString();
-  }
-
-  /**
-   * Parses an Alloy expression using the full module code and returns the AST of the parsed expression.
-   *
-   * @param expression The expression to parse.
-   * @param code       The full module code.
-   * @return The AST of the parsed expression.
-   */
-  public String parse(String expression, String code) {
-    String ast;
-    try {
-      ast = parse(expression);
-    } catch (Exception parseExprException) {
-      try {
-        ast = A4FParser.parse(expression, code).toTreeString();
-      } catch (Exception parseException) {
-        System.err.println("Error parsing expression: " + expression);
-        return null;
-      }
-    }
-    return ast;
-  }
-
-}
+package org.higena.graph;
+
+import edu.mit.csail.sdg.alloy4.A4Reporter;
+import edu.mit.csail.sdg.parser.CompModule;
+import edu.mit.csail.sdg.parser.CompUtil;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.github.cdimascio.dotenv.DotenvException;
+import org.higena.ast.AstFingerprint;
+import org.higena.ast.TED;
+import org.higena.hint.Hint;
+import org.higena.hint.HintGenType;
+import org.higena.hint.HintGenerator;
+import org.higena.hint.HintRenderer;
+import org.higena.parser.A4FParser;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wrapper class for the database (Db class). It provides methods to set up the
+ * database and to generate hints. Long-running processes should get their
+ * graphs from the GraphRegistry, which shares one graph per predicate.
+ *
+ * @see GraphRegistry
+ */
+public class Graph {
+  public static int WARM_UP_SOLUTIONS = 20; // Solutions compared on warm-up
+  public static String SNAPSHOT = "none"; // Copy loaded on warm-up: none, memory or offheap
+  public static long LATENCY_BUDGET = 0; // Default ms of the solution search (0 = no limit)
+  private final String uri, user, password, databaseName, challenge, predicate;
+  private final Driver driver; // Shared driver or null
+  private CompModule challengeModule;
+  private GraphWriter writer; // Write-behind buffer or null
+  private volatile HintGraphStore snapshot; // Copy of the graph or null
+  private final SubmissionOverlay overlay =
+          new SubmissionOverlay(); // New submissions not persisted yet
+  private final Map<String, CompletableFuture<HintGenerator>> inFlight =
+          new ConcurrentHashMap<>(); // Hint computations by AST, type and k
+  private final AtomicLong hintRequests = new AtomicLong(), // Parsed requests
+          coalescedRequests = new AtomicLong(); // Requests served by inFlight
+
+  public Graph(String challenge, String predicate, String filename) {
+    this(challenge, predicate);
+    this.challengeModule = CompUtil.parseEverything_fromFile(new A4Reporter(), null,
+            filename);
+  }
+
+  public Graph(String challenge, String predicate) {
+    this(challenge, predicate, loadCredentials(), null);
+  }
+
+  /**
+   * Creates a graph that opens its connections with the given driver, or
+   * with a new driver per connection if it is null.
+   *
+   * @param challenge   Challenge name
+   * @param predicate   Predicate name
+   * @param credentials URI, user and password of the Neo4j server
+   * @param driver      Shared Neo4j driver or null
+   * @see GraphRegistry
+   */
+  Graph(String challenge, String predicate, String[] credentials,
+        Driver driver) {
+    this.uri = credentials[0];
+    this.user = credentials[1];
+    this.password = credentials[2];
+    this.driver = driver;
+
+    this.challenge = challenge;
+    this.predicate = predicate;
+    this.databaseName = genDatabaseName(challenge, predicate);
+
+    // Connect to the default database
+    try (Db db = driver != null ? new Db(driver, "neo4j", challenge, predicate)
+            : new Db(uri, user, password, challenge, predicate)) {
+      if (driver == null) { // A shared driver is verified when created
+        db.verifyConnection();
+      }
+      // Create database for this challenge and predicate if it does not exist
+      db.addDb(this.databaseName);
+    }
+  }
+
+  /**
+   * Reads the URI, user and password of the Neo4j server from the .env file
+   * or, if there is no .env file, from the environment variables.
+   *
+   * @return URI, user and password
+   */
+  static String[] loadCredentials() {
+    String uri, user, password;
+    try {
+      // Use .env
+      Dotenv dotenv = Dotenv.load();
+
+      uri = dotenv.get("URI_NEO4J");
+      user = dotenv.get("USERNAME_NEO4J");
+      password = dotenv.get("PASSWORD_NEO4J");
+    } catch (DotenvException e) {
+      // no .env file found
+      uri = System.getenv("URI_NEO4J");
+      user = System.getenv("USERNAME_NEO4J");
+      password = System.getenv("PASSWORD_NEO4J");
+    }
+
+    if (uri == null || user == null || password == null) {
+      System.out.println("Please set the environment variables URI_NEO4J, " +
+              "USERNAME_NEO4J and PASSWORD_NEO4J");
+      System.exit(1);
+    }
+    return new String[]{uri, user, password};
+  }
+
+  /**
+   * Generates a databaseName accepted by neo4j. It removes all digits from the
+   * challenge name, converts it to lowercase and takes the first 4 characters.
+   * Then, if the predicate contains digits, it transforms them into letters using
+   * the remainder of the division by 26 of the number (e.g 0 -> a, 1 -> b, etc.)
+   * Otherwise, it just appends the predicate.
+   *
+   * @param challenge Challenge name
+   * @param predicate Predicate name
+   * @return Database name
+   */
+  private String genDatabaseName(String challenge, String predicate) {
+    // remove all digits, convert to lowercase and take the first 4 characters
+    StringBuilder ret = new StringBuilder(challenge.replaceAll("\\d", "").toLowerCase().substring(0, 4));
+
+    // If predicate contains digits, transform them into letters
+    if (predicate.matches(".*\\d.*")) {
+      String[] numbers = predicate.replaceAll("[^0-9]", "").split("");
+      for (Iterator<String> it = Arrays.stream(numbers).iterator(); it.hasNext(); ) {
+        String number = it.next();
+        ret.append((char) (Integer.parseInt(number) + 97));
+      }
+    } else {
+      // If predicate does not contain digits, just append it
+      ret.append(predicate);
+    }
+    return ret.toString();
+  }
+
+  // Hint methods
+
+  /**
+   * Sets up the graph database.
+   */
+  public void setup() {
+    try (Db db = openDb()) {
+      System.out.println("[SETUP] Database: " + databaseName);
+      long startTime = System.currentTimeMillis();
+      try {
+        if (writer != null) { // Pending writes refer to the old graph
+          writer.clear();
+        }
+        snapshot = null;
+        overlay.clear();
+        db.setup();
+        HintRenderer.clearEdgeMemo();
+      } catch (Exception e) {
+        System.err.println("FAILED SETUP: " + e.getMessage());
+        return;
+      }
+      long endTime = System.currentTimeMillis() - startTime;
+      System.out.println("Finished setup in " + endTime + " ms.");
+    }
+  }
+
+  /**
+   * Prepares the graph for hint generation so that the first hint does not
+   * pay for it: parses the challenge module, loads the solution catalog,
+   * searches the hint paths of the most popular solution with each hint
+   * type (loading the A* search or creating the Dijkstra projection it
+   * uses) and runs the parser and TED on the most popular solutions. Loads
+   * the copy of the graph set in SNAPSHOT. Hint requests do not wait for it.
+   */
+  public void warmUp() {
+    if (SNAPSHOT.equals("memory")) {
+      useMemoryStore();
+    } else if (SNAPSHOT.equals("offheap")) {
+      useOffHeapStore();
+    }
+    try (Db db = openDb()) {
+      synchronized (this) {
+        if (challengeModule == null) {
+          setChallengeModule();
+        }
+      }
+      List<SolutionCatalog.Entry> solutions = SolutionCatalog.of(db).getEntries();
+      if (solutions.isEmpty()) {
+        return;
+      }
+      String ast = solutions.get(0).getAst();
+      SubmissionNode solution = db.getNodeById(solutions.get(0).getId());
+      if (solution != null) { // May have been deleted by a setup
+        parse(solution.getExpr());
+      }
+      TED ted = new TED();
+      for (int i = 1; i < Math.min(WARM_UP_SOLUTIONS, solutions.size()); i++) {
+        ted.computeTreeDiff(ast, solutions.get(i).getAst());
+      }
+      for (HintGenType type : HintGenType.values()) {
+        db.getHintPaths(ast, type.toString(), 1);
+      }
+    }
+  }
+
+  /**
+   * Enables write-behind: nodes and edges created during hint generation are
+   * buffered and written to the database in batches by a GraphWriter.
+   *
+   * @see GraphWriter
+   */
+  public synchronized void enableWriteBehind() {
+    if (writer == null) {
+      writer = new GraphWriter(openDb());
+    }
+  }
+
+  /**
+   * Disables write-behind, flushing the pending writes to the database.
+   */
+  public synchronized void disableWriteBehind() {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  /**
+   * Loads a copy of the graph into memory and generates the next hints from
+   * it instead of the database. Submissions and edges created by the hints
+   * are only kept in memory.
+   *
+   * @see MemoryGraphStore
+   */
+  public synchronized void useMemoryStore() {
+    try (Db db = openDb()) {
+      snapshot = MemoryGraphStore.load(db);
+    }
+  }
+
+  /**
+   * Like useMemoryStore but keeps the copy of the graph outside the Java
+   * heap.
+   *
+   * @see OffHeapGraphStore
+   */
+  public synchronized void useOffHeapStore() {
+    try (Db db = openDb()) {
+      snapshot = OffHeapGraphStore.load(db);
+    }
+  }
+
+  /**
+   * Returns the off-heap memory used by the copy of the graph.
+   *
+   * @return Size in bytes or 0 if the copy is not off-heap
+   */
+  public long getOffHeapBytes() {
+    HintGraphStore store = snapshot;
+    return store instanceof OffHeapGraphStore ?
+            ((OffHeapGraphStore) store).getOffHeapBytes() : 0;
+  }
+
+  /**
+   * Returns a hint for the given expression. The hint is generated using the
+   * given type of generation.
+   *
+   * @param expr Expression to generate the hint for.
+   * @param type Type of hint generation.
+   * @return Hint for the given expression.
+   */
+  public Hint getHint(String expr, HintGenType type) {
+    return getHint(expr, "", type);
+  }
+
+  /**
+   * Returns a hint for the given expression and code. The hint is generated
+   * using the given type of generation.
+   *
+   * @param expr Expression to generate the hint for.
+   * @param code Alloy code used by the expression.
+   * @param type Type of hint generation.
+   * @return Hint for the given expression.
+   */
+  public Hint getHint(String expr, String code, HintGenType type) {
+    HintGenerator generator = generateHint(expr, code, type);
+    if (generator == null) {
+      return null;
+    }
+    return generator.getHint();
+  }
+
+  /**
+   * Generates a hint for the given expression. The hint is generated using the
+   * given type of generation.
+   *
+   * @param expr Expression to generate the hint for.
+   * @param type Type of hint generation.
+   * @return Hint Generator object that generated the hint.
+   */
+  public HintGenerator generateHint(String expr, String code,
+                                    HintGenType type) {
+    return generateHint(expr, code, type, 1);
+  }
+
+  /**
+   * Generates a hint for the given expression and up to k-1 alternative
+   * hints that lead to other solutions. The hints are generated using the
+   * given type of generation.
+   * Concurrent requests with the same AST, type and k are coalesced: only
+   * the first one computes the hints and the others wait for it and share
+   * the resulting Hint Generator. Other requests run concurrently: writes
+   * are idempotent and only the projection updates are serialized (see
+   * Db.getHintPaths). Coalesced requests still count as visits of the
+   * overlay (see visitOverlay).
+   *
+   * @param expr Expression to generate the hints for.
+   * @param code Alloy code used by the expression.
+   * @param type Type of hint generation.
+   * @param k    Maximum number of hints.
+   * @return Hint Generator object that generated the hints.
+   * @see HintGenerator#getAlternatives()
+   */
+  public HintGenerator generateHint(String expr, String code,
+                                    HintGenType type, int k) {
+    return generateHint(expr, code, type, k, LATENCY_BUDGET);
+  }
+
+  /**
+   * Same as generateHint(String, String, HintGenType, int) but with the
+   * given time budget for the search of the most similar solution. When the
+   * budget is spent, the most similar solution found so far is used and the
+   * hint is flagged as approximate.
+   *
+   * @param expr   Expression to generate the hints for.
+   * @param code   Alloy code used by the expression.
+   * @param type   Type of hint generation.
+   * @param k      Maximum number of hints.
+   * @param budget Budget of the solution search in milliseconds (0 for no
+   *               limit).
+   * @return Hint Generator object that generated the hints.
+   * @see HintGenerator#setLatencyBudget(long)
+   */
+  public HintGenerator generateHint(String expr, String code,
+                                    HintGenType type, int k, long budget) {
+    String ast = parseRequest(expr, code);
+    if (ast == null) {
+      return null;
+    }
+    hintRequests.incrementAndGet();
+    SubmissionOverlay.Entry entry = visitOverlay(expr, ast);
+    if (entry != null && entry.isPromoted()) {
+      // Must add the submission to the graph itself: not coalesced
+      return computeHint(expr, code, ast, type, k, budget, entry);
+    }
+    // Wait for an identical request that is already being computed
+    String key = AstFingerprint.of(ast) + "|" + type + "|" + k + "|" + budget;
+    CompletableFuture<HintGenerator> flight = new CompletableFuture<>();
+    CompletableFuture<HintGenerator> leader = inFlight.putIfAbsent(key, flight);
+    if (leader != null) {
+      coalescedRequests.incrementAndGet();
+      try {
+        return leader.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ?
+                (RuntimeException) e.getCause() : e;
+      }
+    }
+    try {
+      HintGenerator generator = computeHint(expr, code, ast, type, k, budget,
+              entry);
+      flight.complete(generator);
+      return generator;
+    } catch (RuntimeException e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /**
+   * Computes the hints for the given AST.
+   *
+   * @param expr   Expression to generate the hints for.
+   * @param code   Alloy code used by the expression.
+   * @param ast    AST of the expression.
+   * @param type   Type of hint generation.
+   * @param k      Maximum number of hints.
+   * @param budget Budget of the solution search in milliseconds.
+   * @param entry  Overlay entry recorded for the request or null.
+   * @return Hint Generator object that generated the hints.
+   */
+  private HintGenerator computeHint(String expr, String code, String ast,
+                                    HintGenType type, int k, long budget,
+                                    SubmissionOverlay.Entry entry) {
+    try (HintGraphStore store = openStore()) {
+      HintGenerator generator = new HintGenerator(expr, code, type, store);
+      prepare(generator, store);
+      generator.setOverlayEntry(entry);
+      generator.setLatencyBudget(budget);
+      generator.generateHints(ast, k);
+      System.out.println(generator);
+      return generator;
+    }
+  }
+
+  /**
+   * Asynchronous version of getHint. Blocking steps run on the common
+   * fork-join pool.
+   *
+   * @param expr Expression to generate the hint for.
+   * @param code Alloy code used by the expression.
+   * @param type Type of hint generation.
+   * @return Future completed with the hint or null if it cannot be generated.
+   * @see #generateHintAsync(String, String, HintGenType, int, Executor)
+   */
+  public CompletableFuture<Hint> getHintAsync(String expr, String code,
+                                              HintGenType type) {
+    return generateHintAsync(expr, code, type, 1, ForkJoinPool.commonPool())
+            .thenApply(generator -> generator == null ? null : generator.getHint());
+  }
+
+  /**
+   * Asynchronous version of generateHint with the default budget
+   * (LATENCY_BUDGET).
+   *
+   * @see #generateHintAsync(String, String, HintGenType, int, long, Executor)
+   */
+  public CompletableFuture<HintGenerator> generateHintAsync(String expr,
+                                                            String code,
+                                                            HintGenType type,
+                                                            int k,
+                                                            Executor executor) {
+    return generateHintAsync(expr, code, type, k, LATENCY_BUDGET, executor);
+  }
+
+  /**
+   * Asynchronous version of generateHint. Database queries of the hint path
+   * run on the asynchronous driver. Parsing, TED computations and writes to
+   * the graph run on the given executor. Like generateHint, identical
+   * concurrent requests are coalesced and the others run concurrently. No
+   * thread is blocked while a projection update waits for the one before.
+   *
+   * @param expr     Expression to generate the hints for.
+   * @param code     Alloy code used by the expression.
+   * @param type     Type of hint generation.
+   * @param k        Maximum number of hints.
+   * @param budget   Budget of the solution search in milliseconds (0 for no
+   *                 limit).
+   * @param executor Executor for the blocking and CPU-bound steps.
+   * @return Future completed with the Hint Generator object that generated
+   * the hints or null if they cannot be generated.
+   * @see HintGenerator#generateHintsAsync(String, int, Executor)
+   */
+  public CompletableFuture<HintGenerator> generateHintAsync(String expr,
+                                                            String code,
+                                                            HintGenType type,
+                                                            int k,
+                                                            long budget,
+                                                            Executor executor) {
+    return CompletableFuture.supplyAsync(() -> parseRequest(expr, code), executor)
+            .thenCompose(ast -> {
+              if (ast == null) {
+                return CompletableFuture.completedFuture(null);
+              }
+              hintRequests.incrementAndGet();
+              SubmissionOverlay.Entry entry = visitOverlay(expr, ast);
+              if (entry != null && entry.isPromoted()) { // Not coalesced
+                return startHintAsync(expr, code, ast, type, k, budget, entry,
+                        executor);
+              }
+              String key = AstFingerprint.of(ast) + "|" + type + "|" + k + "|" + budget;
+              CompletableFuture<HintGenerator> flight = new CompletableFuture<>();
+              CompletableFuture<HintGenerator> leader = inFlight.putIfAbsent(key, flight);
+              if (leader != null) {
+                coalescedRequests.incrementAndGet();
+                return leader;
+              }
+              CompletableFuture.supplyAsync(() -> startHintAsync(expr, code,
+                      ast, type, k, budget, entry, executor), executor)
+                      .thenCompose(started -> started)
+                      .whenComplete((generator, e) -> {
+                        inFlight.remove(key, flight);
+                        if (e != null) {
+                          flight.completeExceptionally(e);
+                        } else {
+                          flight.complete(generator);
+                        }
+                      });
+              return flight;
+            });
+  }
+
+  /**
+   * Starts the asynchronous hint generation. The store is closed when the
+   * generation finishes.
+   */
+  private CompletableFuture<HintGenerator> startHintAsync(String expr,
+                                                          String code,
+                                                          String ast,
+                                                          HintGenType type,
+                                                          int k, long budget,
+                                                          SubmissionOverlay.Entry entry,
+                                                          Executor executor) {
+    HintGraphStore store = openStore();
+    HintGenerator generator = new HintGenerator(expr, code, type, store);
+    prepare(generator, store);
+    generator.setOverlayEntry(entry);
+    generator.setLatencyBudget(budget);
+    return generator.generateHintsAsync(ast, k, executor)
+            .whenComplete((res, e) -> store.close());
+  }
+
+  /**
+   * Calculates path used for hint generator.
+   * Used for evaluation purposes.
+   *
+   * @param expr Expression to generate the hint for.
+   * @param code Alloy code used by the expression.
+   * @param type Type of hint generation.
+   * @return Hint Generator object that generated the hint.
+   */
+  public HintGenerator getHintPath(String expr, String code,
+                                    HintGenType type) {
+    String ast = parseRequest(expr, code);
+    if (ast == null) {
+      return null;
+    }
+    try (HintGraphStore store = openStore()) {
+      HintGenerator generator = new HintGenerator(expr, code, type, store);
+      prepare(generator, store);
+      generator.calculateHintPath(ast);
+      return generator;
+    }
+  }
+
+  /**
+   * Sets the challenge module if needed and parses the expression of a hint
+   * request.
+   *
+   * @param expr Expression to parse.
+   * @param code Alloy code used by the expression.
+   * @return AST of the expression or null if it cannot be parsed.
+   */
+  private String parseRequest(String expr, String code) {
+    synchronized (this) {
+      if (challengeModule == null) { // if no challengeModule is set, use the
+        // original code
+        try {
+          setChallengeModule();
+        } catch (Exception e) {
+          System.err.println("ERROR: Missing empty submission on the graph.");
+          return null;
+        }
+      }
+    }
+    return parse(expr, code);
+  }
+
+  /**
+   * Runs a query on the graph database.
+   * @param query Query to run.
+   * @return List of records returned by the query.
+   */
+  public List<Record> runQuery(String query) {
+    try (Db db = openDb()) {
+      return db.runQuery(query).list();
+    }
+  }
+
+  /**
+   * Returns statistics for the current database (number of nodes, edges,
+   * correct nodes, incorrect nodes).
+   *
+   * @return Record with the statistics.
+   */
+  public Record getStatistics() {
+    try (Db db = openDb()) {
+      return db.getStatistics().single();
+    }
+  }
+
+  public long getHintRequests() {
+    return hintRequests.get();
+  }
+
+  public long getCoalescedRequests() {
+    return coalescedRequests.get();
+  }
+
+  public SubmissionOverlay getOverlay() {
+    return overlay;
+  }
+
+  /**
+   * Sets the challenge module to the original code of the challenge. Fetches
+   * the original code from the empty submission on the graph.
+   */
+  private void setChallengeModule() {
+    try (Db db = openDb()) {
+      String model = db.getOriginalCode();
+      challengeModule = CompUtil.parseEverything_fromString(new A4Reporter(),
+              model);
+    }
+  }
+
+  /**
+   * Opens a connection to the database of this graph.
+   *
+   * @return Database connection
+   */
+  private Db openDb() {
+    if (driver != null) {
+      return new Db(driver, databaseName, challenge, predicate);
+    }
+    return new Db(uri, user, password, databaseName, challenge, predicate);
+  }
+
+  /**
+   * Returns the copy of the graph if it is loaded or a new connection to
+   * the database otherwise.
+   *
+   * @return Store used to generate hints
+   * @see #useMemoryStore()
+   * @see #useOffHeapStore()
+   */
+  private HintGraphStore openStore() {
+    HintGraphStore store = snapshot;
+    return store != null ? store : openDb();
+  }
+
+  /**
+   * Records a request for a submission in the overlay if it is enabled and
+   * the submission is neither in the graph nor pending in the write-behind
+   * buffer. Called for every parsed request before identical requests are
+   * coalesced, so the overlay counts all of them. Costs one lookup of the
+   * AST per request while the overlay is enabled.
+   *
+   * @param expr Expression of the submission
+   * @param ast  AST of the submission
+   * @return Entry of the submission or null if it is in the graph or the
+   * overlay is disabled
+   * @see SubmissionOverlay#visit(String, String)
+   */
+  private SubmissionOverlay.Entry visitOverlay(String expr, String ast) {
+    if (!SubmissionOverlay.ENABLED) {
+      return null;
+    }
+    try (HintGraphStore store = openStore()) {
+      GraphWriter pending = store instanceof Db ? writer : null;
+      if ((pending != null && pending.getPendingNode(ast) != null) ||
+              store.getNodeByAST(ast) != null) {
+        return null;
+      }
+    }
+    return overlay.visit(expr, ast);
+  }
+
+  /**
+   * Sets the write-behind buffer of the generator if it writes to the
+   * database. The buffer is not used by the in-memory store. Sets the
+   * overlay of the new submissions if SubmissionOverlay.ENABLED is set.
+   */
+  private void prepare(HintGenerator generator, HintGraphStore store) {
+    if (store instanceof Db) {
+      generator.setWriter(writer);
+    }
+    if (SubmissionOverlay.ENABLED) {
+      generator.setOverlay(overlay);
+    }
+  }
+
+  // Parse functions
+
+  /**
+   * Parses an Alloy expression using the challenge module and returns the AST
+   * of the parsed expression.
+   *
+   * @param expression The expression to parse.
+   * @return The AST of the parsed expression.
+   */
+  private String parse(String expression) {
+    if (expression.equals("")) {
+      return "";
+    }
+    return A4FParser.parse(expression, this.challengeModule).toTreeString();
+  }
+
+  /**
+   * Parses an Alloy expression using the full module code and returns the AST of the parsed expression.
+   *
+   * @param expression The expression to parse.
+   * @param code       The full module code.
+   * @return The AST of the parsed expression.
+   */
+  public String parse(String expression, String code) {
+    String ast;
+    try {
+      ast = parse(expression);
+    } catch (Exception parseExprException) {
+      try {
+        ast = A4FParser.parse(expression, code).toTreeString();
+      } catch (Exception parseException) {
+        System.err.println("Error parsing expression: " + expression);
+        return null;
+      }
+    }
+    return ast;
+  }
+
+}
@@ -0,0 +1,135 @@
+package org.higena.graph;
+
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide registry of graphs. It hands out one Graph per challenge and
+ * predicate, created on first use, so the parsed challenge module, the
+ * in-flight hint computations and the write-behind buffer of a predicate are
+ * shared by all its users. Getting the graph of a predicate that was already
+ * used does not read the .env file, connect to the server or create the
+ * database again.
+ * <p>
+ * All graphs of the registry open their connections with a single Neo4j
+ * driver, which keeps a connection pool. All methods are thread-safe.
+ *
+ * @see Graph
+ */
+public class GraphRegistry {
+  private static final GraphRegistry instance = new GraphRegistry(); // Shared registry
+
+  private final Map<String, Graph> graphs =
+          new ConcurrentHashMap<>(); // Graphs by challenge and predicate
+  private String[] credentials; // URI, user and password of the server
+  private Driver driver; // Driver shared by the graphs
+
+  public static GraphRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the graph of the given challenge and predicate, creating it if
+   * it does not exist.
+   *
+   * @param challenge Challenge name
+   * @param predicate Predicate name
+   * @return Shared graph of the challenge and predicate
+   */
+  public Graph get(String challenge, String predicate) {
+    String key = challenge + "/" + predicate;
+    Graph graph = graphs.get(key);
+    if (graph != null) {
+      return graph;
+    }
+    return graphs.computeIfAbsent(key, k -> {
+      Driver shared = getDriver();
+      return new Graph(challenge, predicate, credentials, shared);
+    });
+  }
+
+  /**
+   * Creates and warms up the graphs of the given predicates concurrently.
+   * The time taken by each predicate is logged. A predicate that fails to
+   * warm up is logged and skipped.
+   * <p>
+   * The warm-up runs on its own pool with an unbounded queue, shut down
+   * when all predicates are done, so any number of predicates can be
+   * warmed up without taking the threads or queue of a bounded pool.
+   *
+   * @param predicates Predicates as "challenge/predicate"
+   * @param threads    Max. predicates warmed up at the same time
+   * @return Future completed when all predicates are warmed up
+   * @see Graph#warmUp()
+   */
+  public CompletableFuture<Void> warmUp(List<String> predicates, int threads) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CompletableFuture<?>[] tasks = new CompletableFuture<?>[predicates.size()];
+    for (int i = 0; i < tasks.length; i++) {
+      String key = predicates.get(i);
+      tasks[i] = CompletableFuture.runAsync(() -> {
+        long start = System.currentTimeMillis();
+        try {
+          String[] names = key.split("/", 2);
+          get(names[0], names[1]).warmUp();
+          System.out.println("[WARM-UP] " + key + ": " +
+                  (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+          System.err.println("[WARM-UP] " + key + " failed: " + e.getMessage());
+        }
+      }, executor);
+    }
+    return CompletableFuture.allOf(tasks)
+            .whenComplete((result, e) -> executor.shutdown());
+  }
+
+  /**
+   * Flushes the pending writes of all graphs, removes them from the registry
+   * with their A* searches and closes the shared driver.
+   */
+  public synchronized void close() {
+    graphs.values().forEach(Graph::disableWriteBehind);
+    graphs.clear();
+    AStarSearch.clear();
+    if (driver != null) {
+      driver.close();
+      driver = null;
+    }
+  }
+
+  // Getters
+
+  public Collection<Graph> getGraphs() {
+    return Collections.unmodifiableCollection(graphs.values());
+  }
+
+  public int size() {
+    return graphs.size();
+  }
+
+  // Auxiliary methods
+
+  /**
+   * Returns the shared driver, creating it and verifying the connection on
+   * first use.
+   */
+  private synchronized Driver getDriver() {
+    if (driver == null) {
+      credentials = Graph.loadCredentials();
+      driver = GraphDatabase.driver(credentials[0],
+              AuthTokens.basic(credentials[1], credentials[2]));
+      driver.verifyConnectivity();
+    }
+    return driver;
+  }
+}
@@ -0,0 +1,386 @@
+package org.higena.graph;
+
+import org.higena.ast.AstFingerprint;
+import org.higena.ast.TED;
+import org.higena.ast.actions.EncodedActions;
+import org.higena.ast.actions.TreeDiff;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for the nodes and edges created while generating
+ * hints. New Incorrect nodes and Derives edges are kept in memory and
+ * written to the database by a background thread in batches, so hint
+ * requests do not wait for the writes.
+ * <p>
+ * A batch is written when FLUSH_SIZE mutations are pending or every
+ * FLUSH_INTERVAL milliseconds. Every mutation is also appended to a journal
+ * file before it is acknowledged. The journal only keeps the mutations not
+ * yet written, so they are replayed if the process stops before a flush.
+ * Failed flushes are retried with exponential backoff. A mutation that
+ * cannot be converted to a write (e.g. an AST that TED fails on) is moved
+ * out of the batch and the journal to a rejected file, so it does not block
+ * the other mutations.
+ * <p>
+ * Pending nodes can be read back with getPendingNode, so requests see the
+ * nodes created by previous requests before they reach the database.
+ */
+public class GraphWriter implements AutoCloseable {
+  public static int FLUSH_SIZE = 100; // Pending mutations that trigger a flush
+  public static long FLUSH_INTERVAL = 1000; // Milliseconds between flushes
+  public static String JOURNAL_DIR = "journal/"; // Directory of the journals
+  private static final long MAX_BACKOFF = 60000; // Max. ms between retries
+  private final Db db; // Database connection used by the writer thread
+  private final File journal; // Pending mutations, one JSON object per line
+  private final File rejected; // Mutations that cannot be written
+  private final ScheduledExecutorService scheduler =
+          Executors.newSingleThreadScheduledExecutor(); // Writer thread
+  private final Map<String, JSONObject> pending =
+          new LinkedHashMap<>(); // Mutations by key in arrival order
+  private final Map<String, SubmissionNode> pendingNodes =
+          new HashMap<>(); // Pending nodes by AST fingerprint
+  private long backoff = 0, nextAttempt = 0; // Retry state after failures
+
+  public GraphWriter(Db db) {
+    this.db = db;
+    this.journal = new File(JOURNAL_DIR + db.getName() + ".jsonl");
+    this.rejected = new File(JOURNAL_DIR + db.getName() + ".rejected.jsonl");
+    replayJournal();
+    scheduler.scheduleWithFixedDelay(this::tick, FLUSH_INTERVAL,
+            FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  // Mutations
+
+  /**
+   * Adds a new Incorrect node. If a node with the same AST is pending, it
+   * is returned instead. Pending nodes have a temporary id (see
+   * SubmissionNode#nextTemporaryId).
+   *
+   * @param expr       Expression of the node
+   * @param ast        AST of the node
+   * @param code       Alloy code of the submission
+   * @param popularity Popularity of the node
+   * @return The node that will be written
+   */
+  public synchronized SubmissionNode addNode(String expr, String ast, String code,
+                                             double popularity) {
+    String astHash = AstFingerprint.of(ast);
+    SubmissionNode node = pendingNodes.get(astHash);
+    if (node != null) {
+      return node;
+    }
+    JSONObject mutation = new JSONObject();
+    mutation.put("type", "node");
+    mutation.put("astHash", astHash);
+    mutation.put("ast", ast);
+    mutation.put("expr", expr);
+    mutation.put("code", code);
+    mutation.put("popularity", popularity);
+    add(getKey(mutation), mutation);
+    return pendingNodes.get(astHash);
+  }
+
+  /**
+   * Adds a new Derives edge between two nodes. The tree difference of the
+   * edge is computed when the edge is written.
+   *
+   * @param src Source node
+   * @param dst Destination node
+   */
+  public synchronized void addEdge(SubmissionNode src, SubmissionNode dst) {
+    JSONObject mutation = new JSONObject();
+    mutation.put("type", "edge");
+    mutation.put("src", src.getAst());
+    mutation.put("dst", dst.getAst());
+    String key = getKey(mutation);
+    if (!pending.containsKey(key)) {
+      add(key, mutation);
+    }
+  }
+
+  /**
+   * Returns the pending node with the given AST.
+   *
+   * @param ast AST of the node
+   * @return Node or null if no node with the AST is pending
+   */
+  public synchronized SubmissionNode getPendingNode(String ast) {
+    return pendingNodes.isEmpty() ? null : pendingNodes.get(AstFingerprint.of(ast));
+  }
+
+  public synchronized int size() {
+    return pending.size();
+  }
+
+  /**
+   * Returns the delay before the next attempt after a failed flush. It
+   * doubles with every failure up to one minute.
+   *
+   * @return Delay in milliseconds or 0 if the last flush succeeded
+   */
+  public synchronized long getBackoff() {
+    return backoff;
+  }
+
+  /**
+   * Discards all pending mutations. Used when the database is set up again.
+   */
+  public synchronized void clear() {
+    pending.clear();
+    pendingNodes.clear();
+    writeJournal();
+  }
+
+  // Flush
+
+  /**
+   * Writes all pending mutations to the database in one transaction. Runs
+   * on the writer thread. Mutations that cannot be converted are rejected.
+   * If the write fails, the others stay pending and the next attempt is
+   * delayed.
+   */
+  private void flush() {
+    Map<String, JSONObject> batch;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = new LinkedHashMap<>(pending);
+    }
+
+    List<Map<String, Object>> nodes = new ArrayList<>(), edges = new ArrayList<>();
+    TED ted = new TED();
+    Iterator<Map.Entry<String, JSONObject>> it = batch.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, JSONObject> entry = it.next();
+      JSONObject mutation = entry.getValue();
+      try {
+        if (mutation.getString("type").equals("node")) {
+          nodes.add(Map.of("astHash", mutation.getString("astHash"),
+                  "ast", mutation.getString("ast"),
+                  "expr", mutation.getString("expr"),
+                  "code", mutation.getString("code"),
+                  "popularity", getPopularity(mutation)));
+        } else {
+          String src = mutation.getString("src"), dst = mutation.getString("dst");
+          TreeDiff diff = ted.computeTreeDiff(src, dst);
+          EncodedActions encoded = diff.getEncodedActions();
+          edges.add(Map.of("src", AstFingerprint.of(src),
+                  "dst", AstFingerprint.of(dst),
+                  "ted", diff.getTed(),
+                  "operations", diff.getOperations(),
+                  "opCodes", encoded.getCodes(),
+                  "opLabels", encoded.getLabels()));
+        }
+      } catch (RuntimeException | StackOverflowError e) {
+        // Retrying would fail again: set the mutation aside
+        it.remove();
+        reject(entry.getKey(), mutation, e);
+      }
+    }
+
+    try {
+      db.writeBatch(nodes, edges);
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        backoff = backoff == 0 ? FLUSH_INTERVAL : Math.min(backoff * 2, MAX_BACKOFF);
+        nextAttempt = System.currentTimeMillis() + backoff;
+      }
+      System.err.println("[WRITER] Failed to write " + batch.size() +
+              " mutations. Retrying in " + backoff + " ms: " + e.getMessage());
+      return;
+    }
+
+    synchronized (this) {
+      for (Map.Entry<String, JSONObject> entry : batch.entrySet()) {
+        pending.remove(entry.getKey(), entry.getValue());
+        if (entry.getValue().getString("type").equals("node")) {
+          pendingNodes.remove(entry.getValue().getString("astHash"));
+        }
+      }
+      backoff = 0;
+      nextAttempt = 0;
+      writeJournal();
+    }
+  }
+
+  /**
+   * Flushes the pending mutations unless a retry is scheduled for later.
+   * Never throws, since the scheduler stops running a task that throws.
+   */
+  private void tick() {
+    synchronized (this) {
+      if (System.currentTimeMillis() < nextAttempt) {
+        return;
+      }
+    }
+    try {
+      flush();
+    } catch (Throwable e) {
+      System.err.println("[WRITER] Flush failed: " + e);
+    }
+  }
+
+  /**
+   * Removes a mutation that cannot be written from the pending mutations
+   * and the journal. It is appended to the rejected file next to the
+   * journal so it can be inspected.
+   *
+   * @param key      Key of the mutation
+   * @param mutation Mutation that cannot be written
+   * @param cause    Error raised by the mutation
+   */
+  private synchronized void reject(String key, JSONObject mutation,
+                                   Throwable cause) {
+    System.err.println("[WRITER] Rejected mutation " + key + ": " + cause);
+    if (pending.remove(key, mutation)) {
+      if (mutation.optString("type").equals("node")) {
+        pendingNodes.remove(mutation.optString("astHash"));
+      }
+      writeJournal();
+    }
+    appendTo(rejected, mutation);
+  }
+
+  /**
+   * Stops the writer thread after writing the pending mutations. Mutations
+   * that cannot be written stay in the journal.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+    db.close();
+  }
+
+  // Auxiliary methods
+
+  /**
+   * Adds a mutation to the pending mutations and to the journal. Triggers
+   * a flush if FLUSH_SIZE mutations are pending.
+   */
+  private void add(String key, JSONObject mutation) {
+    track(key, mutation);
+    appendToJournal(mutation);
+    if (pending.size() >= FLUSH_SIZE && !scheduler.isShutdown()) {
+      scheduler.execute(this::tick);
+    }
+  }
+
+  /**
+   * Adds a mutation to the pending mutations and, if it is a node, to the
+   * pending nodes. Pending nodes get a temporary negative id until the
+   * database assigns their id.
+   */
+  private void track(String key, JSONObject mutation) {
+    pending.put(key, mutation);
+    if (mutation.getString("type").equals("node")) {
+      pendingNodes.put(mutation.getString("astHash"), new SubmissionNode(
+              SubmissionNode.nextTemporaryId(), mutation.getString("ast"),
+              mutation.getString("expr"), getPopularity(mutation),
+              List.of("Submission", "Incorrect")));
+    }
+  }
+
+  /**
+   * Returns the key of a mutation. Mutations with the same key have the
+   * same effect on the database.
+   */
+  private static String getKey(JSONObject mutation) {
+    if (mutation.getString("type").equals("node")) {
+      return "node:" + mutation.getString("astHash");
+    }
+    return "edge:" + AstFingerprint.of(mutation.getString("src")) + ">" +
+            AstFingerprint.of(mutation.getString("dst"));
+  }
+
+  /**
+   * Returns the popularity of a node mutation. Journals written before
+   * nodes had a popularity default to 1.
+   */
+  private static double getPopularity(JSONObject mutation) {
+    return mutation.optDouble("popularity", 1.0);
+  }
+
+  private void appendToJournal(JSONObject mutation) {
+    appendTo(journal, mutation);
+  }
+
+  private static void appendTo(File file, JSONObject mutation) {
+    try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8, true)) {
+      writer.write(mutation.toString() + '\n');
+    } catch (IOException e) {
+      System.err.println("[WRITER] Failed to write " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Replaces the journal with the pending mutations.
+   */
+  private void writeJournal() {
+    File tmp = new File(journal.getPath() + ".tmp");
+    try (FileWriter writer = new FileWriter(tmp, StandardCharsets.UTF_8)) {
+      for (JSONObject mutation : pending.values()) {
+        writer.write(mutation.toString() + '\n');
+      }
+    } catch (IOException e) {
+      System.err.println("[WRITER] Failed to write journal: " + e.getMessage());
+      return;
+    }
+    try {
+      Files.move(tmp.toPath(), journal.toPath(),
+              StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      System.err.println("[WRITER] Failed to replace journal: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Loads the mutations left in the journal by a previous run.
+   */
+  private synchronized void replayJournal() {
+    journal.getParentFile().mkdirs();
+    if (!journal.exists()) {
+      return;
+    }
+    try {
+      for (String line : Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8)) {
+        if (line.isBlank()) {
+          continue;
+        }
+        try {
+          JSONObject mutation = new JSONObject(line);
+          track(getKey(mutation), mutation);
+        } catch (JSONException e) { // Truncated or invalid line
+          System.err.println("[WRITER] Skipped journal line: " + e.getMessage());
+          appendTo(rejected, new JSONObject().put("line", line));
+        }
+      }
+      System.out.println("[WRITER] Replayed " + pending.size() + " mutations from " + journal);
+    } catch (IOException e) {
+      System.err.println("[WRITER] Failed to read journal: " + e.getMessage());
+    }
+  }
+}
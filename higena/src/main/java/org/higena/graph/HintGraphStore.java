@@ -0,0 +1,168 @@
+package org.higena.graph;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Storage of a predicate graph used to generate hints. It covers the
+ * operations of the hint generation: finding a submission by AST, finding
+ * the most similar solution, finding the shortest paths to solutions and
+ * adding submissions and edges.
+ * <p>
+ * Implementations:
+ * <ul>
+ *   <li>Db: Neo4j database (with GDS for the Dijkstra's algorithm).</li>
+ *   <li>MemoryGraphStore: in-memory graph, loaded from a database or built
+ *   in code. No server is needed.</li>
+ * </ul>
+ *
+ * @see org.higena.hint.HintGenerator
+ */
+public interface HintGraphStore extends AutoCloseable {
+
+  /**
+   * Returns the node with the given AST.
+   *
+   * @param ast AST of the node
+   * @return Node with the AST or null if it does not exist
+   */
+  SubmissionNode getNodeByAST(String ast);
+
+  /**
+   * Returns the node of the given category (e.g. Correct) with the lowest
+   * TED to the given AST.
+   *
+   * @param ast      AST to compare with
+   * @param category Label of the nodes to search
+   * @return Most similar node or null if there are no nodes of the category
+   */
+  default SubmissionNode getMostSimilarNode(String ast, String category) {
+    return getMostSimilarNode(ast, category, Deadline.NONE);
+  }
+
+  /**
+   * Same as getMostSimilarNode(String, String) but stops comparing nodes
+   * once the deadline has passed and returns the most similar node found so
+   * far (see Deadline#wasReached). At least one node is compared.
+   *
+   * @param ast      AST to compare with
+   * @param category Label of the nodes to search
+   * @param deadline Time limit of the search
+   * @return Most similar node found or null if there are no nodes of the
+   * category
+   */
+  SubmissionNode getMostSimilarNode(String ast, String category,
+                                    Deadline deadline);
+
+  /**
+   * Returns the shortest paths from the source node to the k nearest
+   * distinct Correct nodes using the given property as edge weight.
+   *
+   * @param source         Source node
+   * @param weightProperty Property used as weight (see HintGenType)
+   * @param k              Maximum number of paths
+   * @return Up to k paths ordered by cost
+   */
+  List<SolutionPath> getShortestPaths(SubmissionNode source,
+                                      String weightProperty, int k);
+
+  /**
+   * Returns the node with the given AST and its shortest paths to the k
+   * nearest distinct Correct nodes.
+   *
+   * @param ast            AST of the source node
+   * @param weightProperty Property used as weight (see HintGenType)
+   * @param k              Maximum number of paths
+   * @return Source node and paths or null if there is no node with the AST
+   */
+  default Paths getHintPaths(String ast, String weightProperty, int k) {
+    SubmissionNode source = getNodeByAST(ast);
+    if (source == null) {
+      return null;
+    }
+    return new Paths(source, getShortestPaths(source, weightProperty, k));
+  }
+
+  /**
+   * Asynchronous version of getHintPaths. By default, it runs getHintPaths
+   * on the given executor.
+   *
+   * @param ast            AST of the source node
+   * @param weightProperty Property used as weight (see HintGenType)
+   * @param k              Maximum number of paths
+   * @param executor       Executor for the blocking steps
+   * @return Stage completed with the result of getHintPaths
+   */
+  default CompletionStage<Paths> getHintPathsAsync(String ast,
+                                                   String weightProperty,
+                                                   int k, Executor executor) {
+    return CompletableFuture.supplyAsync(
+            () -> getHintPaths(ast, weightProperty, k), executor);
+  }
+
+  /**
+   * Adds an Incorrect node with the given expression and a popularity of 1
+   * if there is no node with the same AST.
+   *
+   * @param expr Expression of the node
+   * @param ast  AST of the node
+   * @param code Alloy code of the submission
+   * @return The new node or the existing node with the same AST
+   */
+  default SubmissionNode addIncorrectNode(String expr, String ast, String code) {
+    return addIncorrectNode(expr, ast, code, 1.0);
+  }
+
+  /**
+   * Same as addIncorrectNode(String, String, String) with the given
+   * popularity, e.g. the requests counted by a SubmissionOverlay before
+   * the submission was promoted.
+   *
+   * @param expr       Expression of the node
+   * @param ast        AST of the node
+   * @param code       Alloy code of the submission
+   * @param popularity Number of submissions with the AST
+   * @return The new node or the existing node with the same AST
+   */
+  SubmissionNode addIncorrectNode(String expr, String ast, String code,
+                                  double popularity);
+
+  /**
+   * Adds a Derives edge between two nodes if it does not exist.
+   *
+   * @param src Source node
+   * @param dst Target node
+   * @return The new edge or the existing edge
+   */
+  SubmissionEdge addEdge(SubmissionNode src, SubmissionNode dst);
+
+  String getChallenge();
+
+  String getPredicate();
+
+  @Override
+  void close();
+
+  /**
+   * Source node of a hint with its shortest paths to solutions.
+   */
+  class Paths {
+    private final SubmissionNode source; // Node of the submission
+    private final List<SolutionPath> paths; // Paths ordered by cost
+
+    public Paths(SubmissionNode source, List<SolutionPath> paths) {
+      this.source = source;
+      this.paths = paths;
+    }
+
+    public SubmissionNode getSource() {
+      return source;
+    }
+
+    public List<SolutionPath> getPaths() {
+      return paths;
+    }
+  }
+}
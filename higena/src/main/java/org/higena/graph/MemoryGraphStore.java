@@ -0,0 +1,189 @@
+package org.higena.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory implementation of HintGraphStore. The graph is kept in hash
+ * maps and the shortest paths are found with the Dijkstra's algorithm over
+ * the outgoing edges of each node, so no database server or GDS projection
+ * is needed. It can be built in code (e.g. for tests) or loaded from a
+ * snapshot of a database with load. New nodes and edges are only kept in
+ * memory.
+ */
+public class MemoryGraphStore extends AbstractGraphStore {
+  private final Map<Long, SubmissionNode> nodes = new HashMap<>(); // Nodes by id
+  private final Map<String, SubmissionNode> asts = new HashMap<>(); // Nodes by AST
+  private final Map<Long, List<Edge>> edges = new HashMap<>(); // Outgoing edges by node id
+
+  public MemoryGraphStore(String challenge, String predicate) {
+    super(challenge, predicate);
+  }
+
+  /**
+   * Loads all Submission nodes and Derives edges of the database.
+   *
+   * @param db Database connection
+   * @return Store with a copy of the graph of the database
+   */
+  public static MemoryGraphStore load(Db db) {
+    return load(db, new MemoryGraphStore(db.getChallenge(), db.getPredicate()));
+  }
+
+  @Override
+  public synchronized SubmissionNode addNode(SubmissionNode node) {
+    SubmissionNode existing = asts.putIfAbsent(node.getAst(), node);
+    if (existing != null) {
+      return existing;
+    }
+    nodes.put(node.getId(), node);
+    reserveId(node.getId());
+    return node;
+  }
+
+  /**
+   * Adds an edge to the graph if there is no edge between the nodes. Both
+   * nodes must have been added.
+   *
+   * @param src  ID of the source node
+   * @param dst  ID of the target node
+   * @param edge Properties of the edge
+   * @return The added edge or the existing edge
+   */
+  public synchronized SubmissionEdge addEdge(long src, long dst,
+                                             SubmissionEdge edge) {
+    List<Edge> out = edges.computeIfAbsent(src, id -> new ArrayList<>());
+    for (Edge existing : out) {
+      if (existing.target == dst) { // Edges are created with MERGE
+        return existing.edge;
+      }
+    }
+    out.add(new Edge(dst, edge));
+    return edge;
+  }
+
+  @Override
+  public synchronized SubmissionNode getNodeByAST(String ast) {
+    return asts.get(ast);
+  }
+
+  /**
+   * Returns the node of the given category with the lowest TED to the given
+   * AST. The most popular nodes are compared first (see findMostSimilar).
+   */
+  @Override
+  public SubmissionNode getMostSimilarNode(String ast, String category,
+                                           Deadline deadline) {
+    List<SubmissionNode> candidates = new ArrayList<>();
+    synchronized (this) {
+      for (SubmissionNode node : nodes.values()) {
+        if (node.hasLabel(category)) {
+          candidates.add(node);
+        }
+      }
+    }
+    candidates.sort(Comparator.comparingDouble(SubmissionNode::getPopularity)
+            .reversed());
+    int similar = findMostSimilar(ast, candidates.size(),
+            i -> candidates.get(i).getAst(), deadline);
+    return similar == -1 ? null : candidates.get(similar);
+  }
+
+  @Override
+  public synchronized List<SolutionPath> getShortestPaths(SubmissionNode source,
+                                                          String weightProperty,
+                                                          int k) {
+    List<SolutionPath> paths = new ArrayList<>();
+    if (!nodes.containsKey(source.getId())) {
+      return paths;
+    }
+    PathSearch<Long, Edge> search = new PathSearch<>() {
+      @Override
+      protected Iterable<Edge> getEdges(Long node) {
+        return edges.getOrDefault(node, Collections.emptyList());
+      }
+
+      @Override
+      protected Long getTarget(Edge edge) {
+        return edge.target;
+      }
+
+      @Override
+      protected double getWeight(Edge edge) {
+        return edge.edge.getWeight(weightProperty);
+      }
+
+      @Override
+      protected boolean isGoal(Long node) {
+        return nodes.get(node).hasLabel("Correct");
+      }
+    };
+    for (PathSearch.Path<Long, Edge> path : search.search(source.getId(), k)) {
+      paths.add(toPath(path));
+    }
+    return paths;
+  }
+
+  public synchronized int size() {
+    return nodes.size();
+  }
+
+  @Override
+  public void close() {
+    // Nothing to release
+  }
+
+  // Auxiliary methods
+
+  @Override
+  protected synchronized SubmissionEdge putEdge(long srcId, String srcAST,
+                                                long dstId, String dstAST,
+                                                SubmissionEdge edge) {
+    return addEdge(srcId, dstId, edge);
+  }
+
+  @Override
+  protected SubmissionEdge findEdge(SubmissionNode src, SubmissionNode dst) {
+    for (Edge edge : edges.getOrDefault(src.getId(), Collections.emptyList())) {
+      if (edge.target == dst.getId()) {
+        return edge.edge;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Builds the solution path of a path found by the search.
+   */
+  private SolutionPath toPath(PathSearch.Path<Long, Edge> path) {
+    LinkedList<SubmissionNode> pathNodes = new LinkedList<>();
+    LinkedList<SubmissionEdge> pathEdges = new LinkedList<>();
+    double ted = 0;
+    for (long node : path.getNodes()) {
+      pathNodes.add(nodes.get(node));
+    }
+    for (Edge edge : path.getEdges()) {
+      pathEdges.add(edge.edge);
+      ted += edge.edge.getTed();
+    }
+    return new SolutionPath(pathNodes, pathEdges, path.getCost(), ted, -1);
+  }
+
+  /**
+   * Outgoing edge of a node.
+   */
+  private static class Edge {
+    private final long target; // ID of the target node
+    private final SubmissionEdge edge; // Properties of the edge
+
+    Edge(long target, SubmissionEdge edge) {
+      this.target = target;
+      this.edge = edge;
+    }
+  }
+}
@@ -0,0 +1,584 @@
+package org.higena.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HintGraphStore that keeps the graph outside the Java heap, in direct
+ * ByteBuffers. Large predicate graphs held with MemoryGraphStore create
+ * millions of small objects (nodes, edges, AST strings) that the garbage
+ * collector must trace; here the whole graph is a few flat buffers:
+ * <ul>
+ *   <li>strings: length-prefixed UTF-8 strings (ASTs, expressions, labels
+ *   and operations). Labels are interned.</li>
+ *   <li>nodes: fixed-size node records (NODE_SIZE bytes) with the id,
+ *   references to their strings, popularity, flags and first outgoing
+ *   edge.</li>
+ *   <li>edges: fixed-size edge records (EDGE_SIZE bytes) with the target
+ *   node, the next edge of the source node and the weights.</li>
+ *   <li>index: open-addressing hash table from AST to node.</li>
+ * </ul>
+ * The Correct and Incorrect labels are also kept as flags of the node
+ * records, and the Correct nodes are indexed in order of popularity, so
+ * getMostSimilarNode only decodes the ASTs it compares. Nodes are found by
+ * comparing the given AST with the stored UTF-8 bytes, without encoding it.
+ * The Dijkstra's algorithm reads the weights straight from the buffers and
+ * uses scratch arrays that are reused between searches, so finding paths
+ * does not allocate. Only the nodes and edges of the returned paths are
+ * copied to the heap. Edges do not keep the encoded operations: hints use
+ * the operation strings instead.
+ *
+ * @see MemoryGraphStore
+ */
+public class OffHeapGraphStore extends AbstractGraphStore {
+  // Node record: id, ast, expr, labels (string offsets), flags,
+  // popularity, first edge and AST hash
+  private static final int NODE_SIZE = 40, N_ID = 0, N_AST = 8, N_EXPR = 12,
+          N_LABELS = 16, N_FLAGS = 20, N_POPULARITY = 24, N_FIRST_EDGE = 32,
+          N_HASH = 36;
+  // Edge record: target node, next edge, id, operations (string offset)
+  // and weights
+  private static final int EDGE_SIZE = 44, E_TARGET = 0, E_NEXT = 4, E_ID = 8,
+          E_OPERATIONS = 16, E_TED = 20, E_POISSON = 28, E_DST_POISSON = 36;
+  private static final int CORRECT = 1, INCORRECT = 2; // Flags of the labels
+  private static final int NONE = -1; // Null reference
+  private static final char SEPARATOR = '\0'; // Separator of the operations
+  private final Map<String, Integer> labels = new HashMap<>(); // Interned label lists
+  private final Map<Integer, List<String>> labelLists =
+          new HashMap<>(); // Label lists by string offset
+  private ByteBuffer strings, nodes, edges, index; // Off-heap regions
+  private int nodeCount = 0, edgeCount = 0;
+  private int[] correct = new int[64]; // Correct nodes by descending popularity
+  private int correctCount = 0;
+  // Scratch arrays of the Dijkstra's algorithm, reused between searches
+  private double[] costs = new double[0];
+  private int[] previous = new int[0], previousNode = new int[0],
+          settled = new int[0], heapNodes = new int[0];
+  private double[] heapCosts = new double[0];
+  private int stamp = 0; // Marks the entries of settled set by this search
+
+  public OffHeapGraphStore(String challenge, String predicate) {
+    super(challenge, predicate);
+    this.strings = allocate(1 << 16);
+    this.nodes = allocate(NODE_SIZE * 1024);
+    this.edges = allocate(EDGE_SIZE * 1024);
+    this.index = allocate(4 * 2048);
+    clearIndex(index);
+  }
+
+  /**
+   * Loads all Submission nodes and Derives edges of the database.
+   *
+   * @param db Database connection
+   * @return Store with a copy of the graph of the database
+   */
+  public static OffHeapGraphStore load(Db db) {
+    return load(db, new OffHeapGraphStore(db.getChallenge(), db.getPredicate()));
+  }
+
+  @Override
+  public synchronized SubmissionNode addNode(SubmissionNode node) {
+    int existing = findNode(node.getAst());
+    if (existing != NONE) {
+      return getNode(existing);
+    }
+    if ((nodeCount + 1) * 2 > index.capacity() / 4) { // Load factor of 0.5
+      rehash(index.capacity() / 2); // Twice the slots
+    }
+    nodes = ensureCapacity(nodes, (nodeCount + 1) * NODE_SIZE);
+    int pos = nodeCount * NODE_SIZE, hash = node.getAst().hashCode();
+    nodes.putLong(pos + N_ID, node.getId());
+    nodes.putInt(pos + N_AST, putString(node.getAst()));
+    nodes.putInt(pos + N_EXPR, putString(node.getExpr()));
+    nodes.putInt(pos + N_LABELS, putLabels(node.getLabels()));
+    nodes.putDouble(pos + N_POPULARITY, node.getPopularity());
+    nodes.putInt(pos + N_FIRST_EDGE, NONE);
+    nodes.putInt(pos + N_FLAGS, (node.hasLabel("Correct") ? CORRECT : 0) |
+            (node.hasLabel("Incorrect") ? INCORRECT : 0));
+    nodes.putInt(pos + N_HASH, hash);
+    insertIndex(index, nodeCount, hash);
+    if (node.hasLabel("Correct")) {
+      addCorrect(nodeCount);
+    }
+    nodeCount++;
+    reserveId(node.getId());
+    return node;
+  }
+
+  /**
+   * Adds an edge between the nodes with the given ASTs if there is no edge
+   * between them. Both nodes must have been added.
+   *
+   * @param srcAST AST of the source node
+   * @param dstAST AST of the target node
+   * @param edge   Properties of the edge
+   * @return The added edge or the existing edge
+   */
+  public synchronized SubmissionEdge addEdge(String srcAST, String dstAST,
+                                             SubmissionEdge edge) {
+    int src = findNode(srcAST), dst = findNode(dstAST);
+    if (src == NONE || dst == NONE) {
+      throw new IllegalArgumentException("Edge between unknown nodes.");
+    }
+    int existing = findEdge(src, dst);
+    if (existing != NONE) { // Edges are created with MERGE
+      return getEdge(existing);
+    }
+    edges = ensureCapacity(edges, (edgeCount + 1) * EDGE_SIZE);
+    int pos = edgeCount * EDGE_SIZE, srcPos = src * NODE_SIZE;
+    edges.putInt(pos + E_TARGET, dst);
+    edges.putInt(pos + E_NEXT, nodes.getInt(srcPos + N_FIRST_EDGE));
+    edges.putLong(pos + E_ID, edge.getId());
+    edges.putInt(pos + E_OPERATIONS, putString(
+            String.join(String.valueOf(SEPARATOR), edge.getOperations())));
+    edges.putDouble(pos + E_TED, edge.getTed());
+    edges.putDouble(pos + E_POISSON, edge.getWeight("poisson"));
+    edges.putDouble(pos + E_DST_POISSON, edge.getWeight("dstPoisson"));
+    nodes.putInt(srcPos + N_FIRST_EDGE, edgeCount);
+    edgeCount++;
+    return edge;
+  }
+
+  @Override
+  public synchronized SubmissionNode getNodeByAST(String ast) {
+    int node = findNode(ast);
+    return node == NONE ? null : getNode(node);
+  }
+
+  /**
+   * Returns the node of the given category with the lowest TED to the given
+   * AST. The most popular nodes are compared first (see findMostSimilar).
+   * Only the ASTs of the compared nodes and the result are decoded.
+   */
+  @Override
+  public SubmissionNode getMostSimilarNode(String ast, String category,
+                                           Deadline deadline) {
+    int[] candidates = getCandidates(category);
+    int similar = findMostSimilar(ast, candidates.length,
+            i -> getAst(candidates[i]), deadline);
+    if (similar == -1) {
+      return null;
+    }
+    synchronized (this) {
+      return getNode(candidates[similar]);
+    }
+  }
+
+  @Override
+  public synchronized List<SolutionPath> getShortestPaths(SubmissionNode source,
+                                                          String weightProperty,
+                                                          int k) {
+    List<SolutionPath> paths = new ArrayList<>();
+    int start = findNode(source.getAst());
+    if (start == NONE) {
+      return paths;
+    }
+    int weight = getWeightOffset(weightProperty);
+    prepareSearch();
+    costs[start] = 0;
+    previous[start] = NONE;
+    int heapSize = push(0, start, 0);
+
+    while (heapSize > 0 && paths.size() < k) {
+      int node = heapNodes[0];
+      double cost = heapCosts[0];
+      heapSize = pop(heapSize);
+      if (settled[node] == stamp || cost > costs[node]) { // Stale entry
+        continue;
+      }
+      settled[node] = stamp;
+      if (node != start && hasLabel(node, "Correct")) {
+        paths.add(toPath(node));
+      }
+      for (int edge = nodes.getInt(node * NODE_SIZE + N_FIRST_EDGE);
+           edge != NONE; edge = edges.getInt(edge * EDGE_SIZE + E_NEXT)) {
+        int pos = edge * EDGE_SIZE, target = edges.getInt(pos + E_TARGET);
+        double next = cost + (weight == NONE ? 0 : edges.getDouble(pos + weight));
+        if (settled[target] == stamp || next >= costs[target]) {
+          continue;
+        }
+        costs[target] = next;
+        previous[target] = edge;
+        previousNode[target] = node;
+        heapSize = push(heapSize, target, next);
+      }
+    }
+    return paths;
+  }
+
+  public synchronized int size() {
+    return nodeCount;
+  }
+
+  /**
+   * Returns the off-heap memory allocated by this store.
+   *
+   * @return Size in bytes
+   */
+  public synchronized long getOffHeapBytes() {
+    return (long) strings.capacity() + nodes.capacity() + edges.capacity() +
+            index.capacity();
+  }
+
+  @Override
+  public void close() {
+    // Buffers are kept until the store is garbage collected
+  }
+
+  @Override
+  protected SubmissionEdge putEdge(long srcId, String srcAST, long dstId,
+                                   String dstAST, SubmissionEdge edge) {
+    return addEdge(srcAST, dstAST, edge);
+  }
+
+  @Override
+  protected SubmissionEdge findEdge(SubmissionNode src, SubmissionNode dst) {
+    int srcNode = findNode(src.getAst()), dstNode = findNode(dst.getAst());
+    if (srcNode == NONE || dstNode == NONE) {
+      return null;
+    }
+    int edge = findEdge(srcNode, dstNode);
+    return edge == NONE ? null : getEdge(edge);
+  }
+
+  // Search methods
+
+  /**
+   * Returns the nodes of the given category by descending popularity. The
+   * Correct nodes are kept in that order; other categories are found with
+   * the flags of the records and sorted.
+   */
+  private synchronized int[] getCandidates(String category) {
+    if (category.equals("Correct")) {
+      return Arrays.copyOf(correct, correctCount);
+    }
+    List<Integer> candidates = new ArrayList<>();
+    for (int node = 0; node < nodeCount; node++) {
+      if (hasLabel(node, category)) {
+        candidates.add(node);
+      }
+    }
+    candidates.sort(Comparator.comparingDouble(this::getPopularity).reversed());
+    return candidates.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Inserts a Correct node in the index after the nodes with the same or
+   * higher popularity.
+   */
+  private void addCorrect(int node) {
+    if (correctCount == correct.length) {
+      correct = Arrays.copyOf(correct, correctCount * 2);
+    }
+    double popularity = getPopularity(node);
+    int i = correctCount;
+    while (i > 0 && getPopularity(correct[i - 1]) < popularity) {
+      correct[i] = correct[i - 1];
+      i--;
+    }
+    correct[i] = node;
+    correctCount++;
+  }
+
+  /**
+   * Resizes the scratch arrays to the size of the graph and starts a new
+   * search stamp. Costs are reset instead of reallocated.
+   */
+  private void prepareSearch() {
+    if (costs.length < nodeCount) {
+      int capacity = Math.max(nodeCount, costs.length * 2);
+      costs = new double[capacity];
+      previous = new int[capacity];
+      previousNode = new int[capacity];
+      settled = new int[capacity];
+      stamp = 0;
+    }
+    if (heapNodes.length < edgeCount + 1) {
+      int capacity = Math.max(edgeCount + 1, heapNodes.length * 2);
+      heapNodes = new int[capacity];
+      heapCosts = new double[capacity];
+    }
+    Arrays.fill(costs, 0, nodeCount, Double.MAX_VALUE);
+    stamp++;
+  }
+
+  /**
+   * Adds a node to the binary heap of the search.
+   *
+   * @return New size of the heap
+   */
+  private int push(int size, int node, double cost) {
+    int i = size;
+    while (i > 0) {
+      int parent = (i - 1) / 2;
+      if (heapCosts[parent] <= cost) {
+        break;
+      }
+      heapNodes[i] = heapNodes[parent];
+      heapCosts[i] = heapCosts[parent];
+      i = parent;
+    }
+    heapNodes[i] = node;
+    heapCosts[i] = cost;
+    return size + 1;
+  }
+
+  /**
+   * Removes the node with the lowest cost from the binary heap.
+   *
+   * @return New size of the heap
+   */
+  private int pop(int size) {
+    size--;
+    int node = heapNodes[size];
+    double cost = heapCosts[size];
+    int i = 0;
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heapCosts[child + 1] < heapCosts[child]) {
+        child++;
+      }
+      if (heapCosts[child] >= cost) {
+        break;
+      }
+      heapNodes[i] = heapNodes[child];
+      heapCosts[i] = heapCosts[child];
+      i = child;
+    }
+    heapNodes[i] = node;
+    heapCosts[i] = cost;
+    return size;
+  }
+
+  /**
+   * Copies the path that ends in the given node to the heap.
+   */
+  private SolutionPath toPath(int last) {
+    LinkedList<SubmissionNode> pathNodes = new LinkedList<>();
+    LinkedList<SubmissionEdge> pathEdges = new LinkedList<>();
+    double ted = 0;
+    pathNodes.addFirst(getNode(last));
+    for (int node = last; previous[node] != NONE; node = previousNode[node]) {
+      SubmissionEdge edge = getEdge(previous[node]);
+      pathEdges.addFirst(edge);
+      ted += edge.getTed();
+      pathNodes.addFirst(getNode(previousNode[node]));
+    }
+    return new SolutionPath(pathNodes, pathEdges, costs[last], ted, -1);
+  }
+
+  private static int getWeightOffset(String property) {
+    switch (property) {
+      case "ted":
+        return E_TED;
+      case "poisson":
+        return E_POISSON;
+      case "dstPoisson":
+        return E_DST_POISSON;
+      default:
+        return NONE;
+    }
+  }
+
+  // Record methods
+
+  private int findNode(String ast) {
+    int hash = ast.hashCode(), mask = index.capacity() / 4 - 1;
+    for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+      int node = index.getInt(slot * 4);
+      if (node == NONE) {
+        return NONE;
+      }
+      int pos = node * NODE_SIZE;
+      if (nodes.getInt(pos + N_HASH) == hash &&
+              stringEquals(nodes.getInt(pos + N_AST), ast)) {
+        return node;
+      }
+    }
+  }
+
+  private int findEdge(int src, int dst) {
+    for (int edge = nodes.getInt(src * NODE_SIZE + N_FIRST_EDGE); edge != NONE;
+         edge = edges.getInt(edge * EDGE_SIZE + E_NEXT)) {
+      if (edges.getInt(edge * EDGE_SIZE + E_TARGET) == dst) {
+        return edge;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Checks the flags of the node for the Correct and Incorrect labels and
+   * its interned label list otherwise.
+   */
+  private boolean hasLabel(int node, String label) {
+    int pos = node * NODE_SIZE;
+    switch (label) {
+      case "Correct":
+        return (nodes.getInt(pos + N_FLAGS) & CORRECT) != 0;
+      case "Incorrect":
+        return (nodes.getInt(pos + N_FLAGS) & INCORRECT) != 0;
+      default:
+        return labelLists.get(nodes.getInt(pos + N_LABELS)).contains(label);
+    }
+  }
+
+  private double getPopularity(int node) {
+    return nodes.getDouble(node * NODE_SIZE + N_POPULARITY);
+  }
+
+  private synchronized String getAst(int node) {
+    return getString(nodes.getInt(node * NODE_SIZE + N_AST));
+  }
+
+  private SubmissionNode getNode(int node) {
+    int pos = node * NODE_SIZE;
+    return new SubmissionNode(nodes.getLong(pos + N_ID),
+            getString(nodes.getInt(pos + N_AST)),
+            getString(nodes.getInt(pos + N_EXPR)),
+            nodes.getDouble(pos + N_POPULARITY),
+            labelLists.get(nodes.getInt(pos + N_LABELS)));
+  }
+
+  private SubmissionEdge getEdge(int edge) {
+    int pos = edge * EDGE_SIZE;
+    String operations = getString(edges.getInt(pos + E_OPERATIONS));
+    double ted = edges.getDouble(pos + E_TED);
+    return new SubmissionEdge(edges.getLong(pos + E_ID), ted,
+            operations.isEmpty() ? List.of() :
+                    List.of(operations.split(String.valueOf(SEPARATOR))),
+            null, Map.of("ted", ted,
+            "poisson", edges.getDouble(pos + E_POISSON),
+            "dstPoisson", edges.getDouble(pos + E_DST_POISSON)));
+  }
+
+  // String methods
+
+  /**
+   * Appends a string to the string region.
+   *
+   * @return Offset of the string
+   */
+  private int putString(String str) {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    int pos = strings.position();
+    strings = ensureCapacity(strings, pos + 4 + bytes.length);
+    strings.putInt(bytes.length).put(bytes);
+    return pos;
+  }
+
+  private String getString(int offset) {
+    int length = strings.getInt(offset);
+    byte[] bytes = new byte[length];
+    strings.get(offset + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Interns a label list: lists are stored once in the string region and
+   * kept on the heap by offset, so labels are never split again.
+   *
+   * @return Offset of the label list
+   */
+  private int putLabels(List<String> nodeLabels) {
+    return labels.computeIfAbsent(String.join(",", nodeLabels), joined -> {
+      int offset = putString(joined);
+      labelLists.put(offset, List.copyOf(nodeLabels));
+      return offset;
+    });
+  }
+
+  /**
+   * Compares a stored string with the given string without copying or
+   * encoding either: the stored UTF-8 bytes are decoded one code point at
+   * a time.
+   */
+  private boolean stringEquals(int offset, String str) {
+    int length = strings.getInt(offset);
+    if (length < str.length()) { // Each char takes at least one byte
+      return false;
+    }
+    int pos = offset + 4, end = pos + length, i = 0;
+    while (pos < end) {
+      int b = strings.get(pos) & 0xff, codePoint;
+      if (b < 0x80) { // 1 byte
+        codePoint = b;
+        pos += 1;
+      } else if (b < 0xe0) { // 2 bytes
+        codePoint = (b & 0x1f) << 6 | strings.get(pos + 1) & 0x3f;
+        pos += 2;
+      } else if (b < 0xf0) { // 3 bytes
+        codePoint = (b & 0x0f) << 12 | (strings.get(pos + 1) & 0x3f) << 6 |
+                strings.get(pos + 2) & 0x3f;
+        pos += 3;
+      } else { // 4 bytes (two chars)
+        codePoint = (b & 0x07) << 18 | (strings.get(pos + 1) & 0x3f) << 12 |
+                (strings.get(pos + 2) & 0x3f) << 6 | strings.get(pos + 3) & 0x3f;
+        pos += 4;
+      }
+      if (i >= str.length() || str.codePointAt(i) != codePoint) {
+        return false;
+      }
+      i += Character.charCount(codePoint);
+    }
+    return i == str.length();
+  }
+
+  // Buffer methods
+
+  private void rehash(int slots) {
+    ByteBuffer resized = allocate(slots * 4);
+    clearIndex(resized);
+    for (int node = 0; node < nodeCount; node++) {
+      insertIndex(resized, node, nodes.getInt(node * NODE_SIZE + N_HASH));
+    }
+    index = resized;
+  }
+
+  private static void insertIndex(ByteBuffer index, int node, int hash) {
+    int mask = index.capacity() / 4 - 1, slot = mix(hash) & mask;
+    while (index.getInt(slot * 4) != NONE) {
+      slot = (slot + 1) & mask;
+    }
+    index.putInt(slot * 4, node);
+  }
+
+  private static void clearIndex(ByteBuffer index) {
+    for (int pos = 0; pos < index.capacity(); pos += 4) {
+      index.putInt(pos, NONE);
+    }
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Returns the given buffer or a copy with twice the capacity if it cannot
+   * hold the given number of bytes. The position is kept.
+   */
+  private static ByteBuffer ensureCapacity(ByteBuffer buffer, int bytes) {
+    if (bytes <= buffer.capacity()) {
+      return buffer;
+    }
+    int capacity = buffer.capacity();
+    while (capacity < bytes) {
+      capacity *= 2;
+    }
+    ByteBuffer resized = allocate(capacity);
+    int position = buffer.position();
+    resized.put(buffer.duplicate().clear()).position(position);
+    return resized;
+  }
+
+  private static ByteBuffer allocate(int bytes) {
+    return ByteBuffer.allocateDirect(bytes);
+  }
+}
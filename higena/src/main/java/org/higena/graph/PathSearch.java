@@ -0,0 +1,150 @@
+package org.higena.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Best-first search of the shortest paths from a source node to the k
+ * nearest goal nodes (e.g. Correct nodes) other than the source. With the
+ * default estimate of 0 it is the Dijkstra's algorithm. With a consistent
+ * lower bound of the cost to the nearest goal it is A* (see AStarSearch).
+ * <p>
+ * Subclasses read the graph they search: MemoryGraphStore and AStarSearch
+ * their in-memory edges and HintProcedure the database. Nodes are compared
+ * with equals.
+ *
+ * @param <N> Type of the nodes
+ * @param <E> Type of the edges
+ */
+public abstract class PathSearch<N, E> {
+
+  /**
+   * Returns the outgoing edges of a node.
+   */
+  protected abstract Iterable<E> getEdges(N node);
+
+  protected abstract N getTarget(E edge);
+
+  protected abstract double getWeight(E edge);
+
+  /**
+   * Returns true if paths end in the node.
+   */
+  protected abstract boolean isGoal(N node);
+
+  /**
+   * Returns a lower bound of the cost from the node to its nearest goal.
+   */
+  protected double estimate(N node) {
+    return 0;
+  }
+
+  /**
+   * Finds the shortest paths from the source node to the k nearest goal
+   * nodes other than the source node.
+   *
+   * @param source Source node
+   * @param k      Maximum number of paths
+   * @return Up to k paths ordered by cost
+   */
+  public List<Path<N, E>> search(N source, int k) {
+    List<Path<N, E>> paths = new ArrayList<>();
+    Map<N, Double> costs = new HashMap<>(); // Best known cost of each node
+    Set<N> expanded = new HashSet<>();
+    PriorityQueue<Step<N, E>> open = new PriorityQueue<>();
+    open.add(new Step<>(source, null, null, 0, estimate(source)));
+    costs.put(source, 0.0);
+
+    while (!open.isEmpty() && paths.size() < k) {
+      Step<N, E> step = open.poll();
+      if (!expanded.add(step.node)) { // Already expanded with a lower cost
+        continue;
+      }
+      if (step.previous != null && isGoal(step.node)) {
+        paths.add(new Path<>(step, expanded.size()));
+      }
+      for (E edge : getEdges(step.node)) {
+        N target = getTarget(edge);
+        double cost = step.cost + getWeight(edge);
+        if (expanded.contains(target) ||
+                cost >= costs.getOrDefault(target, Double.MAX_VALUE)) {
+          continue;
+        }
+        costs.put(target, cost);
+        open.add(new Step<>(target, edge, step, cost, cost + estimate(target)));
+      }
+    }
+    return paths;
+  }
+
+  /**
+   * Entry of the open list: a node reached through a path.
+   */
+  private static class Step<N, E> implements Comparable<Step<N, E>> {
+    private final N node; // Reached node
+    private final E edge; // Edge to the node or null
+    private final Step<N, E> previous; // Previous step in the path or null
+    private final double cost; // Cost of the path to the node
+    private final double estimate; // Cost plus estimate of the node
+
+    Step(N node, E edge, Step<N, E> previous, double cost, double estimate) {
+      this.node = node;
+      this.edge = edge;
+      this.previous = previous;
+      this.cost = cost;
+      this.estimate = estimate;
+    }
+
+    @Override
+    public int compareTo(Step<N, E> other) {
+      return Double.compare(estimate, other.estimate);
+    }
+  }
+
+  /**
+   * Shortest path from the source node to a goal node.
+   */
+  public static class Path<N, E> {
+    private final List<N> nodes = new LinkedList<>(); // Nodes from the source
+    private final List<E> edges = new LinkedList<>(); // Edges between the nodes
+    private final double cost; // Sum of the weights of the edges
+    private final int expanded; // Nodes expanded until the path was found
+
+    Path(Step<N, E> last, int expanded) {
+      for (Step<N, E> step = last; step != null; step = step.previous) {
+        nodes.add(0, step.node);
+        if (step.edge != null) {
+          edges.add(0, step.edge);
+        }
+      }
+      this.cost = last.cost;
+      this.expanded = expanded;
+    }
+
+    public List<N> getNodes() {
+      return nodes;
+    }
+
+    public List<E> getEdges() {
+      return edges;
+    }
+
+    public N getLast() {
+      return nodes.get(nodes.size() - 1);
+    }
+
+    public double getCost() {
+      return cost;
+    }
+
+    public int getExpanded() {
+      return expanded;
+    }
+  }
+}
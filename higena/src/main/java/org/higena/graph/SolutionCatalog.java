@@ -0,0 +1,267 @@
+package org.higena.graph;
+
+import at.unisalzburg.dbresearch.apted.node.Node;
+import at.unisalzburg.dbresearch.apted.node.StringNodeData;
+import org.higena.ast.PQGramProfile;
+import org.higena.ast.TED;
+import org.higena.ast.TreeDiffCache;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory catalog of the Correct nodes of a predicate graph. Each entry
+ * holds the id, the popularity and the already parsed AST of a solution, so
+ * that the search for the most similar solution does not need to fetch and
+ * parse every Correct node on each request.
+ * <p>
+ * Catalogs are shared by all Db instances connected to the same database.
+ * They are built when the database is set up or on first use.
+ * <p>
+ * For catalogs with many solutions, an approximate search can be turned on.
+ * It ranks the solutions by the distance between their pq-gram profiles
+ * and only computes the exact TED for the best ranked ones.
+ */
+public class SolutionCatalog {
+  public static boolean APPROXIMATE = false; // True to shortlist candidates
+  public static int APPROXIMATE_MIN_SIZE = 1000; // Min. solutions to shortlist
+  public static int SHORTLIST_SIZE = 50; // Candidates compared with TED
+  private static final Map<String, SolutionCatalog> catalogs =
+          new ConcurrentHashMap<>(); // Catalogs by database name
+  private final List<Entry> entries; // Solutions ordered by popularity
+
+  public SolutionCatalog(List<Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Returns the catalog of the database the given Db is connected to. If the
+   * catalog does not exist yet, it is loaded from the database.
+   *
+   * @param db Database connection
+   * @return Catalog of the Correct nodes of the database
+   */
+  public static SolutionCatalog of(Db db) {
+    return catalogs.computeIfAbsent(db.getName(), name -> load(db));
+  }
+
+  /**
+   * Reloads the catalog of the database the given Db is connected to. Used
+   * after the database is set up.
+   *
+   * @param db Database connection
+   */
+  public static void refresh(Db db) {
+    catalogs.put(db.getName(), load(db));
+  }
+
+  /**
+   * Loads all Correct nodes of the database ordered by popularity and parses
+   * their ASTs.
+   *
+   * @param db Database connection
+   * @return Catalog with the Correct nodes of the database
+   */
+  private static SolutionCatalog load(Db db) {
+    Result res = db.runQuery(
+            "MATCH (s:Correct)\n" +
+                    "RETURN s.id AS id, s.ast AS ast, s.popularity AS popularity\n" +
+                    "ORDER BY s.popularity DESC");
+    List<Entry> entries = new ArrayList<>();
+    while (res.hasNext()) {
+      Record rec = res.next();
+      entries.add(new Entry(rec.get("id").asLong(),
+              rec.get("popularity").asDouble(0),
+              rec.get("ast").asString()));
+    }
+    return new SolutionCatalog(Collections.unmodifiableList(entries));
+  }
+
+  // Search methods
+
+  /**
+   * Returns the solution with the smallest TED to the given AST. Solutions
+   * with the same AST (TED of 0) are skipped. The search starts with the most
+   * popular solutions and stops upon finding a TED of 1. If APPROXIMATE is
+   * set and the catalog has at least APPROXIMATE_MIN_SIZE solutions, only
+   * the shortlisted solutions are compared.
+   *
+   * @param ast AST to compare to the solutions
+   * @return Most similar solution or null if there is none
+   */
+  public Entry findMostSimilar(String ast) {
+    return findMostSimilar(ast, Deadline.NONE);
+  }
+
+  /**
+   * Same as findMostSimilar(String) but stops comparing solutions once the
+   * deadline has passed and returns the most similar solution found so far.
+   * At least one solution is compared so there is always a result.
+   *
+   * @param ast      AST to compare to the solutions
+   * @param deadline Time limit of the search
+   * @return Most similar solution found or null if there is none
+   */
+  public Entry findMostSimilar(String ast, Deadline deadline) {
+    return findMostSimilar(ast, APPROXIMATE && size() >= APPROXIMATE_MIN_SIZE,
+            deadline);
+  }
+
+  /**
+   * Returns the solution with the smallest TED to the given AST.
+   *
+   * @param ast         AST to compare to the solutions
+   * @param approximate True to only compare the shortlisted solutions
+   * @return Most similar solution or null if there is none
+   * @see #findMostSimilar(String)
+   */
+  public Entry findMostSimilar(String ast, boolean approximate) {
+    return findMostSimilar(ast, approximate, Deadline.NONE);
+  }
+
+  /**
+   * Returns the solution with the smallest TED to the given AST that is
+   * found before the deadline.
+   *
+   * @param ast         AST to compare to the solutions
+   * @param approximate True to only compare the shortlisted solutions
+   * @param deadline    Time limit of the search
+   * @return Most similar solution found or null if there is none
+   * @see #findMostSimilar(String, Deadline)
+   */
+  public Entry findMostSimilar(String ast, boolean approximate,
+                               Deadline deadline) {
+    Node<StringNodeData> tree = TED.parseTree(ast);
+    List<Entry> candidates = approximate ?
+            shortlist(new PQGramProfile(tree), SHORTLIST_SIZE) : entries;
+    int minDist = Integer.MAX_VALUE; // Minimum TED found
+    Entry similar = null; // Most similar solution found
+
+    for (Entry entry : candidates) {
+      // Keep the best solution found so far once the deadline has passed
+      if (similar != null && deadline.check()) {
+        break;
+      }
+      int curDist = TED.computeEditDistance(tree, entry.tree, minDist - 1);
+
+      // Skip if TED is 0
+      if (curDist == 0) {
+        continue;
+      }
+
+      // Update minDist and similar if lower TED found
+      if (curDist < minDist) {
+        minDist = curDist;
+        similar = entry;
+        // Stop earlier if TED is 1
+        if (minDist == 1) {
+          break;
+        }
+      }
+    }
+    if (similar == null && approximate) {
+      // Shortlisted solutions are all equal to the AST
+      return findMostSimilar(ast, false, deadline);
+    }
+    if (similar != null) {
+      // Keep the distance for the hint and edge that follow the search
+      TreeDiffCache.getInstance().putDistance(ast, similar.ast, minDist);
+    }
+    return similar;
+  }
+
+  /**
+   * Returns the k solutions with the closest pq-gram profiles to the given
+   * profile, ordered by popularity.
+   *
+   * @param profile pq-gram profile of the AST to compare
+   * @param k       Number of solutions to return
+   * @return The k closest solutions
+   */
+  public List<Entry> shortlist(PQGramProfile profile, int k) {
+    List<Entry> all = entries;
+    if (all.size() <= k) {
+      return all;
+    }
+    // Keep the indexes of the k closest solutions (farthest on top)
+    double[] distances = new double[all.size()];
+    PriorityQueue<Integer> closest = new PriorityQueue<>(k + 1,
+            (i, j) -> Double.compare(distances[j], distances[i]));
+    for (int i = 0; i < all.size(); i++) {
+      distances[i] = profile.distance(all.get(i).profile);
+      closest.add(i);
+      if (closest.size() > k) {
+        closest.poll();
+      }
+    }
+    // Restore popularity order
+    List<Integer> indexes = new ArrayList<>(closest);
+    Collections.sort(indexes);
+    List<Entry> shortlist = new ArrayList<>(k);
+    for (int i : indexes) {
+      shortlist.add(all.get(i));
+    }
+    return shortlist;
+  }
+
+  // Getters
+
+  /**
+   * Returns the solutions of the catalog ordered by popularity (most popular
+   * first).
+   *
+   * @return Unmodifiable list of solutions
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Solution of the catalog.
+   */
+  public static class Entry {
+    private final long id; // ID of the Correct node
+    private final double popularity; // Popularity of the Correct node
+    private final String ast; // AST of the node
+    private final Node<StringNodeData> tree; // Parsed AST of the node
+    private final PQGramProfile profile; // pq-gram profile of the AST
+
+    public Entry(long id, double popularity, String ast) {
+      this.id = id;
+      this.popularity = popularity;
+      this.ast = ast;
+      this.tree = TED.parseTree(ast);
+      this.profile = new PQGramProfile(tree);
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public double getPopularity() {
+      return popularity;
+    }
+
+    public String getAst() {
+      return ast;
+    }
+
+    public Node<StringNodeData> getTree() {
+      return tree;
+    }
+
+    public PQGramProfile getProfile() {
+      return profile;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.higena.graph;
+
+import org.neo4j.driver.types.MapAccessor;
+
+import java.util.List;
+
+/**
+ * Shortest path from a submission to a solution found by a HintGraphStore.
+ *
+ * @see HintGraphStore#getShortestPaths(SubmissionNode, String, int)
+ */
+public class SolutionPath {
+  private final List<SubmissionNode> nodes; // Nodes from source to solution
+  private final List<SubmissionEdge> edges; // Edges between the nodes
+  private final double totalCost; // Sum of the weights of the edges
+  private final double totalTED; // Sum of the TED of the edges
+  private final int directTED; // TED between source and solution or -1
+
+  public SolutionPath(List<SubmissionNode> nodes, List<SubmissionEdge> edges,
+                      double totalCost, double totalTED, int directTED) {
+    this.nodes = nodes;
+    this.edges = edges;
+    this.totalCost = totalCost;
+    this.totalTED = totalTED;
+    this.directTED = directTED;
+  }
+
+  /**
+   * Creates a path from a record or map returned by a path query with the
+   * totalCost, path, rels, totalTED and, optionally, directTED fields.
+   *
+   * @param rec Record or map of the path
+   * @return Path with the nodes and edges of the record
+   * @see Db#getHintPaths(String, String, int)
+   */
+  public static SolutionPath fromValue(MapAccessor rec) {
+    return new SolutionPath(rec.get("path").asList(SubmissionNode::fromValue),
+            rec.get("rels").asList(rel -> SubmissionEdge.fromRelationship(rel.asRelationship())),
+            rec.get("totalCost").asDouble(),
+            rec.get("totalTED").asDouble(),
+            rec.containsKey("directTED") ? rec.get("directTED").asInt(-1) : -1);
+  }
+
+  // Getters
+
+  public List<SubmissionNode> getNodes() {
+    return nodes;
+  }
+
+  public List<SubmissionEdge> getEdges() {
+    return edges;
+  }
+
+  public SubmissionNode getSolution() {
+    return nodes.get(nodes.size() - 1);
+  }
+
+  public SubmissionNode getNextNode() {
+    return nodes.get(1);
+  }
+
+  public SubmissionEdge getFirstEdge() {
+    return edges.get(0);
+  }
+
+  public double getTotalCost() {
+    return totalCost;
+  }
+
+  public double getTotalTED() {
+    return totalTED;
+  }
+
+  /**
+   * Returns the TED between the source and the solution if the store
+   * computed it with the path.
+   *
+   * @return TED between the source and the solution or -1
+   */
+  public int getDirectTED() {
+    return directTED;
+  }
+}
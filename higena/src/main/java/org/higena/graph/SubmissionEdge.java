@@ -0,0 +1,121 @@
+package org.higena.graph;
+
+import org.higena.ast.actions.EncodedActions;
+import org.higena.ast.actions.TreeDiff;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.types.Relationship;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copy of a Derives edge with the properties needed to generate hints:
+ * the TED between its nodes, the edit operations and the weights used to
+ * search paths. It does not depend on the store the edge comes from.
+ *
+ * @see HintGraphStore
+ */
+public class SubmissionEdge {
+  public static final long NO_ID = -1; // ID of edges not written yet
+  private final long id; // ID of the edge or NO_ID
+  private final double ted; // TED between the nodes of the edge
+  private final List<String> operations; // Edit operations of the edge
+  private final EncodedActions actions; // Encoded operations or null
+  private final Map<String, Double> weights; // Weights by property name
+
+  public SubmissionEdge(long id, double ted, List<String> operations,
+                        EncodedActions actions, Map<String, Double> weights) {
+    this.id = id;
+    this.ted = ted;
+    this.operations = operations;
+    this.actions = actions;
+    this.weights = weights;
+  }
+
+  /**
+   * Creates a new edge between two nodes with the difference between their
+   * ASTs. Weights are initialized like in Db.addEdge.
+   *
+   * @param diff Difference between the ASTs of the nodes
+   * @param dst  Target node of the edge
+   * @return New edge without id
+   */
+  public static SubmissionEdge create(TreeDiff diff, SubmissionNode dst) {
+    double ted = diff.getTed();
+    return new SubmissionEdge(NO_ID, ted,
+            diff.getOperations(), diff.getEncodedActions(),
+            Map.of("ted", ted, "poisson", 1.5,
+                    "dstPoisson", dst.getPopularity() == 0 ? 1.5 :
+                            1.0 / dst.getPopularity()));
+  }
+
+  /**
+   * Creates an edge from a Derives relationship returned by a query.
+   *
+   * @param rel Derives relationship
+   * @return Edge with the properties of the relationship
+   */
+  public static SubmissionEdge fromRelationship(Relationship rel) {
+    Value codes = rel.get("opCodes");
+    EncodedActions actions = codes.isNull() ? null : new EncodedActions(
+            codes.asList(Value::asLong),
+            rel.get("opLabels").asList(Value::asString));
+    return new SubmissionEdge(rel.get("id").asLong(NO_ID),
+            rel.get("ted").asDouble(0),
+            rel.get("operations").asList(Value::asString), actions,
+            Map.of("ted", rel.get("ted").asDouble(0),
+                    "poisson", rel.get("poisson").asDouble(0),
+                    "dstPoisson", rel.get("dstPoisson").asDouble(0)));
+  }
+
+  /**
+   * Formats a list of operations like the operations property returned by
+   * Neo4j: ["op1", "op2"].
+   *
+   * @param operations Edit operations
+   * @return Formatted operations
+   */
+  public static String formatOperations(List<String> operations) {
+    StringBuilder str = new StringBuilder("[");
+    for (int i = 0; i < operations.size(); i++) {
+      if (i > 0) {
+        str.append(", ");
+      }
+      str.append('"').append(operations.get(i).replace("\"", "\\\"")).append('"');
+    }
+    return str.append(']').toString();
+  }
+
+  // Getters
+
+  public long getId() {
+    return id;
+  }
+
+  public double getTed() {
+    return ted;
+  }
+
+  public List<String> getOperations() {
+    return operations;
+  }
+
+  /**
+   * Returns the encoded edit operations.
+   *
+   * @return Encoded operations or null if the edge was created before the
+   * operations were encoded.
+   */
+  public EncodedActions getEncodedActions() {
+    return actions;
+  }
+
+  public double getWeight(String property) {
+    return weights.getOrDefault(property, 0.0);
+  }
+
+  @Override
+  public String toString() {
+    return formatOperations(operations);
+  }
+}
@@ -0,0 +1,125 @@
+package org.higena.graph;
+
+import org.neo4j.driver.Value;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight copy of a Submission node with only the properties needed to
+ * generate hints. Queries return a map projection of the node (see
+ * projection) instead of the whole node, so the Alloy code of each
+ * submission is not sent over the connection. Hint generation does not need
+ * the code of the nodes.
+ * <p>
+ * The id of a node is a dense integer assigned by the database of the
+ * predicate (see Db#setup). The id of the original Alloy4Fun submission is
+ * only kept in the alloyId property. Nodes that are not in the graph yet
+ * (kept in a SubmissionOverlay or pending in a GraphWriter) get a negative
+ * temporary id from nextTemporaryId, so they never equal each other or a
+ * node of the graph.
+ */
+public class SubmissionNode {
+  private static final AtomicLong temporaryIds =
+          new AtomicLong(); // Last temporary (negative) id
+  private final long id; // ID of the node in its predicate graph
+  private final String ast; // AST of the expression
+  private final String expr; // Expression of the submission
+  private final double popularity; // Number of equivalent submissions
+  private final List<String> labels; // Labels of the node (e.g. Correct)
+
+  public SubmissionNode(long id, String ast, String expr, double popularity,
+                        List<String> labels) {
+    this.id = id;
+    this.ast = ast;
+    this.expr = expr;
+    this.popularity = popularity;
+    this.labels = labels;
+  }
+
+  /**
+   * Returns a new temporary id for a node that is not in the graph yet.
+   * Ids are shared by all overlays and writers of the process.
+   *
+   * @return Negative id not returned before
+   */
+  public static long nextTemporaryId() {
+    return temporaryIds.decrementAndGet();
+  }
+
+  /**
+   * Returns the Cypher map projection of the node bound to the given
+   * variable with the properties read by fromValue.
+   * Example: projection("s") = s {.id, .ast, .expr, .popularity, labels:
+   * labels(s)}
+   *
+   * @param variable Name of the node variable in the query
+   * @return Map projection of the node
+   */
+  public static String projection(String variable) {
+    return variable + " {.id, .ast, .expr, .popularity, labels: labels(" +
+            variable + ")}";
+  }
+
+  /**
+   * Creates a SubmissionNode from a value returned by a query that uses the
+   * map projection of the node.
+   *
+   * @param value Map projection of the node
+   * @return SubmissionNode or null if the value is null
+   * @see #projection(String)
+   */
+  public static SubmissionNode fromValue(Value value) {
+    if (value.isNull()) {
+      return null;
+    }
+    return new SubmissionNode(value.get("id").asLong(),
+            value.get("ast").asString(""),
+            value.get("expr").asString(""),
+            value.get("popularity").asDouble(0),
+            value.get("labels").asList(Value::asString));
+  }
+
+  public boolean hasLabel(String label) {
+    return labels.contains(label);
+  }
+
+  // Getters
+
+  public long getId() {
+    return id;
+  }
+
+  public String getAst() {
+    return ast;
+  }
+
+  public String getExpr() {
+    return expr;
+  }
+
+  public double getPopularity() {
+    return popularity;
+  }
+
+  public List<String> getLabels() {
+    return labels;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    return id == ((SubmissionNode) o).id;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(id);
+  }
+
+  @Override
+  public String toString() {
+    return "SubmissionNode{id=" + id + ", expr='" + expr + "', ast='" + ast + "'}";
+  }
+}
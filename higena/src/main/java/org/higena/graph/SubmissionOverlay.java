@@ -0,0 +1,167 @@
+package org.higena.graph;
+
+import org.higena.ast.AstFingerprint;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Overlay of the submissions of a predicate that are not in the graph yet.
+ * Without it, every new submission adds an Incorrect node and two Derives
+ * edges (from the empty node and to a solution) to the graph for good, so
+ * the graph grows with every typo and later searches get slower.
+ * <p>
+ * New submissions are kept here with the number of requests that sent them
+ * and the path to the most similar solution used for their hint. Once a
+ * submission is seen PROMOTION_THRESHOLD times, it is promoted: it leaves
+ * the overlay and that request writes it to the graph with the number of
+ * requests as popularity. Submissions not
+ * seen for TTL milliseconds expire, and the least recently seen ones are
+ * evicted when the overlay holds MAX_SIZE submissions.
+ * <p>
+ * All methods are thread-safe.
+ *
+ * @see org.higena.hint.HintGenerator#setOverlay(SubmissionOverlay)
+ */
+public class SubmissionOverlay {
+  public static boolean ENABLED = false; // True to keep new submissions in overlays
+  public static int PROMOTION_THRESHOLD = 3; // Requests that persist a submission
+  public static long TTL = 24 * 60 * 60 * 1000; // Ms before unseen entries expire
+  public static int MAX_SIZE = 10000; // Max. submissions per overlay
+  private static final List<String> LABELS = List.of("Submission", "Incorrect");
+  private final Map<String, Entry> entries =
+          new LinkedHashMap<>(16, 0.75f, true); // Entries by AST fingerprint in LRU order
+  private long promoted = 0, expired = 0; // Entries promoted and expired or evicted
+
+  /**
+   * Records a request for a submission that is not in the graph. The first
+   * request creates the entry of the submission. When the submission reaches
+   * PROMOTION_THRESHOLD requests, its entry is removed and marked as
+   * promoted so the caller adds it to the graph.
+   *
+   * @param expr Expression of the submission
+   * @param ast  AST of the submission
+   * @return Entry of the submission
+   * @see Entry#isPromoted()
+   */
+  public synchronized Entry visit(String expr, String ast) {
+    String astHash = AstFingerprint.of(ast);
+    long now = System.currentTimeMillis();
+    removeExpired(now);
+    Entry entry = entries.get(astHash);
+    if (entry == null) {
+      entry = new Entry(new SubmissionNode(SubmissionNode.nextTemporaryId(),
+              ast, expr, 1.0, LABELS));
+      entries.put(astHash, entry);
+      if (entries.size() > MAX_SIZE) {
+        entries.remove(entries.keySet().iterator().next());
+        expired++;
+      }
+    }
+    entry.seen++;
+    entry.lastSeen = now;
+    if (entry.seen >= PROMOTION_THRESHOLD) {
+      entries.remove(astHash);
+      entry.promoted = true;
+      promoted++;
+    }
+    return entry;
+  }
+
+  /**
+   * Discards all entries. Used when the database is set up again, since the
+   * paths of the entries refer to the old graph.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getPromoted() {
+    return promoted;
+  }
+
+  public synchronized long getExpired() {
+    return expired;
+  }
+
+  /**
+   * Removes the entries not seen for TTL milliseconds. Entries are in LRU
+   * order, so it stops at the first entry that has not expired.
+   */
+  private void removeExpired(long now) {
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      if (now - it.next().lastSeen < TTL) {
+        break;
+      }
+      it.remove();
+      expired++;
+    }
+  }
+
+  /**
+   * Submission of the overlay. The node has a temporary (negative) id and
+   * the path is a single edge to the most similar solution, set by the
+   * first request that finds it.
+   */
+  public static class Entry {
+    private final SubmissionNode node; // Node of the submission
+    // Updated by visit with the lock of the overlay
+    private volatile int seen = 0; // Number of requests with the submission
+    private volatile boolean promoted = false; // True once it must be persisted
+    private long lastSeen; // Time of the last request in milliseconds
+    private SubmissionNode solution; // Most similar solution or null
+    private SubmissionEdge edge; // Edge to the solution or null
+
+    Entry(SubmissionNode node) {
+      this.node = node;
+    }
+
+    public SubmissionNode getNode() {
+      return node;
+    }
+
+    /**
+     * Returns the number of requests with the submission, used as the
+     * popularity of the node when it is promoted.
+     */
+    public int getSeen() {
+      return seen;
+    }
+
+    /**
+     * Returns true if the submission left the overlay and must be added to
+     * the graph.
+     */
+    public boolean isPromoted() {
+      return promoted;
+    }
+
+    public synchronized SubmissionNode getSolution() {
+      return solution;
+    }
+
+    public synchronized SubmissionEdge getEdge() {
+      return edge;
+    }
+
+    /**
+     * Keeps the path from the submission to its most similar solution so the
+     * next requests do not search it again.
+     *
+     * @param solution Most similar solution
+     * @param edge     Edge from the submission to the solution
+     */
+    public synchronized void setPath(SubmissionNode solution,
+                                     SubmissionEdge edge) {
+      this.solution = solution;
+      this.edge = edge;
+    }
+  }
+}
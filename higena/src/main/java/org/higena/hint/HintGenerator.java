@@ -1,281 +1,540 @@
-package org.higena.hint;
-
-import org.higena.ast.TED;
-import org.higena.graph.Db;
-import org.json.JSONObject;
-import org.neo4j.driver.Record;
-import org.neo4j.driver.Value;
-import org.neo4j.driver.exceptions.NoSuchRecordException;
-import org.neo4j.driver.types.Node;
-import org.neo4j.driver.types.Relationship;
-
-import java.util.List;
-
-public class HintGenerator {
-
-  private static boolean canCreatePath = true; // True if cant create
-  // Constants
-  private final Db db; // Database connection
-  private final String expression, code; // Student submission
-  private final HintGenType type; // Hint generation type
-  // better paths
-  // Hint generation data
-  private boolean isNewNode = false; // True if submission is new on the graph
-  private boolean createdShorterPath = false; // True if a shorter path to a
-  // solution was created
-  private Node sourceNode; // Node from the graph with the same AST as the
-  // submission
-  private Node solutionNode; // Closest solution in the graph
-  private Node nextNode; // Next node in the path to the solution
-  private Relationship firstEdge; // First edge in the path to the solution
-  private double totalTED; // Total cost of the path to the solution
-  private Hint hint; // Generated hint
-  private long time; // Time it took to generate the hint
-
-  private int srcDstTED; // TED between the source and the target nodes
-
-  public HintGenerator(String expression, String code, HintGenType type,
-                       Db db) {
-    this.db = db;
-    this.expression = expression;
-    this.code = code;
-    this.type = type;
-  }
-
-  /**
-   * Finds a path from a node with the given AST to a solution and
-   * generates a hint based on the first edge of the path.
-   * Counts the time it took to generate the hint.
-   *
-   * @param ast AST of the expression to find the hint for.
-   */
-  public void generateHint(String ast) {
-    // Start timer
-    long startTime = System.nanoTime();
-    // Calculate path from source node to solution
-    calculateHintPath(ast);
-    // Generate hint message
-    if (solutionNode != null) {
-      if (createdShorterPath) {
-        hint = new Hint(srcDstTED, firstEdge);
-      } else {
-        hint = new Hint(sourceNode, solutionNode, firstEdge);
-      }
-    }
-    // Stop timer
-    time = System.nanoTime() - startTime;
-  }
-
-  /**
-   * Finds the node with the given AST or creates it if it does not exist and
-   * calculates the shortest path using the dijkstra algorithm to a Correct
-   * node using the given property as edge weight. If no path to a correct node
-   * exists, it creates a path to the most similar correct node. Then, it
-   * returns the first edge of the path. If the found path is longer than
-   * directly connecting the source node to the solution, it creates an edge
-   * between the two nodes.
-   *
-   * @param ast AST of the expression to find the hint for.
-   */
-  public void calculateHintPath(String ast) {
-    // Get source node
-    sourceNode = getSourceNode(ast);
-    if (sourceNode == null) {
-      // cannot generate hint without source node
-      return;
-    }
-    if (isNewNode) {
-      // If the source node is new, there is no path any node in the graph
-      if (canCreatePath)
-        solutionNode = createPath(sourceNode);
-      return;
-    }
-    // Node is not new
-    try {
-      // Get the shortest path to a solution
-      getShortestPath();
-
-      // Evaluate path
-      if (canCreatePath) {
-        // Compute TED between the source and the target nodes
-        String srcAST = sourceNode.get("ast").toString(), dstAST =
-                solutionNode.get("ast").toString();
-        srcDstTED = TED.computeEditDistance(srcAST, dstAST);
-
-        // If total TED of the path is higher than the TED between the source
-        // and the target nodes, create a better path to a target node
-        if (totalTED <= srcDstTED) {
-          // Path found is good (TED equal to TED(src, dst)). Generate hint
-          return;
-        }
-        // Path found is bad (TED higher than TED(src, dst)).
-        // Create a better path to a target node: (connect source to the most
-        // similar solution directly)
-        solutionNode = createPath(sourceNode);
-        createdShorterPath = true;
-      }
-
-    } catch (NoSuchRecordException e) {
-      // getShortestPath() throws NoSuchRecordException if there is no path
-      // to a solution
-      // Create a path to the most similar correct node
-      if (canCreatePath)
-        solutionNode = createPath(sourceNode);
-    }
-  }
-
-  /**
-   * Creates a path from the source node to the most similar correct node.
-   *
-   * @param source source node
-   * @return The target node of the path
-   */
-  private Node createPath(Node source) {
-    Node solution = db.getMostSimilarNode(source.get("ast").toString(),
-            "Correct");
-    if (solution == null) {
-      System.err.println("Error: Cannot generate hint.");
-      return null;
-    }
-    // Create edge between the two nodes
-    firstEdge = db.addEdge(sourceNode, solution);
-    nextNode = solution;
-    totalTED = firstEdge.get("ted").asDouble();
-    return solution;
-  }
-
-  // Getters
-
-  /**
-   * Runs the dijkstra algorithm to find the shortest path to a solution.
-   *
-   * @throws NoSuchRecordException if there is no path to a solution
-   */
-  private void getShortestPath() throws NoSuchRecordException {
-    if (sourceNode == null) {
-      System.err.println("Error: Cannot generate hint without source node.");
-      return;
-    }
-    // Dijkstra algorithm to find the shortest path to a solution
-    Record rec = db.runDijkstra(sourceNode.get("id").asString(),
-            type.toString()).single();
-    List<Node> nodes = rec.get("path").asList(Value::asNode);
-    solutionNode = nodes.get(nodes.size() - 1);
-    nextNode = nodes.get(1);
-    firstEdge = db.getRelationship(sourceNode, nextNode);
-
-    // Get total TED of the path
-    if (type == HintGenType.TED) {
-      // Total cost of the path equals the total
-      // TED if the property used is TED
-      totalTED = rec.get("totalCost").asDouble();
-    } else {
-      totalTED = getTotalTED(nodes);
-    }
-  }
-
-  /**
-   * Returns the node from the database with the same AST. If it
-   * does not exist, it searches for the most similar node,
-   * creates a new node with the given expression and adds an edge
-   * between these two nodes.
-   *
-   * @param ast AST of the expression
-   * @return Node from the database with the given expression.
-   */
-  private Node getSourceNode(String ast) {
-    Node source = db.getNodeByAST(ast);
-    if (source == null) { // If it does not exist, create it
-      isNewNode = true;
-      // Create the node with the AST
-      source = db.addIncorrectNode(expression, ast, code);
-      // Add edge from empty node to the new node
-      Node emptyNode = db.getNodeByAST("");
-      db.addEdge(emptyNode, source);
-    }
-    return source;
-  }
-
-  /**
-   * Calculates the total TED of the path to the solution.
-   *
-   * @param nodes List of nodes in the path to the solution.
-   * @return Total TED of the path to the solution.
-   */
-  private double getTotalTED(List<Node> nodes) {
-    double totalTED = 0;
-    for (int i = 0; i < nodes.size() - 1; i++) {
-      Node src = nodes.get(i), dst = nodes.get(i + 1);
-      Relationship edge = db.getRelationship(src, dst);
-      totalTED += edge.get("ted").asDouble();
-    }
-    return totalTED;
-  }
-
-  /**
-   * Returns a JSON object with the hint information.
-   *
-   * @return Hint represented as a JSON object
-   */
-  public JSONObject getJSON() {
-    JSONObject json = new JSONObject();
-    json.put("challenge", db.challenge);
-    json.put("predicate", db.predicate);
-    json.put("code", code);
-    json.put("mapping", TED.USE_APTED ? "APTED" : "GumTree");
-    json.put("isNewNode", isNewNode);
-    json.put("createdShorterPath", createdShorterPath);
-    json.put("sourceExpr", sourceNode.get("expr").asString());
-    json.put("sourceAST", sourceNode.get("ast").asString());
-    json.put("targetExpr", solutionNode.get("expr").asString());
-    json.put("targetAST", solutionNode.get("ast").asString());
-    json.put("nextExpr", getNextExpr());
-    json.put("nextAST", nextNode.get("ast").asString());
-    json.put("totalTED", totalTED);
-    json.put("srcDstTED", hint.getDistance());
-    json.put("operations", firstEdge.get("operations").toString());
-    json.put("hint", hint);
-    json.put("time", time);
-    return json;
-  }
-
-  public String getNextExpr() {
-    return nextNode.get("expr").asString();
-  }
-
-  public Hint getHint() {
-    return hint;
-  }
-
-  @Override
-  public String toString() {
-    StringBuilder sb = new StringBuilder();
-    // Submission
-    sb.append("Submission:\n").append('\t').append(expression)
-            // Source node
-            .append("\nSource node:").append("\n\tIs new node: ").append(isNewNode ? "Yes" : "No").append("\n\tExpression: ").append(sourceNode.get("expr").asString()).append("\n\tAST: ").append(sourceNode.get("ast").asString());
-    // Next node
-    String nextId = nextNode.get("id").asString(), targetId = solutionNode.get(
-            "id").asString();
-    if (!nextId.equals(targetId)) {
-      sb.append("\nNext node:").append("\n\tExpression: ").append(nextNode.get("expr").asString()).append("\n\tAST: ").append(nextNode.get("ast").asString());
-    }
-    // Target node
-    sb.append("\nTarget node:").append("\n\tExpression: ").append(solutionNode.get("expr").asString()).append("\n\tAST: ").append(solutionNode.get("ast").asString())
-            // First edge
-            .append("\nPath:").append("\n\tCreated shorter path: ").append(createdShorterPath ? "Yes" : "No").append("\n\tTotal TED: ").append(totalTED).append("\n\tTED(source,target): ").append(hint.getDistance()).append("\n\tOperations: ").append(firstEdge.get("operations").toString())
-            // Time
-            .append("\nTime:\n\t").append(time).append(" ns")
-            // Hint
-            .append("\nHint:\n\t").append(hint);
-
-    return sb.toString();
-  }
-
-  /**
-   * Turns off the path creation for the hint generation.
-   */
-  public static void turnOffPathCreation() {
-    canCreatePath = false;
-  }
-}
+package org.higena.hint;
+
+import org.higena.ast.TED;
+import org.higena.graph.Deadline;
+import org.higena.graph.GraphWriter;
+import org.higena.graph.HintGraphStore;
+import org.higena.graph.SolutionPath;
+import org.higena.graph.SubmissionEdge;
+import org.higena.graph.SubmissionNode;
+import org.higena.graph.SubmissionOverlay;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class HintGenerator {
+
+  private static boolean canCreatePath = true; // True if cant create
+  // Constants
+  private final HintGraphStore store; // Graph storage (e.g. Db)
+  private final String expression, code; // Student submission
+  private final HintGenType type; // Hint generation type
+  // better paths
+  // Hint generation data
+  private boolean isNewNode = false; // True if submission is new on the graph
+  private boolean createdShorterPath = false; // True if a shorter path to a
+  // solution was created
+  private SubmissionNode sourceNode; // Node from the graph with the same AST
+  // as the submission
+  private SubmissionNode solutionNode; // Closest solution in the graph
+  private SubmissionNode nextNode; // Next node in the path to the solution
+  private SubmissionEdge firstEdge; // First edge in the path to the solution
+  private GraphWriter writer; // Write-behind buffer (null to write directly)
+  private SubmissionOverlay overlay; // New submissions not persisted or null
+  private SubmissionOverlay.Entry overlayEntry; // Entry of the source or null
+  private SubmissionOverlay.Entry visitedEntry; // Entry recorded by the caller or null
+  private long latencyBudget = 0; // Max. ms of the solution search (0 = none)
+  private Deadline deadline = Deadline.NONE; // Deadline of the current search
+  private double totalTED; // Total cost of the path to the solution
+  private Hint hint; // Generated hint
+  private final List<HintPath> alternatives = new ArrayList<>(); // Paths
+  // to other solutions
+  private long time; // Time it took to generate the hint
+
+  private int srcDstTED; // TED between the source and the target nodes
+  private int directTED = -1; // srcDstTED computed by the query or -1
+
+  public HintGenerator(String expression, String code, HintGenType type,
+                       HintGraphStore store) {
+    this.store = store;
+    this.expression = expression;
+    this.code = code;
+    this.type = type;
+  }
+
+  /**
+   * Finds a path from a node with the given AST to a solution and
+   * generates a hint based on the first edge of the path.
+   * Counts the time it took to generate the hint.
+   *
+   * @param ast AST of the expression to find the hint for.
+   */
+  public void generateHint(String ast) {
+    generateHints(ast, 1);
+  }
+
+  /**
+   * Finds up to k paths from a node with the given AST to distinct solutions
+   * and generates a hint for each one based on its first edge. The first
+   * path is the one used by generateHint. The other k-1 cheapest paths are
+   * kept as alternatives, in order of cost. All paths come from a single
+   * Dijkstra run. Counts the time it took to generate the hints.
+   *
+   * @param ast AST of the expression to find the hints for.
+   * @param k   Maximum number of paths (primary path included).
+   */
+  public void generateHints(String ast, int k) {
+    // Start timer
+    long startTime = System.nanoTime();
+    deadline = Deadline.after(latencyBudget);
+    // Calculate paths from source node to solutions
+    calculateHintPath(ast, k);
+    // Generate hint messages
+    generateHintMessages();
+    // Stop timer
+    time = System.nanoTime() - startTime;
+  }
+
+  /**
+   * Asynchronous version of generateHints. The source node and its paths
+   * are fetched with HintGraphStore.getHintPathsAsync (for Db, without
+   * blocking a thread). Steps that write to the graph (new submissions and
+   * shorter paths) and the TED computations run on the given executor.
+   *
+   * @param ast      AST of the expression to find the hints for.
+   * @param k        Maximum number of paths (primary path included).
+   * @param executor Executor for the blocking and CPU-bound steps.
+   * @return Future completed with this generator when the hints are ready.
+   * @see #generateHints(String, int)
+   */
+  public CompletableFuture<HintGenerator> generateHintsAsync(String ast, int k,
+                                                             Executor executor) {
+    // Start timer
+    long startTime = System.nanoTime();
+    deadline = Deadline.after(latencyBudget);
+    return store.getHintPathsAsync(ast, type.toString(), k, executor)
+            .toCompletableFuture()
+            .thenComposeAsync(search -> {
+              if (search == null) {
+                // New submission: must be added to the graph
+                calculateHintPath(ast, k);
+              } else {
+                sourceNode = search.getSource();
+                followPaths(search.getPaths());
+              }
+              return CompletableFuture.completedFuture(null);
+            }, executor)
+            .thenApplyAsync(ignored -> {
+              // Generate hint messages
+              generateHintMessages();
+              // Stop timer
+              time = System.nanoTime() - startTime;
+              return this;
+            }, executor);
+  }
+
+  /**
+   * Generates the hint of the primary path and of the alternative paths.
+   */
+  private void generateHintMessages() {
+    String predicate = store.getChallenge() + "/" + store.getPredicate();
+    if (solutionNode != null) {
+      if (createdShorterPath) {
+        hint = new Hint(srcDstTED, firstEdge, predicate);
+      } else {
+        hint = new Hint(sourceNode, solutionNode, firstEdge, predicate);
+      }
+    }
+    for (HintPath alternative : alternatives) {
+      alternative.generateHint(sourceNode, predicate);
+    }
+  }
+
+  /**
+   * Finds the node with the given AST or creates it if it does not exist and
+   * calculates the shortest path using the dijkstra algorithm to a Correct
+   * node using the given property as edge weight. If no path to a correct node
+   * exists, it creates a path to the most similar correct node. Then, it
+   * returns the first edge of the path. If the found path is longer than
+   * directly connecting the source node to the solution, it creates an edge
+   * between the two nodes.
+   *
+   * @param ast AST of the expression to find the hint for.
+   */
+  public void calculateHintPath(String ast) {
+    calculateHintPath(ast, 1);
+  }
+
+  /**
+   * Same as calculateHintPath(String) but also keeps up to k-1 alternative
+   * paths to other solutions. Alternatives are only found for nodes that
+   * already exist in the graph and never lead to the solution of the
+   * primary path. For nodes that already exist, the node and its paths are
+   * fetched at once (see HintGraphStore#getHintPaths).
+   *
+   * @param ast AST of the expression to find the hint for.
+   * @param k   Maximum number of paths (primary path included).
+   */
+  public void calculateHintPath(String ast, int k) {
+    // Get the source node and its shortest paths to solutions at once
+    HintGraphStore.Paths search = store.getHintPaths(ast, type.toString(), k);
+    if (search != null) {
+      sourceNode = search.getSource();
+      followPaths(search.getPaths());
+      return;
+    }
+    // Source node is not on the graph: get source node
+    sourceNode = getSourceNode(ast);
+    if (sourceNode == null) {
+      // cannot generate hint without source node
+      return;
+    }
+    if (isNewNode) {
+      // If the source node is new, there is no path any node in the graph
+      if (canCreatePath)
+        solutionNode = createPath(sourceNode);
+      return;
+    }
+    // Node added by a concurrent request: get the shortest paths to solutions
+    followPaths(store.getShortestPaths(sourceNode, type.toString(), k));
+  }
+
+  /**
+   * Uses the paths found by the dijkstra algorithm for the hints. If the
+   * best path is longer than directly connecting the source node to the
+   * solution, or if there is no path, it creates a path to the most similar
+   * solution. If the latency budget cut that search before it found a
+   * solution closer than the one of the path, the source is connected
+   * directly to the solution of the path instead.
+   *
+   * @param paths Paths returned by the store ordered by cost
+   */
+  private void followPaths(List<SolutionPath> paths) {
+    if (paths.isEmpty()) {
+      // No path to a solution: create a path to the most similar correct node
+      if (canCreatePath)
+        solutionNode = createPath(sourceNode);
+      return;
+    }
+    setPaths(paths);
+
+    // Evaluate path
+    if (canCreatePath) {
+      // Compute TED between the source and the target nodes
+      String srcAST = sourceNode.getAst(), dstAST =
+              solutionNode.getAst();
+      srcDstTED = directTED >= 0 ? directTED :
+              TED.computeEditDistance(srcAST, dstAST);
+
+      // If total TED of the path is higher than the TED between the source
+      // and the target nodes, create a better path to a target node
+      if (totalTED <= srcDstTED) {
+        // Path found is good (TED equal to TED(src, dst)). Generate hint
+        return;
+      }
+      // Path found is bad (TED higher than TED(src, dst)).
+      // Create a better path to a target node: (connect source to the most
+      // similar solution directly)
+      SubmissionNode pathSolution = solutionNode;
+      solutionNode = createPath(sourceNode);
+      if (isApproximate() && (solutionNode == null ||
+              firstEdge.getTed() >= srcDstTED)) {
+        // The search was cut before finding a closer solution
+        solutionNode = connectTo(pathSolution);
+      }
+      srcDstTED = (int) totalTED; // Distance to the solution of the edge
+      createdShorterPath = true;
+      removeAlternativesTo(solutionNode);
+    }
+
+  }
+
+  /**
+   * Creates a path from the source node to the most similar correct node.
+   * With a GraphWriter, the edge is written in the background and the hint
+   * uses the difference computed in memory. With a latency budget, the most
+   * similar correct node found before the deadline is used; such an
+   * approximate edge is only used for this hint and never persisted, so the
+   * next requests search the solution again. For sources kept in the
+   * overlay, the edge is not persisted but kept in the overlay for the next
+   * requests with the same submission.
+   *
+   * @param source source node
+   * @return The target node of the path
+   */
+  private SubmissionNode createPath(SubmissionNode source) {
+    SubmissionNode solution = overlayEntry != null ?
+            overlayEntry.getSolution() : null;
+    if (solution != null) { // Path found by a previous request
+      nextNode = solution;
+      firstEdge = overlayEntry.getEdge();
+      totalTED = firstEdge.getTed();
+      return solution;
+    }
+    solution = store.getMostSimilarNode(source.getAst(), "Correct", deadline);
+    if (solution == null) {
+      System.err.println("Error: Cannot generate hint.");
+      return null;
+    }
+    nextNode = solution;
+    // Create edge between the two nodes
+    if (overlayEntry == null && writer == null && !isApproximate()) {
+      firstEdge = store.addEdge(sourceNode, solution);
+    } else {
+      firstEdge = SubmissionEdge.create(new TED().computeTreeDiff(
+              source.getAst(), solution.getAst()), solution);
+      if (!isApproximate()) { // Approximate paths are searched again
+        if (overlayEntry != null) {
+          overlayEntry.setPath(solution, firstEdge);
+        } else {
+          writer.addEdge(source, solution);
+        }
+      }
+    }
+    totalTED = firstEdge.getTed();
+    return solution;
+  }
+
+  /**
+   * Connects the source node directly to the given solution. The edge is
+   * only used for this hint and never persisted, like the approximate
+   * edges of createPath, so the next requests search the most similar
+   * solution again.
+   *
+   * @param solution Solution to connect to
+   * @return The given solution
+   */
+  private SubmissionNode connectTo(SubmissionNode solution) {
+    nextNode = solution;
+    firstEdge = SubmissionEdge.create(new TED().computeTreeDiff(
+            sourceNode.getAst(), solution.getAst()), solution);
+    totalTED = firstEdge.getTed();
+    return solution;
+  }
+
+  // Getters
+
+  /**
+   * Sets the paths found by the dijkstra algorithm to distinct solutions.
+   * The first path is used for the hint and the others are kept as
+   * alternatives.
+   *
+   * @param paths Paths returned by the store ordered by cost (not empty)
+   */
+  private void setPaths(List<SolutionPath> paths) {
+    for (SolutionPath path : paths) {
+      SubmissionNode solution = path.getSolution(), next = path.getNextNode();
+      SubmissionEdge edge = path.getFirstEdge();
+      // Total cost of the path equals the total TED if the property used is TED
+      double ted = type == HintGenType.TED ? path.getTotalCost()
+              : path.getTotalTED();
+
+      if (solutionNode == null) {
+        solutionNode = solution;
+        nextNode = next;
+        firstEdge = edge;
+        totalTED = ted;
+        directTED = path.getDirectTED(); // -1 if not computed by the store
+      } else {
+        alternatives.add(new HintPath(solution, next, edge,
+                path.getTotalCost(), ted));
+      }
+    }
+  }
+
+  /**
+   * Removes the alternative paths that lead to the given solution.
+   *
+   * @param solution Solution node
+   */
+  private void removeAlternativesTo(SubmissionNode solution) {
+    if (solution == null) {
+      return;
+    }
+    alternatives.removeIf(a -> a.getSolutionNode().equals(solution));
+  }
+
+  /**
+   * Returns the node from the database with the same AST. If it
+   * does not exist, it searches for the most similar node,
+   * creates a new node with the given expression and adds an edge
+   * between these two nodes. Both the node and the edge are only created
+   * once, even if several requests submit the same new expression at the
+   * same time. With an overlay, the node is only created once the
+   * submission is promoted. Until then, the node of the overlay is returned.
+   *
+   * @param ast AST of the expression
+   * @return Node from the database with the given expression.
+   */
+  private SubmissionNode getSourceNode(String ast) {
+    SubmissionNode source = writer != null ? writer.getPendingNode(ast) : null;
+    if (source != null) { // Created by a previous request but not written
+      isNewNode = true;
+      return source;
+    }
+    source = store.getNodeByAST(ast);
+    if (source == null) { // If it does not exist, create it
+      isNewNode = true;
+      SubmissionOverlay.Entry entry = visitedEntry != null ? visitedEntry :
+              overlay != null ? overlay.visit(expression, ast) : null;
+      if (entry != null && !entry.isPromoted()) { // Not seen enough times
+        overlayEntry = entry;
+        return entry.getNode();
+      }
+      // Promoted submissions keep the requests seen by the overlay
+      double popularity = entry != null ? entry.getSeen() : 1.0;
+      SubmissionNode emptyNode = store.getNodeByAST("");
+      if (writer != null) {
+        source = writer.addNode(expression, ast, code, popularity);
+        writer.addEdge(emptyNode, source);
+        return source;
+      }
+      // Create the node with the AST
+      source = store.addIncorrectNode(expression, ast, code, popularity);
+      // Add edge from empty node to the new node
+      store.addEdge(emptyNode, source);
+    }
+    return source;
+  }
+
+  /**
+   * Returns a JSON object with the hint information.
+   *
+   * @return Hint represented as a JSON object
+   */
+  public JSONObject getJSON() {
+    JSONObject json = new JSONObject();
+    json.put("challenge", store.getChallenge());
+    json.put("predicate", store.getPredicate());
+    json.put("code", code);
+    json.put("mapping", TED.MATCHER.toString());
+    json.put("isNewNode", isNewNode);
+    json.put("isPersisted", overlayEntry == null);
+    json.put("createdShorterPath", createdShorterPath);
+    json.put("sourceExpr", sourceNode.getExpr());
+    json.put("sourceAST", sourceNode.getAst());
+    json.put("targetExpr", solutionNode.getExpr());
+    json.put("targetAST", solutionNode.getAst());
+    json.put("nextExpr", getNextExpr());
+    json.put("nextAST", nextNode.getAst());
+    json.put("totalTED", totalTED);
+    json.put("srcDstTED", hint.getDistance());
+    json.put("operations", getOperations());
+    json.put("hint", hint);
+    if (!alternatives.isEmpty()) {
+      JSONArray paths = new JSONArray();
+      for (HintPath alternative : alternatives) {
+        paths.put(alternative.getJSON());
+      }
+      json.put("alternatives", paths);
+    }
+    json.put("approximate", isApproximate());
+    json.put("time", time);
+    return json;
+  }
+
+  /**
+   * Returns the edit operations of the first edge of the path.
+   *
+   * @return Operations in the same format as the operations property
+   */
+  private String getOperations() {
+    return firstEdge.toString();
+  }
+
+  public String getNextExpr() {
+    return nextNode.getExpr();
+  }
+
+  public Hint getHint() {
+    return hint;
+  }
+
+  /**
+   * Returns true if the latency budget cut the search for the most similar
+   * solution, i.e. the target solution may not be the closest one.
+   *
+   * @return True if the target solution is approximate
+   */
+  public boolean isApproximate() {
+    return deadline.wasReached();
+  }
+
+  /**
+   * Returns the alternative paths to other solutions ordered by cost. Empty
+   * unless the hints were generated with k greater than 1.
+   *
+   * @return Alternative paths
+   */
+  public List<HintPath> getAlternatives() {
+    return alternatives;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    // Submission
+    sb.append("Submission:\n").append('\t').append(expression)
+            // Source node
+            .append("\nSource node:").append("\n\tIs new node: ").append(isNewNode ? "Yes" : "No").append("\n\tExpression: ").append(sourceNode.getExpr()).append("\n\tAST: ").append(sourceNode.getAst());
+    // Next node
+    if (nextNode.getId() != solutionNode.getId()) {
+      sb.append("\nNext node:").append("\n\tExpression: ").append(nextNode.getExpr()).append("\n\tAST: ").append(nextNode.getAst());
+    }
+    // Target node
+    sb.append("\nTarget node:").append("\n\tExpression: ").append(solutionNode.getExpr()).append("\n\tAST: ").append(solutionNode.getAst())
+            // First edge
+            .append("\nPath:").append("\n\tCreated shorter path: ").append(createdShorterPath ? "Yes" : "No").append("\n\tTotal TED: ").append(totalTED).append("\n\tTED(source,target): ").append(hint.getDistance()).append("\n\tOperations: ").append(getOperations())
+            // Time
+            .append("\nTime:\n\t").append(time).append(" ns")
+            .append(isApproximate() ? " (latency budget reached)" : "")
+            // Hint
+            .append("\nHint:\n\t").append(hint);
+
+    return sb.toString();
+  }
+
+  /**
+   * Sets the write-behind buffer used to create nodes and edges. Without a
+   * writer, nodes and edges are written before the hint is returned.
+   *
+   * @param writer Write-behind buffer of the database
+   */
+  public void setWriter(GraphWriter writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Sets the overlay of the new submissions of the predicate. With an
+   * overlay, new submissions are only added to the graph once they are
+   * promoted (see SubmissionOverlay).
+   *
+   * @param overlay Overlay of the predicate
+   */
+  public void setOverlay(SubmissionOverlay overlay) {
+    this.overlay = overlay;
+  }
+
+  /**
+   * Sets the overlay entry of the submission if the caller already
+   * recorded the request in the overlay (see Graph#generateHint). The
+   * generator then uses it instead of visiting the overlay again.
+   *
+   * @param entry Entry returned by SubmissionOverlay#visit or null
+   */
+  public void setOverlayEntry(SubmissionOverlay.Entry entry) {
+    this.visitedEntry = entry;
+  }
+
+  /**
+   * Sets the time budget of the search for the most similar solution of
+   * each generation. Once it is spent, the most similar solution found so
+   * far is used and the hint is flagged as approximate (see getJSON).
+   *
+   * @param millis Budget in milliseconds (0 for no limit)
+   */
+  public void setLatencyBudget(long millis) {
+    this.latencyBudget = millis;
+  }
+
+  /**
+   * Turns off the path creation for the hint generation.
+   */
+  public static void turnOffPathCreation() {
+    canCreatePath = false;
+  }
+}
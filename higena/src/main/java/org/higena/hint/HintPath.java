@@ -0,0 +1,84 @@
+package org.higena.hint;
+
+import org.higena.graph.SubmissionEdge;
+import org.higena.graph.SubmissionNode;
+import org.json.JSONObject;
+
+/**
+ * Alternative path from a submission to a solution, returned together with
+ * the primary hint so that a new hint can be shown without another request
+ * when the student rejects the first one.
+ *
+ * @see HintGenerator#generateHints(String, int)
+ */
+public class HintPath {
+  private final SubmissionNode solutionNode; // Solution at the end
+  private final SubmissionNode nextNode; // Next node in the path
+  private final SubmissionEdge firstEdge; // First edge in the path
+  private final double totalCost; // Cost of the path using the weight
+  private final double totalTED; // Total TED of the path
+  private Hint hint; // Hint generated from the first edge
+
+  public HintPath(SubmissionNode solutionNode, SubmissionNode nextNode,
+                  SubmissionEdge firstEdge, double totalCost, double totalTED) {
+    this.solutionNode = solutionNode;
+    this.nextNode = nextNode;
+    this.firstEdge = firstEdge;
+    this.totalCost = totalCost;
+    this.totalTED = totalTED;
+  }
+
+  /**
+   * Generates the hint of the path using its first edge.
+   *
+   * @param sourceNode Node of the submission
+   * @param predicate  Challenge and predicate of the path (see Hint)
+   */
+  public void generateHint(SubmissionNode sourceNode, String predicate) {
+    hint = new Hint(sourceNode, solutionNode, firstEdge, predicate);
+  }
+
+  /**
+   * Returns a JSON object with the path information.
+   *
+   * @return Path represented as a JSON object
+   */
+  public JSONObject getJSON() {
+    JSONObject json = new JSONObject();
+    json.put("targetExpr", solutionNode.getExpr());
+    json.put("targetAST", solutionNode.getAst());
+    json.put("nextExpr", nextNode.getExpr());
+    json.put("nextAST", nextNode.getAst());
+    json.put("totalCost", totalCost);
+    json.put("totalTED", totalTED);
+    json.put("operations", firstEdge.toString());
+    json.put("hint", hint);
+    return json;
+  }
+
+  // Getters
+
+  public SubmissionNode getSolutionNode() {
+    return solutionNode;
+  }
+
+  public SubmissionNode getNextNode() {
+    return nextNode;
+  }
+
+  public SubmissionEdge getFirstEdge() {
+    return firstEdge;
+  }
+
+  public double getTotalCost() {
+    return totalCost;
+  }
+
+  public double getTotalTED() {
+    return totalTED;
+  }
+
+  public Hint getHint() {
+    return hint;
+  }
+}
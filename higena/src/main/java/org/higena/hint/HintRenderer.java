@@ -0,0 +1,397 @@
+package org.higena.hint;
+
+import org.higena.ast.actions.EditAction;
+import org.higena.ast.actions.TreeDiff;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders edit actions as hint text. The patterns used to recognize
+ * variables, signatures and fields are compiled once and the descriptions of
+ * the Alloy operators are kept in an immutable table, so describing a label
+ * is a single lookup.
+ * <p>
+ * Rendered text is memoized per Derives edge (by its predicate and id) and
+ * per edit action (by its string representation) in bounded LRU memos. The
+ * text of an action only depends on the action, and the actions of an edge
+ * do not change after the edge is created. Edge ids are assigned again when
+ * a database is set up, so the edge memo is cleared then (see
+ * clearEdgeMemo). All methods are thread-safe.
+ */
+public class HintRenderer {
+  public static final int MEMO_CAPACITY = 10000; // Max. entries of each memo
+  private static final Pattern VARIABLE = Pattern.compile("var\\d+/(\\w+)");
+  private static final Pattern SIGNATURE = Pattern.compile("sig/(\\w+)");
+  private static final Pattern FIELD = Pattern.compile("field/(\\w+)");
+  private static final Map<String, Description> DESCRIPTIONS =
+          createDescriptions(); // Descriptions of the Alloy operators
+  private static final Map<String, String> edgeMemo =
+          createMemo(); // Rendered text by edge predicate and id
+  private static final Map<String, String> actionMemo =
+          createMemo(); // Rendered text by edit action
+
+  private HintRenderer() {
+  }
+
+  /**
+   * Returns the hint text of the first action of the given difference that
+   * is relevant for hint generation, memoized by the edge the difference
+   * belongs to.
+   *
+   * @param edgeKey Predicate and id of the Derives edge
+   * @param diff    Difference stored on the edge
+   * @return Hint text or an empty string if the edge has no actions.
+   * @see TreeDiff#getHintAction()
+   */
+  public static String render(String edgeKey, TreeDiff diff) {
+    synchronized (edgeMemo) {
+      String text = edgeMemo.get(edgeKey);
+      if (text != null) {
+        return text;
+      }
+    }
+    EditAction action = diff.getHintAction();
+    String text = action == null ? "" : render(action);
+    synchronized (edgeMemo) {
+      edgeMemo.put(edgeKey, text);
+    }
+    return text;
+  }
+
+  /**
+   * Discards the memoized text of all edges. Called when a database is set
+   * up, since its edges get new ids.
+   */
+  public static void clearEdgeMemo() {
+    synchronized (edgeMemo) {
+      edgeMemo.clear();
+    }
+  }
+
+  /**
+   * Returns the hint text of an edit action, memoized by the string
+   * representation of the action.
+   *
+   * @param action Edit action containing information to generate the hint
+   * @return Part of a hint string.
+   */
+  public static String render(EditAction action) {
+    String key = action.toString();
+    synchronized (actionMemo) {
+      String text = actionMemo.get(key);
+      if (text != null) {
+        return text;
+      }
+    }
+    String text = actionToHint(action);
+    synchronized (actionMemo) {
+      actionMemo.put(key, text);
+    }
+    return text;
+  }
+
+  /**
+   * Uses the information of an edit action to generate part of a hint.
+   * Depending on the type of the action, different hints are generated.
+   *
+   * @param action Edit action containing information to generate the hint
+   * @return Part of a hint string.
+   */
+  private static String actionToHint(EditAction action) {
+    String type = action.getType();
+    String node = action.getNode().getLabel(), parent =
+            action.getParent() != null ? action.getParent().getLabel() : null
+            , value = action.getValue();
+
+    switch (type) {
+      case "Update":
+        return updateToHint(node, value);
+
+      case "Move":
+        if (parent != null) {
+          return moveToHint(node, parent);
+        }
+        break;
+
+      case "TreeAddition":
+      case "TreeInsert":
+        // If the parent is "all" or "some" it is the addition of a variable
+        // so we need to get the signature type
+        if (parent != null) {
+          if (parent.equals("all") || parent.equals("some")) {
+            Matcher matcher = SIGNATURE.matcher(action.getNode().toTreeString());
+            if (matcher.find()) {
+              String sig = matcher.group(1);
+              return treeInsertToHint(sig, parent);
+            }
+          }
+        }
+      case "Addition":
+      case "Insert":
+        if (parent != null) {
+          return insertToHint(node, parent);
+        }
+        break;
+
+      case "TreeDelete":
+      case "Delete":
+        return deleteToHint(node);
+    }
+
+    System.err.println("Failed to generate hint for " + action);
+    return "";
+  }
+
+  private static String updateToHint(String oldValue, String newValue) {
+    Description oldDescription = getAlloyDescription(oldValue),
+            newDescription = getAlloyDescription(newValue);
+    String newRole = newDescription.role.equals("") ?
+            " to help satisfy the required property" : newDescription.role;
+    return "Instead of using " + oldDescription.name + oldDescription.role
+            + ", try using " + newDescription.name + newRole + ".";
+  }
+
+  private static String moveToHint(String node, String parent) {
+    String nodeName = getAlloyDescription(node).name, parentName =
+            getAlloyDescription(parent).name;
+
+    String str =
+            "It seems like the " + nodeName + " is not in the right place. ";
+    if (!parent.equals("root"))
+      str += "Try moving it to the inside of the " + parentName +  " expression.";
+
+    return str + " Try moving it so that you correctly ensure the required property.";
+  }
+
+  private static String treeInsertToHint(String value, String parent) {
+    // Missing variables
+    if (parent.equals("all") || parent.equals("some"))
+      return "You can use variables to help specify the condition. Consider " +
+              "introducing a new variable of type \"" + value + "\" to your " +
+              "expression using the " + getAlloyDescription(parent).name +
+              ".";
+
+    return insertToHint(value, parent);
+  }
+
+  private static String insertToHint(String value, String parent) {
+    Description description = getAlloyDescription(value);
+    String ret, name = description.name, role = description.role;
+
+    if (value.equals("all") || value.equals("some")) {
+      return "You can use variables to help specify the condition. Consider " +
+              "introducing a new variable to your expression using the " + name + ".";
+    } else if (name.contains("variable")) {
+      ret = "You can use variables to help specify the condition. Consider " +
+              "using a " + name + " to correctly capture the property you " +
+              "want to specify.";
+    } else {
+      role = role.equals("") ? " to help satisfy the required property" : role;
+      ret = "Consider adding a " + name + role + ".";
+    }
+
+    // Parent to hint
+    if (parent.equals("root"))
+      return ret + " Think about how you can incorporate this within your " +
+              "expression to ensure the required property.";
+    else
+      return ret + " Think about how you can incorporate this within the " + getAlloyDescription(parent).name + " expression.";
+  }
+
+  private static String deleteToHint(String node) {
+    String name = getAlloyDescription(node).name;
+
+    return "It seems like you have unnecessary elements in " +
+            "your expression. You can try simplifying your expression by " +
+            "deleting the " + name + ". If you want to keep it, try "
+            + "to fix your " + "expression another way and reach a different " +
+            "solution!";
+  }
+
+  /**
+   * Returns the name and the role of an AST label in natural language.
+   * Variables, signatures and fields are recognized by their prefix and
+   * operators are looked up in the descriptions table. Other labels are
+   * described by themselves.
+   *
+   * @param label Label of an AST node
+   * @return Description of the label
+   */
+  private static Description getAlloyDescription(String label) {
+    // Match variable name (e.g.:var0/Int, var1/Bool, etc)
+    Matcher m = VARIABLE.matcher(label);
+    if (m.matches()) {
+      return new Description("variable of type " + m.group(1), "");
+    }
+
+    // Match signature name (e.g.: sig/Int, sig/Bool, etc)
+    m = SIGNATURE.matcher(label);
+    if (m.matches()) {
+      return new Description("signature of type " + m.group(1), "");
+    }
+
+    // Match field name (e.g.: field/adj, etc)
+    m = FIELD.matcher(label);
+    if (m.matches()) {
+      return new Description("field \"" + m.group(1) + "\"", "");
+    }
+
+    Description description = DESCRIPTIONS.get(label.toLowerCase());
+    return description != null ? description : new Description(label, "");
+  }
+
+  // Auxiliary methods
+
+  private static Map<String, String> createMemo() {
+    return new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > MEMO_CAPACITY;
+      }
+    };
+  }
+
+  private static Map<String, Description> createDescriptions() {
+    Map<String, Description> d = new HashMap<>();
+
+    // Set operators
+    d.put(".", new Description("dot join operator ('.')",
+            " to perform a relational join between sets or relations"));
+    d.put("+", new Description("union operator ('+')",
+            " to combine two sets"));
+    d.put("&", new Description("intersection operator ('&')",
+            " to find the common elements between two sets"));
+    d.put("++", new Description("relational override operator ('++')",
+            " to combine two sets eliminating duplicates"));
+    d.put("-", new Description("difference operator ('-')",
+            " to remove elements from a set"));
+    d.put("in", new Description("inclusion operator ('in')",
+            " to specify that some element(s) belong to a set"));
+    Description exclusion = new Description("exclusion operator ('!in')",
+            " to specify that some element(s) do not belong to a set");
+    d.put("not in", exclusion);
+    d.put("!in", exclusion);
+    d.put("<:", new Description("restriction operator ('<:')",
+            " to restrict the domain of a relation"));
+    d.put(":>", new Description("restriction operator (':>')",
+            " to restrict the range of a relation"));
+
+    // Other operators
+    d.put("not", new Description("negation operator ('not')",
+            " to specify that the expression is false"));
+    d.put("!", new Description("negation operator ('!')",
+            " to specify that the expression is false"));
+    d.put("~", new Description("transpose operator ('~')",
+            " to transpose a relation"));
+    d.put("^", new Description("transitive closure operator ('^')",
+            " to get the transitive closure of a relation"));
+    d.put("*", new Description("reflexive-transitive closure operator ('*')",
+            " to get the reflexive-transitive closure of a relation"));
+    Description implication = new Description("implication operator ('=>')",
+            " to specify that if the left side is true, then the right " +
+                    "side must also be true");
+    d.put("implies", implication);
+    d.put("=>", implication);
+    d.put("iff", new Description("equivalence operator ('iff')",
+            " to specify the equivalence of the right and left side of " +
+                    "the expression"));
+    d.put("<=>", new Description("equivalence operator ('<=>')",
+            " to specify the equivalence of the right and left side of " +
+                    "the expression"));
+    d.put(">=", new Description("greater than or equal to operator ('>=')",
+            " to specify that the left side is greater than or equal to " +
+                    "the right side"));
+    d.put("<", new Description("less than operator ('<')",
+            " to specify that the left side is less than the right side"));
+    d.put(">", new Description("greater than operator ('>')",
+            " to specify that the left side is greater than the right side"));
+    d.put("=<", new Description("less than or equal to operator ('=<')",
+            " to specify that the left side is less than or equal to " +
+                    "the right side"));
+    d.put("!=", new Description("not equal operator ('!=')",
+            " to specify that the left side is not equal to the right side"));
+    d.put("=", new Description("equal operator ('=')",
+            " to specify that the left side is equal to the right side"));
+    d.put("->", new Description("arrow operator ('->')",
+            " to map a relation"));
+
+    // Quantifiers
+    d.put("one", new Description("unique quantifier ('one')",
+            " to specify that there is exactly one element in a set"));
+    d.put("no", new Description("no quantifier ('no')",
+            " to specify that there are no elements in a set"));
+    d.put("univ", new Description("universal quantifier ('univ')",
+            " to specify that all elements in a set satisfy a condition"));
+    d.put("all", new Description("universal quantifier ('all')",
+            " to specify that all elements in a set satisfy a condition"));
+    d.put("some", new Description("existential quantifier ('some')",
+            " to specify that some elements in a set satisfy a condition"));
+    d.put("let", new Description(
+            "\"let\" ('let var = expression1 | expression2')",
+            " to introduce a new variable"));
+    d.put("lone", new Description("lone quantifier ('lone')",
+            " to specify that there is at most one element in a set"));
+    d.put("sum", new Description("sum quantifier ('sum')",
+            " to specify that the sum of the elements in a set satisfy a " +
+                    "condition"));
+    d.put("seq", new Description("sequence constructor ('seq')",
+            " to specify that the elements in a set are ordered"));
+    d.put("none", new Description("empty set constructor ('none')",
+            " to specify that a set is empty"));
+    d.put("iden", new Description("identity relation constructor ('iden')",
+            " to specifies the identity relation"));
+    d.put("disj", new Description("disjoint operator ('disj')",
+            " to specify that two sets are disjoint"));
+
+    // Logic operators
+    d.put("||", new Description("disjunction operator ('||')",
+            " to combine two boolean expressions"));
+    d.put("or", new Description("disjunction operator ('or')",
+            " to combine two boolean expressions"));
+    d.put("&&", new Description("conjunction operator ('&&')",
+            " to combine two boolean expressions"));
+    d.put("and", new Description("conjunction operator ('and')",
+            " to combine two boolean expressions"));
+
+    // Future Temporal operators
+    d.put("always", new Description("temporal operator ('always')",
+            " to specify that a property should always hold"));
+    d.put("eventually", new Description("temporal operator ('eventually')",
+            " to specify that a property will eventually hold in the future"));
+    d.put("after", new Description("temporal operator ('after')",
+            " to specify that a property will hold in the next state"));
+    d.put("until", new Description("temporal operator ('until')",
+            " to specify that a property will hold until another property " +
+                    "holds"));
+
+    // Past Temporal operators
+    d.put("before", new Description("temporal operator ('before')",
+            " to specify that a property will hold in the previous state"));
+    d.put("once", new Description("temporal operator ('once')",
+            " to specify that a property once held in the past"));
+    d.put("historically", new Description("temporal operator ('historically')",
+            " to specify that a property always held in the past"));
+    d.put("since", new Description("temporal operator ('since')",
+            " to specify that a property holds since another property"));
+
+    return Collections.unmodifiableMap(d);
+  }
+
+  /**
+   * Name and role of an AST label in natural language.
+   */
+  private static class Description {
+    private final String name; // Name of the element
+    private final String role; // What the element is used for
+
+    Description(String name, String role) {
+      this.name = name;
+      this.role = role;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package org.higena.procedure;
+
+import org.higena.ast.AstFingerprint;
+import org.higena.ast.TED;
+import org.higena.graph.PathSearch;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.procedure.Context;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Neo4j procedure that runs the hint search inside the database:
+ * <pre>
+ * CALL higena.hint(ast, weightProperty, k = 1)
+ * YIELD source, path, rels, totalCost, totalTED, directTED
+ * </pre>
+ * It finds the Submission node with the AST fingerprint of the given AST,
+ * runs the Dijkstra's algorithm from it over the Derives edges weighted by
+ * the given property and returns the shortest paths to the k nearest
+ * distinct Correct nodes, with the TED between the source and the solution
+ * of each path to evaluate it. The traversal reads the graph directly, so
+ * no GDS projection is needed.
+ * <p>
+ * Returns no rows if there is no node with the AST and a single row with a
+ * null path if there is no path to a Correct node. Nodes are returned with
+ * the fields of the map projection of SubmissionNode.
+ * <p>
+ * To install it, copy the shaded jar to the plugins directory of the
+ * database and set Db.PROCEDURE to true.
+ *
+ * @see org.higena.graph.Db#getHintPaths(String, String, int)
+ */
+public class HintProcedure {
+  private static final Label SUBMISSION = Label.label("Submission"),
+          CORRECT = Label.label("Correct");
+  private static final RelationshipType DERIVES =
+          RelationshipType.withName("Derives");
+
+  @Context
+  public Transaction tx;
+
+  @Procedure(name = "higena.hint", mode = Mode.READ)
+  @Description("higena.hint(ast, weightProperty, k = 1) - Shortest paths " +
+          "from the submission with the given AST to the k nearest Correct " +
+          "submissions.")
+  public Stream<HintResult> hint(@Name("ast") String ast,
+                                 @Name("weightProperty") String weightProperty,
+                                 @Name(value = "k", defaultValue = "1") long k) {
+    Node source = tx.findNode(SUBMISSION, "astHash", AstFingerprint.of(ast));
+    if (source == null) {
+      return Stream.empty();
+    }
+    Map<String, Object> sourceMap = toMap(source);
+    List<HintResult> results = new ArrayList<>();
+    for (PathSearch.Path<Node, Relationship> path :
+            new DerivesSearch(weightProperty).search(source, (int) k)) {
+      results.add(new HintResult(sourceMap, path, ast));
+    }
+    if (results.isEmpty()) {
+      results.add(new HintResult(sourceMap));
+    }
+    return results.stream();
+  }
+
+  /**
+   * Returns the fields of the node read by SubmissionNode.fromValue.
+   */
+  private static Map<String, Object> toMap(Node node) {
+    List<String> labels = new ArrayList<>();
+    node.getLabels().forEach(label -> labels.add(label.name()));
+    Map<String, Object> map = new HashMap<>();
+    map.put("id", node.getProperty("id", null));
+    map.put("ast", node.getProperty("ast", ""));
+    map.put("expr", node.getProperty("expr", ""));
+    map.put("popularity", node.getProperty("popularity", 0.0));
+    map.put("labels", labels);
+    return map;
+  }
+
+  private static double getDouble(Relationship rel, String property) {
+    Object value = rel.getProperty(property, 0.0);
+    return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+  }
+
+  /**
+   * Dijkstra's algorithm over the outgoing Derives edges of the database
+   * until k Correct nodes other than the source node are reached.
+   */
+  private static class DerivesSearch extends PathSearch<Node, Relationship> {
+    private final String weightProperty; // Property used as weight
+
+    DerivesSearch(String weightProperty) {
+      this.weightProperty = weightProperty;
+    }
+
+    @Override
+    protected Iterable<Relationship> getEdges(Node node) {
+      return node.getRelationships(Direction.OUTGOING, DERIVES);
+    }
+
+    @Override
+    protected Node getTarget(Relationship rel) {
+      return rel.getEndNode();
+    }
+
+    @Override
+    protected double getWeight(Relationship rel) {
+      return getDouble(rel, weightProperty);
+    }
+
+    @Override
+    protected boolean isGoal(Node node) {
+      return node.hasLabel(CORRECT);
+    }
+  }
+
+  /**
+   * Row returned by the procedure.
+   */
+  public static class HintResult {
+    public Map<String, Object> source; // Source node
+    public List<Map<String, Object>> path; // Nodes of the path or null
+    public List<Relationship> rels; // Derives edges of the path or null
+    public Double totalCost; // Sum of the weights of the edges
+    public Double totalTED; // Sum of the TED of the edges
+    public Long directTED; // TED between the source and the solution
+
+    HintResult(Map<String, Object> source) {
+      this.source = source;
+    }
+
+    HintResult(Map<String, Object> source,
+               PathSearch.Path<Node, Relationship> found, String ast) {
+      this(source);
+      List<Map<String, Object>> nodes = new ArrayList<>();
+      double ted = 0;
+      nodes.add(source);
+      for (Node node : found.getNodes().subList(1, found.getNodes().size())) {
+        nodes.add(toMap(node));
+      }
+      for (Relationship rel : found.getEdges()) {
+        ted += getDouble(rel, "ted");
+      }
+      this.path = nodes;
+      this.rels = found.getEdges();
+      this.totalCost = found.getCost();
+      this.totalTED = ted;
+      this.directTED = (long) TED.computeEditDistance(ast,
+              (String) found.getLast().getProperty("ast", ""));
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package org.higena.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.higena.ast.TreeDiffCache;
+import org.higena.graph.Graph;
+import org.higena.graph.GraphRegistry;
+import org.higena.hint.HintGenType;
+import org.higena.hint.HintGenerator;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local HTTP/JSON hint service. Keeps one Graph per challenge and predicate
+ * so that the parsed challenge modules and the in-memory caches stay warm
+ * between requests.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *   <li>POST /hint: body with challenge, predicate, expression and
+ *   optionally code, type (TED, REL_POISSON or NODE_POISSON), k (number
+ *   of paths) and budget (milliseconds of the solution search). Returns the
+ *   JSON of the HintGenerator.</li>
+ *   <li>GET /metrics: latency histogram of the hint requests, worker pool
+ *   usage, coalescing ratio, TreeDiffCache hit rate, heap, off-heap and
+ *   GC usage and the submissions kept, promoted and expired by the
+ *   overlays.</li>
+ *   <li>GET /health: returns ok.</li>
+ * </ul>
+ * Requests are handled by a bounded worker pool. When all workers are busy
+ * and the queue is full, requests are rejected with 503. Hint computations
+ * for the same graph are serialized because generating a hint may add
+ * nodes, edges and projections to the graph, and identical concurrent
+ * requests share one computation (see Graph#generateHint). Requests for
+ * different graphs run in parallel.
+ */
+public class HintServer {
+  public static final int DEFAULT_PORT = 8080;
+  public static final int DEFAULT_THREADS = 8;
+  public static final int DEFAULT_QUEUE_SIZE = 256;
+  private final HttpServer server; // HTTP server
+  private final ThreadPoolExecutor workers; // Bounded worker pool
+  private final GraphRegistry graphs = GraphRegistry.getInstance(); // Shared graphs
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  public HintServer(int port) throws IOException {
+    this(port, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+  }
+
+  public HintServer(int port, int threads, int queueSize) throws IOException {
+    this.workers = new ThreadPoolExecutor(threads, threads, 60,
+            TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize));
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/hint", exchange -> dispatch(exchange, this::handleHint));
+    server.createContext("/metrics", exchange -> dispatch(exchange, this::handleMetrics));
+    server.createContext("/health", exchange -> send(exchange, 200, new JSONObject().put("status", "ok")));
+  }
+
+  public void start() {
+    server.start();
+    System.out.println("[SERVER] Listening on port " + getPort());
+  }
+
+  /**
+   * Warms up the graphs of the given predicates concurrently, as many at
+   * a time as there are workers, and waits for all of them. Should be
+   * called before start().
+   *
+   * @param predicates Predicates as "challenge/predicate"
+   * @see GraphRegistry#warmUp(List, int)
+   */
+  public void warmUp(List<String> predicates) {
+    long start = System.currentTimeMillis();
+    graphs.warmUp(predicates, workers.getCorePoolSize()).join();
+    System.out.println("[SERVER] Warmed up " + predicates.size() +
+            " predicates in " + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  /**
+   * Stops accepting requests and waits for the running ones to finish.
+   *
+   * @param timeout Max. seconds to wait
+   */
+  public void stop(int timeout) {
+    server.stop(timeout);
+    workers.shutdown();
+    try {
+      workers.awaitTermination(timeout, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    graphs.close();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  // Handlers
+
+  /**
+   * Hands the request to the worker pool or rejects it with 503 if the pool
+   * is saturated.
+   */
+  private void dispatch(HttpExchange exchange, Handler handler) {
+    try {
+      workers.execute(() -> {
+        try {
+          handler.handle(exchange);
+        } catch (Exception e) {
+          System.err.println("[SERVER] Failed request: " + e.getMessage());
+          send(exchange, 500, error(e.getMessage()));
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      send(exchange, 503, error("Server is busy. Try again later."));
+    }
+  }
+
+  private void handleHint(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestMethod().equals("POST")) {
+      send(exchange, 405, error("Use POST."));
+      return;
+    }
+    long start = System.nanoTime();
+    JSONObject req;
+    HintGenType type;
+    try (InputStream body = exchange.getRequestBody()) {
+      req = new JSONObject(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+      type = HintGenType.valueOf(req.optString("type", "TED"));
+      req.getString("challenge");
+      req.getString("predicate");
+      req.getString("expression");
+    } catch (JSONException | IllegalArgumentException e) {
+      send(exchange, 400, error(e.getMessage()));
+      return;
+    }
+
+    Graph graph = getGraph(req.getString("challenge"), req.getString("predicate"));
+    HintGenerator generator = graph.generateHint(req.getString("expression"),
+            req.optString("code", ""), type, req.optInt("k", 1),
+            req.optLong("budget", Graph.LATENCY_BUDGET));
+    latencies.record(System.nanoTime() - start);
+
+    if (generator == null || generator.getHint() == null) {
+      send(exchange, 422, error("Cannot generate hint."));
+    } else {
+      send(exchange, 200, generator.getJSON());
+    }
+  }
+
+  private void handleMetrics(HttpExchange exchange) {
+    JSONObject json = new JSONObject();
+    json.put("hintLatency", latencies.getJSON());
+    json.put("activeWorkers", workers.getActiveCount());
+    json.put("queuedRequests", workers.getQueue().size());
+    json.put("graphs", graphs.size());
+    long requests = 0, coalesced = 0, offHeap = 0;
+    long overlaySize = 0, promoted = 0, expired = 0;
+    for (Graph graph : graphs.getGraphs()) {
+      requests += graph.getHintRequests();
+      coalesced += graph.getCoalescedRequests();
+      offHeap += graph.getOffHeapBytes();
+      overlaySize += graph.getOverlay().size();
+      promoted += graph.getOverlay().getPromoted();
+      expired += graph.getOverlay().getExpired();
+    }
+    json.put("coalescedRequests", coalesced);
+    json.put("coalescingRatio", requests == 0 ? 0 : (double) coalesced / requests);
+    json.put("treeDiffCacheHitRate", TreeDiffCache.getInstance().getHitRate());
+    json.put("heapUsedBytes", ManagementFactory.getMemoryMXBean()
+            .getHeapMemoryUsage().getUsed());
+    json.put("offHeapBytes", offHeap);
+    json.put("overlaySubmissions", overlaySize);
+    json.put("promotedSubmissions", promoted);
+    json.put("expiredSubmissions", expired);
+    long gcCount = 0, gcTime = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      gcCount += Math.max(0, gc.getCollectionCount());
+      gcTime += Math.max(0, gc.getCollectionTime());
+    }
+    json.put("gcCount", gcCount);
+    json.put("gcTimeMs", gcTime);
+    send(exchange, 200, json);
+  }
+
+  // Auxiliary methods
+
+  /**
+   * Returns the shared graph of the given challenge and predicate with
+   * write-behind enabled.
+   */
+  private Graph getGraph(String challenge, String predicate) {
+    Graph graph = graphs.get(challenge, predicate);
+    graph.enableWriteBehind();
+    return graph;
+  }
+
+  private static JSONObject error(String message) {
+    return new JSONObject().put("error", message);
+  }
+
+  private static void send(HttpExchange exchange, int status, JSONObject json) {
+    byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+    try (OutputStream out = exchange.getResponseBody()) {
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, body.length);
+      out.write(body);
+    } catch (IOException e) {
+      System.err.println("[SERVER] Failed to send response: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Request handler that runs on a worker thread.
+   */
+  private interface Handler {
+    void handle(HttpExchange exchange) throws IOException;
+  }
+}
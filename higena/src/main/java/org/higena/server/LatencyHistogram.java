@@ -0,0 +1,88 @@
+package org.higena.server;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of request latencies with fixed bucket bounds in milliseconds.
+ * Recording is lock-free, so it can be shared by all worker threads.
+ * Percentiles are estimated by the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+  private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500,
+          1000, 2000, 5000, 10000}; // Upper bounds of the buckets (ms)
+  private final AtomicLongArray counts =
+          new AtomicLongArray(BOUNDS.length + 1); // Last bucket is overflow
+  private final AtomicLong total = new AtomicLong(), totalNanos =
+          new AtomicLong(), maxNanos = new AtomicLong();
+
+  /**
+   * Records the latency of a request.
+   *
+   * @param nanos Latency in nanoseconds
+   */
+  public void record(long nanos) {
+    double ms = nanos / 1e6;
+    int bucket = 0;
+    while (bucket < BOUNDS.length && ms > BOUNDS[bucket]) {
+      bucket++;
+    }
+    counts.incrementAndGet(bucket);
+    total.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * Returns the estimated latency below which the given fraction of the
+   * requests fall.
+   *
+   * @param fraction Fraction between 0 and 1 (e.g. 0.95)
+   * @return Upper bound of the bucket in ms, the max. latency for the
+   * overflow bucket or 0 if nothing was recorded.
+   */
+  public double percentile(double fraction) {
+    long count = total.get(), seen = 0;
+    if (count == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(fraction * count);
+    for (int i = 0; i < BOUNDS.length; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return BOUNDS[i];
+      }
+    }
+    return maxNanos.get() / 1e6;
+  }
+
+  /**
+   * Returns a JSON object with the count, mean, max. and percentiles of the
+   * latencies and the count of each bucket.
+   *
+   * @return Histogram represented as a JSON object
+   */
+  public JSONObject getJSON() {
+    JSONObject json = new JSONObject();
+    long count = total.get();
+    json.put("count", count);
+    json.put("meanMs", count == 0 ? 0 : totalNanos.get() / 1e6 / count);
+    json.put("maxMs", maxNanos.get() / 1e6);
+    json.put("p50Ms", percentile(0.5));
+    json.put("p95Ms", percentile(0.95));
+    json.put("p99Ms", percentile(0.99));
+
+    JSONArray buckets = new JSONArray();
+    for (int i = 0; i <= BOUNDS.length; i++) {
+      JSONObject bucket = new JSONObject();
+      bucket.put("le", i < BOUNDS.length ? String.valueOf(BOUNDS[i]) : "+Inf");
+      bucket.put("count", counts.get(i));
+      buckets.put(bucket);
+    }
+    json.put("buckets", buckets);
+    return json;
+  }
+}
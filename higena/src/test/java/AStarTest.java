@@ -0,0 +1,93 @@
+import org.higena.graph.AStarSearch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AStarTest {
+  private static final int DISTRACTORS = 50; // Dead-end branches of the source
+  private static final long S = 0, N1 = 1, N2 = 2, G1 = 3, G2 = 4; // Node ids
+
+  /**
+   * Builds a graph where the source reaches a solution in 3 renames and a
+   * second solution in 4, and has many dead-end branches that are as cheap
+   * to enter as the path to the solutions. The A* search must return the
+   * shortest costs without expanding the dead ends.
+   */
+  @Test
+  public void shortestPathsTest() {
+    AStarSearch search = new AStarSearch();
+    search.addNode(S, "{r{a}{a}{a}}", false);
+    search.addNode(N1, "{r{b}{a}{a}}", false);
+    search.addNode(N2, "{r{b}{b}{a}}", false);
+    search.addNode(G1, "{r{b}{b}{b}}", true);
+    search.addNode(G2, "{r{b}{b}{c}}", true);
+    search.addEdge(S, N1, 1);
+    search.addEdge(N1, N2, 1);
+    search.addEdge(N2, G1, 1);
+    search.addEdge(G1, G2, 1);
+    for (int i = 0; i < DISTRACTORS; i++) {
+      long d1 = 100 + i, d2 = 200 + i;
+      search.addNode(d1, "{r{z" + i + "}{a}{a}}", false);
+      search.addNode(d2, "{r{z" + i + "}{y" + i + "}{a}}", false);
+      search.addEdge(S, d1, 1);
+      search.addEdge(d1, d2, 1);
+    }
+
+    List<AStarSearch.Path> paths = search.search(S, 2);
+
+    assertEquals(2, paths.size());
+    assertEquals(List.of(S, N1, N2, G1), paths.get(0).getNodes());
+    assertEquals(3.0, paths.get(0).getCost());
+    assertEquals(List.of(S, N1, N2, G1, G2), paths.get(1).getNodes());
+    assertEquals(4.0, paths.get(1).getCost());
+    // Dijkstra would expand all the first level dead ends before g1
+    assertTrue(paths.get(0).getExpanded() < DISTRACTORS);
+    assertTrue(search.isConsistent());
+  }
+
+  /**
+   * Edges lighter than the bag distance between their nodes (e.g. lengths
+   * of edit scripts instead of TEDs) would make the A* search return the
+   * direct edge to the solution. The search must fall back to the
+   * Dijkstra's algorithm and return the cheapest path.
+   */
+  @Test
+  public void inexactWeightsTest() {
+    AStarSearch search = new AStarSearch();
+    search.addNode(S, "{r{a}{a}{a}}", false);
+    search.addNode(N1, "{x{y}{z}{w}}", false);
+    search.addNode(G1, "{r{b}{b}{b}}", true);
+    search.addEdge(S, G1, 3);
+    search.addEdge(S, N1, 1);
+    search.addEdge(N1, G1, 1);
+
+    List<AStarSearch.Path> paths = search.search(S, 1);
+
+    assertFalse(search.isConsistent());
+    assertEquals(1, paths.size());
+    assertEquals(List.of(S, N1, G1), paths.get(0).getNodes());
+    assertEquals(2.0, paths.get(0).getCost());
+  }
+
+  /**
+   * Edges may point to nodes that were not added (e.g. loaded before their
+   * node). The search must still reach the solutions through the others.
+   */
+  @Test
+  public void edgeToUnknownNodeTest() {
+    AStarSearch search = new AStarSearch();
+    search.addNode(S, "{r{a}}", false);
+    search.addNode(G1, "{r{b}}", true);
+    search.addEdge(S, N1, 1);
+    search.addEdge(S, G1, 2);
+
+    List<AStarSearch.Path> paths = search.search(S, 1);
+
+    assertEquals(1, paths.size());
+    assertEquals(List.of(S, G1), paths.get(0).getNodes());
+  }
+}
@@ -0,0 +1,145 @@
+import at.unisalzburg.dbresearch.apted.parser.BracketStringInputParser;
+import com.github.gumtreediff.tree.Tree;
+import org.higena.ast.AlloyAST;
+import org.higena.ast.TED;
+import org.higena.parser.Canonicalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AlloyASTTest {
+  private static final String[] REAL_ASTS = {
+          "{AND{no{Protected}}}",
+          "{AND{no{Trash}}{no{Protected}}}",
+          "{AND{no{File}}{no{Trash}}}",
+          "{all{one of{var0}{sig/Node}}{!={.{var0/Node}{field/adj{set of{sig/Node}}}}{var0/Node}}}",
+          "{all{one of{var0}{sig/Node}}{!in{var0/Node}{.{var0/Node}{field/adj{set of{sig/Node}}}}}}",
+          "{={field/adj{set of{sig/Node}}}{~{field/adj{set of{sig/Node}}}}}",
+          "{={~{field/adj{set of{sig/Node}}}}{field/adj{set of{sig/Node}}}}",
+          "{all{one of{var0}{sig/Node}}{in{sig/Node}{.{var0/Node}{*{+{field/adj{set of{sig/Node}}}{~{field/adj{set of{sig/Node}}}}}}}}}",
+          "{all{one of{var0}{sig/Node}}{in{sig/Node}{.{var0/Node}{^{+{~{field/adj{set of{sig/Node}}}}{field/adj{set of{sig/Node}}}}}}}}",
+          "{AND{some{&{Trash}{Protected}}}{no{+{Protected}{Trash}}}}",
+          "{AND{no{+{Trash}{Protected}}}{some{&{Protected}{Trash}}}}"};
+  private static final String[] OPERATORS = {"AND", "OR", "=", "!=", "+", "&",
+          "<=>", "in", ".", "no", "some", "~", "^"};
+  private static final String[] LEAVES = {"sig/Node", "var0/Node", "Trash",
+          "Protected", "File", "field/adj"};
+
+  /**
+   * Compares prepareForMatching with the previous implementation, which
+   * compared every pair of commutative nodes, on ASTs from the graphs and
+   * on random variations of them.
+   */
+  @Test
+  public void sameOrderAsPairwiseAlignmentTest() {
+    List<String> asts = new ArrayList<>(List.of(REAL_ASTS));
+    Random random = new Random(42);
+    for (int i = 0; i < 100; i++) {
+      asts.add(randomAST(random, 4));
+    }
+    for (String ast1 : asts) {
+      for (String ast2 : asts) {
+        checkSameAlignment(ast1, ast2);
+      }
+      // Variation of the AST with swapped and renamed branches
+      checkSameAlignment(ast1, mutate(parse(ast1), random).getChild(0).toTreeString());
+    }
+  }
+
+  private static void checkSameAlignment(String ast1, String ast2) {
+    AlloyAST current = parse(ast1), previous = parse(ast1);
+    AlloyAST other = parse(ast2);
+    current.prepareForMatching(other);
+    pairwiseAlignment(previous, other);
+
+    assertEquals(previous.toTreeString(), current.toTreeString());
+    assertEquals(distance(previous, other), distance(current, other));
+  }
+
+  // Previous implementation of AlloyAST.prepareForMatching
+
+  private static void pairwiseAlignment(Tree tree, Tree other) {
+    List<Tree> commutative1 = new ArrayList<>(), commutative2 = new ArrayList<>();
+    findCommutativeNodes(tree, commutative1);
+    findCommutativeNodes(other, commutative2);
+    for (Tree current : commutative1) {
+      for (Tree otherCurrent : commutative2) {
+        if (current.getLabel().equals(otherCurrent.getLabel())
+                && hasCommonSwappedBranch(current, otherCurrent)) {
+          List<Tree> children = current.getChildren();
+          Tree left = children.get(0);
+          children.set(0, children.get(1));
+          children.set(1, left);
+          break;
+        }
+      }
+    }
+  }
+
+  private static void findCommutativeNodes(Tree tree, List<Tree> nodes) {
+    if (Canonicalizer.isCommutative(tree.getLabel())) {
+      nodes.add(tree);
+    }
+    for (Tree child : tree.getChildren()) {
+      findCommutativeNodes(child, nodes);
+    }
+  }
+
+  private static boolean hasCommonSwappedBranch(Tree tree, Tree other) {
+    List<Tree> children = tree.getChildren(), otherChildren = other.getChildren();
+    if (children.size() != 2 || otherChildren.size() != 2) {
+      return false;
+    }
+    return AlloyAST.areEqual(children.get(0), otherChildren.get(1))
+            || AlloyAST.areEqual(children.get(1), otherChildren.get(0));
+  }
+
+  // Auxiliary methods
+
+  private static AlloyAST parse(String ast) {
+    return new AlloyAST(new BracketStringInputParser().fromString("{root" + ast + "}"));
+  }
+
+  private static int distance(AlloyAST tree, AlloyAST other) {
+    BracketStringInputParser parser = new BracketStringInputParser();
+    return TED.computeEditDistance(parser.fromString(tree.toTreeString()),
+            parser.fromString(other.toTreeString()));
+  }
+
+  private static String randomAST(Random random, int depth) {
+    if (depth == 0 || random.nextInt(4) == 0) {
+      return "{" + LEAVES[random.nextInt(LEAVES.length)] + "}";
+    }
+    String op = OPERATORS[random.nextInt(OPERATORS.length)];
+    int arity = Canonicalizer.isCommutative(op) ? 2 : 1 + random.nextInt(2);
+    StringBuilder ast = new StringBuilder("{").append(op);
+    for (int i = 0; i < arity; i++) {
+      ast.append(randomAST(random, depth - 1));
+    }
+    return ast.append("}").toString();
+  }
+
+  /**
+   * Swaps the branches of some commutative nodes and renames some leaves.
+   */
+  private static Tree mutate(Tree tree, Random random) {
+    List<Tree> children = tree.getChildren();
+    if (children.isEmpty() && random.nextInt(4) == 0) {
+      tree.setLabel(LEAVES[random.nextInt(LEAVES.length)]);
+    }
+    if (children.size() == 2 && Canonicalizer.isCommutative(tree.getLabel())
+            && random.nextBoolean()) {
+      Tree left = children.get(0);
+      children.set(0, children.get(1));
+      children.set(1, left);
+    }
+    for (Tree child : children) {
+      mutate(child, random);
+    }
+    return tree;
+  }
+}
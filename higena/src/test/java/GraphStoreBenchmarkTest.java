@@ -0,0 +1,166 @@
+import org.higena.graph.MemoryGraphStore;
+import org.higena.graph.OffHeapGraphStore;
+import org.higena.graph.SubmissionEdge;
+import org.higena.graph.SubmissionNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmarks the heap used by the copies of the graph (MemoryGraphStore and
+ * OffHeapGraphStore) and the garbage collections while they serve hint
+ * lookups. Both stores hold the same random graph, so it does not need the
+ * datasets.
+ */
+public class GraphStoreBenchmarkTest {
+  private static final int NODES = 100000, EDGES = 3; // Size of the graph
+  private static final int QUERIES = 2000; // Node lookups and path searches
+  private static File storeCsv = null;
+  private static final boolean statistics = true;
+
+  @BeforeAll
+  public static void setup() {
+    if (statistics) {
+      storeCsv = TEDBenchmarkTest.createCSV("store_benchmark", "src/test/outputs/",
+              "Store,Nodes,Edges,HeapMB,OffHeapMB,Queries,QueryMs,GcCount,GcMs");
+    }
+  }
+
+  // Auxiliary methods
+
+  private static String getAst(int node) {
+    return "{r{a" + node + "}{b" + node % 97 + "}}";
+  }
+
+  /**
+   * Adds the same random graph to a store: one Correct node out of 50 and
+   * EDGES edges per node with their own operations.
+   */
+  private static void buildGraph(Consumer<SubmissionNode> addNode,
+                                 AddEdge addEdge) {
+    Random random = new Random(42);
+    for (int i = 0; i < NODES; i++) {
+      addNode.accept(new SubmissionNode(i, getAst(i), "a" + i,
+              random.nextInt(10), List.of("Submission",
+              i % 50 == 0 ? "Correct" : "Incorrect")));
+    }
+    for (int i = 0; i < NODES; i++) {
+      for (int j = 0; j < EDGES; j++) {
+        int target = random.nextInt(NODES);
+        double ted = 1 + random.nextInt(5);
+        addEdge.accept(i, target, new SubmissionEdge((long) i * EDGES + j, ted,
+                List.of("Rename a" + i + " to a" + target), null,
+                Map.of("ted", ted, "poisson", random.nextDouble(),
+                        "dstPoisson", random.nextDouble())));
+      }
+    }
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static long[] gcStatistics() {
+    long count = 0, time = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+      time += Math.max(0, gc.getCollectionTime());
+    }
+    return new long[]{count, time};
+  }
+
+  /**
+   * Builds a store, measures the heap it retains and runs the lookups and
+   * path searches of QUERIES hint requests on it.
+   *
+   * @param name    Name of the store in the results
+   * @param create  Creates the empty store
+   * @param build   Adds the graph to the store
+   * @param offHeap Off-heap bytes used by the store
+   * @param search  Runs the lookups of one hint request for a node
+   * @return Heap retained by the store in bytes
+   */
+  private static <S> long benchmark(String name, Supplier<S> create,
+                                    Consumer<S> build,
+                                    Function<S, Long> offHeap,
+                                    BiConsumer<S, Integer> search) {
+    long before = usedHeap();
+    S store = create.get();
+    build.accept(store);
+    long heap = usedHeap() - before;
+
+    // Warm up
+    for (int i = 0; i < QUERIES / 10; i++) {
+      search.accept(store, i);
+    }
+    long[] gcBefore = gcStatistics();
+    long start = System.nanoTime();
+    for (int i = 0; i < QUERIES; i++) {
+      search.accept(store, i * 31 % NODES);
+    }
+    long time = System.nanoTime() - start;
+    long[] gcAfter = gcStatistics();
+
+    if (statistics) {
+      TEDBenchmarkTest.writeLineToCSV(storeCsv, name + "," + NODES + "," + (NODES * EDGES) + "," + (heap / 1e6) + "," + (offHeap.apply(store) / 1e6) + "," + QUERIES + "," + (time / 1e6) + "," + (gcAfter[0] - gcBefore[0]) + "," + (gcAfter[1] - gcBefore[1]));
+    }
+    return heap;
+  }
+
+  // Test method
+
+  /**
+   * Compares the heap retained by each store and the garbage collections
+   * while serving the same requests. The off-heap layout must retain less
+   * heap than the on-heap one.
+   */
+  @Test
+  public void benchmarkStores() {
+    long memoryHeap = benchmark("Memory",
+            () -> new MemoryGraphStore("challenge", "predicate"),
+            store -> buildGraph(store::addNode,
+                    (src, dst, edge) -> store.addEdge(src, dst, edge)),
+            store -> 0L,
+            (store, node) -> {
+              SubmissionNode source = store.getNodeByAST(getAst(node));
+              assertNotNull(source);
+              store.getShortestPaths(source, "ted", 1);
+            });
+    long offHeapHeap = benchmark("OffHeap",
+            () -> new OffHeapGraphStore("challenge", "predicate"),
+            store -> buildGraph(store::addNode,
+                    (src, dst, edge) -> store.addEdge(getAst(src), getAst(dst), edge)),
+            OffHeapGraphStore::getOffHeapBytes,
+            (store, node) -> {
+              SubmissionNode source = store.getNodeByAST(getAst(node));
+              assertNotNull(source);
+              store.getShortestPaths(source, "ted", 1);
+            });
+
+    assertTrue(offHeapHeap < memoryHeap);
+  }
+
+  /**
+   * Adds an edge between the nodes with the given ids.
+   */
+  private interface AddEdge {
+    void accept(int src, int dst, SubmissionEdge edge);
+  }
+}
@@ -0,0 +1,157 @@
+import org.higena.ast.AstFingerprint;
+import org.higena.graph.Db;
+import org.higena.graph.GraphWriter;
+import org.higena.graph.SubmissionNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.neo4j.driver.Config;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Session;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class GraphWriterTest {
+  private static final String SOLUTION = "{r{b}}";
+  private Neo4j neo4j;
+  private Driver driver;
+  private Path journalDir;
+  private long flushInterval;
+
+  @BeforeAll
+  public void setup() {
+    neo4j = Neo4jBuilders.newInProcessBuilder()
+            .withDisabledServer()
+            .withFixture(String.format(
+                    "CREATE (:Sequence {name: 'Submission', next: 1})\n" +
+                            "CREATE (:Sequence {name: 'Derives', next: 0})\n" +
+                            "CREATE (:Submission:Correct {id: 0, ast: '%s', astHash: '%s', expr: 'b'})",
+                    SOLUTION, AstFingerprint.of(SOLUTION)))
+            .build();
+    driver = GraphDatabase.driver(neo4j.boltURI());
+  }
+
+  @AfterAll
+  public void teardown() {
+    driver.close();
+    neo4j.close();
+  }
+
+  @BeforeEach
+  public void createJournalDir() throws IOException {
+    journalDir = Files.createTempDirectory("journal");
+    GraphWriter.JOURNAL_DIR = journalDir + "/";
+    flushInterval = GraphWriter.FLUSH_INTERVAL;
+  }
+
+  @AfterEach
+  public void restoreFlushInterval() {
+    GraphWriter.FLUSH_INTERVAL = flushInterval;
+  }
+
+  /**
+   * Mutations left in the journal are replayed and written on close.
+   * Invalid lines and mutations that cannot be written are moved to the
+   * rejected file. The sequences are unlocked even though no edge is
+   * written.
+   */
+  @Test
+  public void replayTest() throws IOException {
+    GraphWriter.FLUSH_INTERVAL = 60000; // Only flush on close
+    String ast = "{r{a}}", noCode = "{r{c}}";
+    Files.write(journalDir.resolve("neo4j.jsonl"), List.of(
+            nodeMutation(ast, "a", "\"code\": \"\", "),
+            "{\"type\": \"node\"", // Truncated by a crash
+            nodeMutation(noCode, "c", "")), StandardCharsets.UTF_8);
+
+    GraphWriter writer = new GraphWriter(openDb(driver));
+    assertEquals(2, writer.size());
+    SubmissionNode pending = writer.getPendingNode(ast);
+    assertNotNull(pending);
+    assertTrue(pending.getId() < 0);
+    writer.close();
+
+    assertEquals(1L, countNodes(ast));
+    assertEquals(0L, countNodes(noCode));
+    assertEquals(0L, querySingle("MATCH (s:Sequence) WHERE s.lock IS NOT NULL\n" +
+            "RETURN count(s) AS count", Map.of()));
+    assertEquals(0, readLines("neo4j.jsonl").size());
+    assertEquals(2, readLines("neo4j.rejected.jsonl").size());
+  }
+
+  /**
+   * Failed flushes keep the mutations in the journal and are retried with
+   * a growing delay. The next writer replays and writes them.
+   */
+  @Test
+  public void backoffTest() throws Exception {
+    GraphWriter.FLUSH_INTERVAL = 50;
+    String ast = "{r{d}}";
+    Driver unreachable = GraphDatabase.driver("bolt://localhost:1",
+            Config.builder().withMaxTransactionRetryTime(0, TimeUnit.MILLISECONDS).build());
+    GraphWriter writer = new GraphWriter(openDb(unreachable));
+    writer.addNode("d", ast, "", 1);
+    long deadline = System.currentTimeMillis() + 10000;
+    while (writer.getBackoff() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    long backoff = writer.getBackoff();
+    assertTrue(backoff >= GraphWriter.FLUSH_INTERVAL);
+    assertEquals(0, backoff % GraphWriter.FLUSH_INTERVAL);
+    assertEquals(1, Long.bitCount(backoff / GraphWriter.FLUSH_INTERVAL));
+    assertEquals(1, writer.size());
+    writer.close();
+    unreachable.close();
+    assertEquals(1, readLines("neo4j.jsonl").size());
+
+    GraphWriter replayed = new GraphWriter(openDb(driver));
+    assertEquals(1, replayed.size());
+    replayed.close();
+    assertEquals(1L, countNodes(ast));
+    assertEquals(0, readLines("neo4j.jsonl").size());
+  }
+
+  // Auxiliary methods
+
+  private static Db openDb(Driver driver) {
+    return new Db(driver, "neo4j", "challenge", "predicate");
+  }
+
+  private static String nodeMutation(String ast, String expr, String code) {
+    return String.format("{\"type\": \"node\", \"astHash\": \"%s\", \"ast\": \"%s\", " +
+            "\"expr\": \"%s\", %s\"popularity\": 1}", AstFingerprint.of(ast), ast, expr, code);
+  }
+
+  private long countNodes(String ast) {
+    return querySingle("MATCH (n:Submission {astHash: $astHash})\n" +
+            "RETURN count(n) AS count", Map.of("astHash", AstFingerprint.of(ast)));
+  }
+
+  private long querySingle(String query, Map<String, Object> params) {
+    try (Session session = driver.session()) {
+      return session.run(query, params).single().get("count").asLong();
+    }
+  }
+
+  private List<String> readLines(String file) throws IOException {
+    Path path = journalDir.resolve(file);
+    return Files.exists(path) ? Files.readAllLines(path, StandardCharsets.UTF_8) : List.of();
+  }
+}
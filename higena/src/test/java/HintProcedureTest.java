@@ -0,0 +1,84 @@
+import org.higena.ast.AstFingerprint;
+import org.higena.procedure.HintProcedure;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class HintProcedureTest {
+  private static final String SRC = "{r{a}{a}}", MID = "{r{b}{a}}",
+          SOLUTION = "{r{b}{b}}", OTHER = "{r{c}{c}}";
+  private Neo4j neo4j;
+  private Driver driver;
+
+  @BeforeAll
+  public void setup() {
+    // Two paths to the solution (cost 2 and 5) and an edge to another
+    // solution that is farther away
+    neo4j = Neo4jBuilders.newInProcessBuilder()
+            .withDisabledServer()
+            .withProcedure(HintProcedure.class)
+            .withFixture(String.format(
+                    "CREATE (s:Submission:Incorrect {id: 0, ast: '%s', astHash: '%s'})\n" +
+                            "CREATE (m:Submission:Incorrect {id: 1, ast: '%s', astHash: '%s'})\n" +
+                            "CREATE (g:Submission:Correct {id: 2, ast: '%s', astHash: '%s'})\n" +
+                            "CREATE (o:Submission:Correct {id: 3, ast: '%s', astHash: '%s'})\n" +
+                            "CREATE (s)-[:Derives {ted: 1}]->(m)\n" +
+                            "CREATE (m)-[:Derives {ted: 1}]->(g)\n" +
+                            "CREATE (s)-[:Derives {ted: 5}]->(g)\n" +
+                            "CREATE (s)-[:Derives {ted: 4}]->(o)",
+                    SRC, AstFingerprint.of(SRC), MID, AstFingerprint.of(MID),
+                    SOLUTION, AstFingerprint.of(SOLUTION),
+                    OTHER, AstFingerprint.of(OTHER)))
+            .build();
+    driver = GraphDatabase.driver(neo4j.boltURI());
+  }
+
+  @AfterAll
+  public void teardown() {
+    driver.close();
+    neo4j.close();
+  }
+
+  @Test
+  public void shortestPathsTest() {
+    try (Session session = driver.session()) {
+      List<Record> records = session.run(
+              "CALL higena.hint($ast, 'ted', 2)",
+              Map.of("ast", SRC)).list();
+
+      assertEquals(2, records.size());
+      Record best = records.get(0);
+      assertEquals(0, best.get("source").get("id").asLong());
+      assertEquals(List.of(0L, 1L, 2L),
+              best.get("path").asList(node -> node.get("id").asLong()));
+      assertEquals(2, best.get("rels").size());
+      assertEquals(2.0, best.get("totalCost").asDouble());
+      assertEquals(2.0, best.get("totalTED").asDouble());
+      assertEquals(2, best.get("directTED").asInt());
+      assertEquals(3L, records.get(1).get("path")
+              .asList(Value::asMap).get(1).get("id"));
+    }
+  }
+
+  @Test
+  public void unknownSourceTest() {
+    try (Session session = driver.session()) {
+      assertTrue(session.run("CALL higena.hint('{x}', 'ted')").list().isEmpty());
+    }
+  }
+}
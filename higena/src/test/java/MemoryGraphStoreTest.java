@@ -0,0 +1,160 @@
+import org.higena.graph.Deadline;
+import org.higena.graph.MemoryGraphStore;
+import org.higena.graph.SolutionPath;
+import org.higena.graph.SubmissionEdge;
+import org.higena.graph.SubmissionNode;
+import org.higena.graph.SubmissionOverlay;
+import org.higena.hint.HintGenType;
+import org.higena.hint.HintGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryGraphStoreTest {
+  private static final List<String> INCORRECT = List.of("Submission", "Incorrect"),
+          CORRECT = List.of("Submission", "Correct");
+
+  /**
+   * Builds a graph where the source reaches a solution in two renames
+   * through an intermediate submission.
+   */
+  private MemoryGraphStore buildStore() {
+    MemoryGraphStore store = new MemoryGraphStore("challenge", "predicate");
+    SubmissionNode empty = store.addNode(new SubmissionNode(0, "", "", 0, INCORRECT));
+    SubmissionNode src = store.addNode(new SubmissionNode(1, "{r{a}{a}}", "a a", 1, INCORRECT));
+    SubmissionNode mid = store.addNode(new SubmissionNode(2, "{r{b}{a}}", "b a", 1, INCORRECT));
+    SubmissionNode sol = store.addNode(new SubmissionNode(3, "{r{b}{b}}", "b b", 2, CORRECT));
+    store.addEdge(empty.getId(), src.getId(), edge(5));
+    store.addEdge(src.getId(), mid.getId(), edge(1));
+    store.addEdge(mid.getId(), sol.getId(), edge(1));
+    return store;
+  }
+
+  private static SubmissionEdge edge(double ted) {
+    return new SubmissionEdge(SubmissionEdge.NO_ID, ted, List.of(), null,
+            Map.of("ted", ted, "poisson", 1.5, "dstPoisson", 1.5));
+  }
+
+  @Test
+  public void shortestPathsTest() {
+    MemoryGraphStore store = buildStore();
+    SubmissionNode src = store.getNodeByAST("{r{a}{a}}");
+
+    List<SolutionPath> paths = store.getShortestPaths(src, "ted", 1);
+
+    assertEquals(1, paths.size());
+    assertEquals(3, paths.get(0).getSolution().getId());
+    assertEquals(2, paths.get(0).getNextNode().getId());
+    assertEquals(2.0, paths.get(0).getTotalCost());
+  }
+
+  /**
+   * With an expired deadline, only the most popular solution is compared.
+   */
+  @Test
+  public void mostSimilarWithDeadlineTest() throws InterruptedException {
+    MemoryGraphStore store = buildStore();
+    store.addNode(new SubmissionNode(4, "{r{c}{c}{c}}", "c c c", 5, CORRECT));
+
+    Deadline none = Deadline.NONE;
+    assertEquals(3, store.getMostSimilarNode("{r{a}{b}}", "Correct", none).getId());
+    assertFalse(none.wasReached());
+
+    Deadline expired = Deadline.after(1);
+    Thread.sleep(5);
+    assertEquals(4, store.getMostSimilarNode("{r{a}{b}}", "Correct", expired).getId());
+    assertTrue(expired.wasReached());
+  }
+
+  @Test
+  public void hintWithoutDatabaseTest() {
+    MemoryGraphStore store = buildStore();
+
+    // Existing submission: follows the path through the intermediate node
+    HintGenerator existing = new HintGenerator("a a", "", HintGenType.TED, store);
+    existing.generateHints("{r{a}{a}}", 1);
+    assertEquals("b a", existing.getNextExpr());
+
+    // New submission: added to the store and connected to the solution
+    HintGenerator created = new HintGenerator("c b", "", HintGenType.TED, store);
+    created.generateHints("{r{c}{b}}", 1);
+    assertNotNull(store.getNodeByAST("{r{c}{b}}"));
+    assertEquals("b b", created.getNextExpr());
+    assertEquals(5, store.size());
+  }
+
+  /**
+   * The path of the source (cost 4) is longer than its direct TED to the
+   * path's solution (1). When the latency budget cuts the search for the
+   * most similar solution after the most popular one (TED 3), the source
+   * must be connected to the solution of the path instead, and the edge
+   * must not be persisted.
+   */
+  @Test
+  public void approximateShorterPathTest() {
+    MemoryGraphStore store = new MemoryGraphStore("challenge", "predicate") {
+      @Override
+      public SubmissionNode getMostSimilarNode(String ast, String category,
+                                               Deadline deadline) {
+        try {
+          Thread.sleep(5); // Spend the budget before the first comparison
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.getMostSimilarNode(ast, category, deadline);
+      }
+    };
+    SubmissionNode src = store.addNode(new SubmissionNode(1, "{r{b}{a}}", "b a", 1, INCORRECT));
+    SubmissionNode mid = store.addNode(new SubmissionNode(2, "{r{a}{b}}", "a b", 1, INCORRECT));
+    SubmissionNode sol = store.addNode(new SubmissionNode(3, "{r{b}{b}}", "b b", 2, CORRECT));
+    store.addNode(new SubmissionNode(4, "{r{c}{c}{c}}", "c c c", 5, CORRECT));
+    store.addEdge(src.getId(), mid.getId(), edge(2));
+    store.addEdge(mid.getId(), sol.getId(), edge(2));
+
+    HintGenerator generator = new HintGenerator("b a", "", HintGenType.TED, store);
+    generator.setLatencyBudget(1);
+    generator.generateHints("{r{b}{a}}", 1);
+
+    assertTrue(generator.isApproximate());
+    assertEquals("b b", generator.getNextExpr());
+    assertEquals(1, generator.getHint().getDistance());
+    assertEquals(4.0, store.getShortestPaths(src, "ted", 1).get(0).getTotalCost());
+  }
+
+  /**
+   * A new submission stays in the overlay until it is seen twice, and is
+   * then persisted with both requests as popularity.
+   */
+  @Test
+  public void overlayPromotionTest() {
+    MemoryGraphStore store = buildStore();
+    SubmissionOverlay overlay = new SubmissionOverlay();
+    int threshold = SubmissionOverlay.PROMOTION_THRESHOLD;
+    SubmissionOverlay.PROMOTION_THRESHOLD = 2;
+    try {
+      HintGenerator first = new HintGenerator("c b", "", HintGenType.TED, store);
+      first.setOverlay(overlay);
+      first.generateHints("{r{c}{b}}", 1);
+      assertEquals("b b", first.getNextExpr());
+      assertEquals(4, store.size());
+      assertEquals(1, overlay.size());
+
+      HintGenerator second = new HintGenerator("c b", "", HintGenType.TED, store);
+      second.setOverlay(overlay);
+      second.generateHints("{r{c}{b}}", 1);
+      assertEquals("b b", second.getNextExpr());
+      assertNotNull(store.getNodeByAST("{r{c}{b}}"));
+      assertEquals(2.0, store.getNodeByAST("{r{c}{b}}").getPopularity());
+      assertEquals(0, overlay.size());
+      assertEquals(1, overlay.getPromoted());
+    } finally {
+      SubmissionOverlay.PROMOTION_THRESHOLD = threshold;
+    }
+  }
+}
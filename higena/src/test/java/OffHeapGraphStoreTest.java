@@ -0,0 +1,84 @@
+import org.higena.graph.MemoryGraphStore;
+import org.higena.graph.OffHeapGraphStore;
+import org.higena.graph.SolutionPath;
+import org.higena.graph.SubmissionEdge;
+import org.higena.graph.SubmissionNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class OffHeapGraphStoreTest {
+  private static final int NODES = 3000, EDGES = 4; // Larger than the initial buffers
+
+  /**
+   * Builds the same random graph in both stores and checks that they find
+   * paths with the same costs for each weight.
+   */
+  @Test
+  public void samePathsAsMemoryStoreTest() {
+    MemoryGraphStore memory = new MemoryGraphStore("challenge", "predicate");
+    OffHeapGraphStore offHeap = new OffHeapGraphStore("challenge", "predicate");
+    Random random = new Random(42);
+    for (int i = 0; i < NODES; i++) {
+      List<String> labels = List.of("Submission", i % 50 == 0 ? "Correct" : "Incorrect");
+      SubmissionNode node = new SubmissionNode(i, "{r{a" + i + "}}",
+              "a" + i, random.nextInt(10), labels);
+      memory.addNode(node);
+      offHeap.addNode(node);
+    }
+    for (int i = 0; i < NODES; i++) {
+      for (int j = 0; j < EDGES; j++) {
+        int target = random.nextInt(NODES);
+        double ted = 1 + random.nextInt(5);
+        SubmissionEdge edge = new SubmissionEdge((long) i * EDGES + j, ted,
+                List.of("op" + j, "\"quoted\""), null, Map.of("ted", ted,
+                "poisson", random.nextDouble(), "dstPoisson", random.nextDouble()));
+        memory.addEdge(i, target, edge);
+        offHeap.addEdge("{r{a" + i + "}}", "{r{a" + target + "}}", edge);
+      }
+    }
+
+    assertEquals(NODES, offHeap.size());
+    assertNull(offHeap.getNodeByAST("{r{b}}"));
+    for (String weight : List.of("ted", "poisson", "dstPoisson")) {
+      for (int i = 1; i < NODES; i += 97) {
+        SubmissionNode source = offHeap.getNodeByAST("{r{a" + i + "}}");
+        assertEquals(i, source.getId());
+        List<SolutionPath> expected = memory.getShortestPaths(source, weight, 3),
+                actual = offHeap.getShortestPaths(source, weight, 3);
+        assertEquals(expected.size(), actual.size());
+        for (int p = 0; p < expected.size(); p++) {
+          assertEquals(expected.get(p).getTotalCost(), actual.get(p).getTotalCost(), 1e-9);
+          assertEquals(expected.get(p).getTotalTED(), actual.get(p).getTotalTED(), 1e-9);
+        }
+        if (!actual.isEmpty()) {
+          SolutionPath path = actual.get(0);
+          assertEquals(path.getNodes().size(), path.getEdges().size() + 1);
+          assertEquals(List.of(path.getEdges().get(0).getOperations().get(0), "\"quoted\""),
+                  path.getEdges().get(0).getOperations());
+        }
+      }
+    }
+  }
+
+  /**
+   * ASTs are compared with the stored UTF-8 bytes without encoding them, so
+   * characters of every length must match and prefixes must not.
+   */
+  @Test
+  public void nonAsciiAstTest() {
+    OffHeapGraphStore store = new OffHeapGraphStore("challenge", "predicate");
+    String ast = "{r{caf\u00e9}{\u2200x}{\ud83d\ude00}}";
+    store.addNode(new SubmissionNode(1, ast, "e", 1, List.of("Submission", "Incorrect")));
+
+    assertEquals(1, store.getNodeByAST(ast).getId());
+    assertEquals(List.of("Submission", "Incorrect"), store.getNodeByAST(ast).getLabels());
+    assertNull(store.getNodeByAST("{r{caf\u00e9}{\u2200x}{\ud83d\ude00}"));
+    assertNull(store.getNodeByAST("{r{cafe}{\u2200x}{\ud83d\ude00}}"));
+  }
+}
@@ -0,0 +1,71 @@
+import org.higena.graph.SubmissionOverlay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class SubmissionOverlayTest {
+  private static final String A = "{r{a}}", B = "{r{b}}", C = "{r{c}}";
+  private int threshold, maxSize;
+  private long ttl;
+
+  @BeforeEach
+  public void saveSettings() {
+    threshold = SubmissionOverlay.PROMOTION_THRESHOLD;
+    maxSize = SubmissionOverlay.MAX_SIZE;
+    ttl = SubmissionOverlay.TTL;
+    SubmissionOverlay.PROMOTION_THRESHOLD = 100; // Never promoted here
+  }
+
+  @AfterEach
+  public void restoreSettings() {
+    SubmissionOverlay.PROMOTION_THRESHOLD = threshold;
+    SubmissionOverlay.MAX_SIZE = maxSize;
+    SubmissionOverlay.TTL = ttl;
+  }
+
+  /**
+   * Entries not seen for TTL milliseconds are removed on the next visit and
+   * start counting again if their submission comes back.
+   */
+  @Test
+  public void ttlExpiryTest() throws InterruptedException {
+    SubmissionOverlay.TTL = 500;
+    SubmissionOverlay overlay = new SubmissionOverlay();
+    overlay.visit("a", A);
+    overlay.visit("a", A);
+    Thread.sleep(1000);
+
+    overlay.visit("b", B);
+
+    assertEquals(1, overlay.size());
+    assertEquals(1, overlay.getExpired());
+    SubmissionOverlay.Entry entry = overlay.visit("a", A);
+    assertEquals(1, entry.getSeen());
+    assertFalse(entry.isPromoted());
+  }
+
+  /**
+   * When the overlay holds MAX_SIZE entries, adding another one evicts the
+   * least recently seen entry.
+   */
+  @Test
+  public void maxSizeEvictionTest() {
+    SubmissionOverlay.MAX_SIZE = 2;
+    SubmissionOverlay overlay = new SubmissionOverlay();
+    overlay.visit("a", A);
+    overlay.visit("b", B);
+    overlay.visit("a", A); // b is now the least recently seen
+
+    overlay.visit("c", C);
+
+    assertEquals(2, overlay.size());
+    assertEquals(1, overlay.getExpired());
+    assertEquals(3, overlay.visit("a", A).getSeen());
+    assertEquals(1, overlay.visit("b", B).getSeen()); // Evicts c
+    assertEquals(2, overlay.getExpired());
+    assertEquals(1, overlay.visit("c", C).getSeen());
+  }
+}
@@ -0,0 +1,289 @@
+import at.unisalzburg.dbresearch.apted.node.Node;
+import at.unisalzburg.dbresearch.apted.node.StringNodeData;
+import edu.mit.csail.sdg.alloy4.A4Reporter;
+import edu.mit.csail.sdg.parser.CompModule;
+import edu.mit.csail.sdg.parser.CompUtil;
+import org.higena.ast.MatcherStrategy;
+import org.higena.ast.TED;
+import org.higena.ast.TreeDiffCache;
+import org.higena.ast.actions.TreeDiff;
+import org.higena.graph.Graph;
+import org.higena.graph.SolutionCatalog;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.neo4j.driver.Record;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmarks the TED computations used by the nearest solution search (exact
+ * and approximate) and the matchers used to compute edit scripts on the ASTs
+ * of the datasets.
+ * Requires the graphs to be set up (see
+ * DBSetupTest).
+ */
+public class TEDBenchmarkTest {
+
+  private static final String CHALLENGES_DIR = "../data/datasets/challenges/";
+  private static final int MAX_QUERIES = 50; // Incorrect ASTs per predicate
+  private static final MatcherStrategy[] MATCHERS = {
+          MatcherStrategy.APTED, MatcherStrategy.GUMTREE,
+          MatcherStrategy.ADAPTIVE};
+  private static File tedCsv = null, matcherCsv = null, approximateCsv = null;
+  private static final boolean statistics = true;
+
+  @BeforeAll
+  public static void setup() {
+    if (statistics) {
+      tedCsv = createCSV("ted_benchmark", "src/test/outputs/",
+              "Challenge,Predicate,NumQueries,NumSolutions,ExactMs,BoundedMs,Speedup");
+      matcherCsv = createCSV("matcher_benchmark", "src/test/outputs/",
+              "Challenge,Predicate,Matcher,NumEdges,TotalMs,MaxMs,AvgScriptLength");
+      approximateCsv = createCSV("approximate_benchmark", "src/test/outputs/",
+              "Challenge,Predicate,NumQueries,NumSolutions,ShortlistSize,ExactMs,ApproximateMs,Recall");
+    }
+  }
+
+  public static Stream<Arguments> getDatasets() {
+    List<String> challenges = Arrays.stream(Objects.requireNonNull(new File(CHALLENGES_DIR).list()))
+            .collect(Collectors.toList());
+    HashMap<String, List<String>> arguments = new HashMap<>();
+
+    for (String challenge : challenges) {
+      CompModule module = CompUtil.parseEverything_fromFile(new A4Reporter(), null, CHALLENGES_DIR + challenge);
+      List<String> predicates = module.getAllFunc().makeConstList().stream()
+              .map(c -> c.label)
+              .collect(Collectors.toList());
+      predicates.remove(predicates.size() - 1);
+
+      arguments.put(challenge, predicates);
+    }
+
+    return arguments.entrySet().stream().flatMap(e -> e.getValue().stream().map(p -> Arguments.of(e.getKey().replace(".als", ""), p.replace("this/", ""))));
+  }
+
+  public static File createCSV(String name, String path, String columns) {
+    File csv = new File(path + name + ".csv");
+    csv.delete();
+
+    try {
+      if (csv.createNewFile()) { // create new file
+        // Write columns to file
+        writeLineToCSV(csv, columns);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return csv;
+  }
+
+  // Logging methods
+
+  public static void writeLineToCSV(File csv, String line) {
+    try {
+      FileWriter writer = new FileWriter(csv, true);
+      writer.write(line + '\n');
+      writer.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Auxiliary methods
+
+  /**
+   * Returns the parsed ASTs of the nodes with the given label.
+   *
+   * @param g     Graph to query
+   * @param label Label of the nodes
+   * @return Parsed ASTs of the nodes
+   */
+  private static List<Node<StringNodeData>> getTrees(Graph g, String label) {
+    List<Node<StringNodeData>> trees = new ArrayList<>();
+    for (Record rec : g.runQuery("MATCH (s:" + label + ")\n" +
+            "RETURN s.ast AS ast\n" + "ORDER BY s.popularity DESC")) {
+      trees.add(TED.parseTree(rec.get("ast").asString()));
+    }
+    return trees;
+  }
+
+  /**
+   * Finds the minimum TED between a tree and a list of solutions the same
+   * way the nearest solution search does.
+   *
+   * @param tree      Tree to compare
+   * @param solutions Solutions to compare the tree to
+   * @param bounded   True to use the bounded TED computation
+   * @return Minimum TED found
+   */
+  private static int nearest(Node<StringNodeData> tree,
+                             List<Node<StringNodeData>> solutions,
+                             boolean bounded) {
+    int minDist = Integer.MAX_VALUE;
+    for (Node<StringNodeData> solution : solutions) {
+      int curDist = bounded ?
+              TED.computeEditDistance(tree, solution, minDist - 1) :
+              TED.computeEditDistance(tree, solution);
+      if (curDist != 0 && curDist < minDist) {
+        minDist = curDist;
+        if (minDist == 1) break;
+      }
+    }
+    return minDist;
+  }
+
+  /**
+   * Returns the catalog of the Correct nodes of the graph.
+   *
+   * @param g Graph to query
+   * @return Catalog with the Correct nodes
+   */
+  private static SolutionCatalog getCatalog(Graph g) {
+    List<SolutionCatalog.Entry> entries = new ArrayList<>();
+    for (Record rec : g.runQuery("MATCH (s:Correct)\n" +
+            "RETURN s.id AS id, s.ast AS ast, s.popularity AS popularity\n" +
+            "ORDER BY s.popularity DESC")) {
+      entries.add(new SolutionCatalog.Entry(rec.get("id").asLong(),
+              rec.get("popularity").asDouble(0), rec.get("ast").asString()));
+    }
+    return new SolutionCatalog(entries);
+  }
+
+  // Test method
+
+  /**
+   * Compares the exact and the bounded TED computations when searching for
+   * the nearest solution of the Incorrect nodes of each predicate. Both must
+   * find the same distance.
+   *
+   * @param challenge Challenge name
+   * @param predicate Predicate name
+   */
+  @ParameterizedTest
+  @MethodSource("getDatasets")
+  public void benchmarkBoundedTED(String challenge, String predicate) {
+    String filename = CHALLENGES_DIR + challenge + ".als";
+    Graph g = new Graph(challenge, predicate, filename);
+
+    List<Node<StringNodeData>> solutions = getTrees(g, "Correct"),
+            queries = getTrees(g, "Incorrect");
+    queries = queries.subList(0, Math.min(MAX_QUERIES, queries.size()));
+
+    // Warm up
+    for (Node<StringNodeData> query : queries) {
+      nearest(query, solutions, false);
+      nearest(query, solutions, true);
+    }
+
+    long exactTime = 0, boundedTime = 0;
+    for (Node<StringNodeData> query : queries) {
+      long start = System.nanoTime();
+      int exact = nearest(query, solutions, false);
+      exactTime += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      int bounded = nearest(query, solutions, true);
+      boundedTime += System.nanoTime() - start;
+
+      assertEquals(exact, bounded);
+    }
+
+    if (statistics) {
+      double exactMs = exactTime / 1e6, boundedMs = boundedTime / 1e6;
+      writeLineToCSV(tedCsv, challenge + "," + predicate + "," + queries.size() + "," + solutions.size() + "," + exactMs + "," + boundedMs + "," + (exactMs / boundedMs));
+    }
+  }
+
+  /**
+   * Compares the exact and the approximate (pq-gram shortlist) nearest
+   * solution search on the Incorrect nodes of each predicate. Recall is the
+   * fraction of queries for which the approximate search finds a solution
+   * as close as the exact search.
+   *
+   * @param challenge Challenge name
+   * @param predicate Predicate name
+   */
+  @ParameterizedTest
+  @MethodSource("getDatasets")
+  public void benchmarkApproximateSearch(String challenge, String predicate) {
+    String filename = CHALLENGES_DIR + challenge + ".als";
+    Graph g = new Graph(challenge, predicate, filename);
+    SolutionCatalog catalog = getCatalog(g);
+    List<Record> queries = g.runQuery("MATCH (s:Incorrect)\n" +
+            "RETURN s.ast AS ast\n" + "LIMIT " + MAX_QUERIES);
+
+    long exactTime = 0, approximateTime = 0;
+    int found = 0;
+    for (Record query : queries) {
+      String ast = query.get("ast").asString();
+      TreeDiffCache.getInstance().clear();
+      long start = System.nanoTime();
+      SolutionCatalog.Entry exact = catalog.findMostSimilar(ast, false);
+      exactTime += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      SolutionCatalog.Entry approximate = catalog.findMostSimilar(ast, true);
+      approximateTime += System.nanoTime() - start;
+
+      if (exact == null || (approximate != null &&
+              TED.computeEditDistance(ast, approximate.getAst()) ==
+                      TED.computeEditDistance(ast, exact.getAst()))) {
+        found++;
+      }
+    }
+
+    if (statistics) {
+      double recall = (double) found / Math.max(1, queries.size());
+      writeLineToCSV(approximateCsv, challenge + "," + predicate + "," + queries.size() + "," + catalog.size() + "," + SolutionCatalog.SHORTLIST_SIZE + "," + (exactTime / 1e6) + "," + (approximateTime / 1e6) + "," + recall);
+    }
+  }
+
+  /**
+   * Compares the runtime and the length of the edit scripts of each
+   * MatcherStrategy when computing the differences of the Derives edges of
+   * each predicate. Results bypass the TreeDiffCache.
+   *
+   * @param challenge Challenge name
+   * @param predicate Predicate name
+   */
+  @ParameterizedTest
+  @MethodSource("getDatasets")
+  public void benchmarkMatchers(String challenge, String predicate) {
+    String filename = CHALLENGES_DIR + challenge + ".als";
+    Graph g = new Graph(challenge, predicate, filename);
+    List<Record> edges = g.runQuery(
+            "MATCH (src:Submission)-[:Derives]->(dst:Submission)\n" +
+                    "RETURN src.ast AS src, dst.ast AS dst");
+    MatcherStrategy previous = TED.MATCHER;
+    TED ted = new TED();
+
+    for (MatcherStrategy matcher : MATCHERS) {
+      TED.MATCHER = matcher;
+      long totalTime = 0, maxTime = 0, scriptLength = 0;
+      for (Record edge : edges) {
+        TreeDiffCache.getInstance().clear();
+        long start = System.nanoTime();
+        TreeDiff diff = ted.computeTreeDiff(edge.get("src").asString(),
+                edge.get("dst").asString());
+        long time = System.nanoTime() - start;
+        totalTime += time;
+        maxTime = Math.max(maxTime, time);
+        scriptLength += diff.getActions().size();
+      }
+
+      if (statistics) {
+        writeLineToCSV(matcherCsv, challenge + "," + predicate + "," + matcher + "," + edges.size() + "," + (totalTime / 1e6) + "," + (maxTime / 1e6) + "," + ((double) scriptLength / Math.max(1, edges.size())));
+      }
+    }
+    TED.MATCHER = previous;
+  }
+}